@@ -0,0 +1,22 @@
+package org.pancakelab.model;
+
+import java.time.Instant;
+
+/**
+ * An access decision of the authorization decorators.
+ *
+ * @param at        the instant of the decision
+ * @param username  the name of the user, or null if there was no user
+ * @param resource  the resource accessed, or null if the user could not be authenticated
+ * @param privilege the privilege required, or null if the decision was not about a privilege
+ * @param allowed   whether the access was allowed
+ * @param reason    why the access was denied, or null if it was allowed
+ */
+public record AuditEvent(Instant at, String username, String resource, Privileges privilege, boolean allowed,
+                         String reason) {
+    public AuditEvent {
+        if (at == null) {
+            throw new IllegalArgumentException("Instant is required");
+        }
+    }
+}
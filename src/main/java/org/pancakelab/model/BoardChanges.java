@@ -0,0 +1,23 @@
+package org.pancakelab.model;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes of a board since a version a client has already seen.
+ * When the client is too far behind, the changes are a full snapshot of the board instead, in which case the
+ * client replaces its copy with the added entries.
+ *
+ * @param version  the version of the board the changes lead to
+ * @param snapshot true if the added entries are the whole board rather than a delta
+ * @param added    the entries added or replaced since the client's version
+ * @param removed  the keys removed since the client's version
+ * @param <K>      the type of the board keys
+ * @param <V>      the type of the board values
+ */
+public record BoardChanges<K, V>(long version, boolean snapshot, Map<K, V> added, Set<K> removed) {
+    public BoardChanges {
+        added = Map.copyOf(added);
+        removed = Set.copyOf(removed);
+    }
+}
@@ -0,0 +1,21 @@
+package org.pancakelab.model;
+
+/**
+ * A single change of a board pushed to subscribers.
+ * Every change increments the board version by one, so a subscriber seeing a gap in the versions knows that it
+ * missed events and can catch up with a delta read since the last version it has seen.
+ *
+ * @param version the version of the board after the change
+ * @param type    whether the entry was added or replaced, or removed
+ * @param key     the key of the entry
+ * @param value   the new value of the entry, or null if it was removed
+ * @param <K>     the type of the board keys
+ * @param <V>     the type of the board values
+ */
+public record BoardEvent<K, V>(long version, Type type, K key, V value) {
+
+    public enum Type {
+        PUT,
+        REMOVE
+    }
+}
@@ -0,0 +1,17 @@
+package org.pancakelab.model;
+
+import java.time.Duration;
+
+/**
+ * The liveness and lag of a queue consumer.
+ *
+ * @param alive         true if the consumer is running and polled its queue recently
+ * @param lag           the number of events waiting in the queue
+ * @param sinceLastPoll the time since the consumer last polled its queue or finished an event
+ * @param processed     the number of events handled successfully
+ * @param deadLettered  the number of events given up on
+ * @param restarts      the number of times the consumer was restarted after a failure
+ */
+public record ConsumerHealth(
+        boolean alive, int lag, Duration sinceLastPoll, long processed, long deadLettered, long restarts) {
+}
@@ -0,0 +1,15 @@
+package org.pancakelab.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An event a consumer gave up on after it failed every attempt.
+ *
+ * @param orderId  the ID of the order the event was about
+ * @param reason   the message of the last failure
+ * @param attempts the number of attempts made
+ * @param failedAt the time of the last failure
+ */
+public record DeadLetter(UUID orderId, String reason, int attempts, Instant failedAt) {
+}
@@ -0,0 +1,39 @@
+package org.pancakelab.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A group of orders ready for delivery to the same building, which a courier accepts as a whole.
+ *
+ * @param batchId      the ID of the batch
+ * @param buildingNo   the building all orders of the batch are delivered to
+ * @param ordersByRoom the order IDs of the batch grouped by room, in delivery order
+ */
+public record DeliveryBatch(UUID batchId, String buildingNo, Map<String, List<UUID>> ordersByRoom) {
+    public DeliveryBatch {
+        if (batchId == null) {
+            throw new IllegalArgumentException("Batch id is required");
+        }
+        if (ordersByRoom == null || ordersByRoom.isEmpty()) {
+            throw new IllegalArgumentException("Orders are required");
+        }
+        final Map<String, List<UUID>> rooms = new LinkedHashMap<>();
+        ordersByRoom.forEach((room, orders) -> rooms.put(room, List.copyOf(orders)));
+        ordersByRoom = Collections.unmodifiableMap(rooms);
+    }
+
+    public List<UUID> orderIds() {
+        final List<UUID> orderIds = new ArrayList<>();
+        ordersByRoom.values().forEach(orderIds::addAll);
+        return orderIds;
+    }
+
+    public int size() {
+        return ordersByRoom.values().stream().mapToInt(List::size).sum();
+    }
+}
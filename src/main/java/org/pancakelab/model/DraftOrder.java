@@ -0,0 +1,18 @@
+package org.pancakelab.model;
+
+import java.util.UUID;
+
+/**
+ * An order which is still being put together by its owner.
+ *
+ * @param orderId      the ID of the order
+ * @param deliveryInfo the delivery information of the order
+ * @param owner        the user who created the order
+ */
+public record DraftOrder(UUID orderId, DeliveryInfo deliveryInfo, User owner) {
+    public DraftOrder {
+        if (orderId == null || deliveryInfo == null || owner == null) {
+            throw new IllegalArgumentException("Order ID, delivery information and owner are required");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.pancakelab.model;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The outcome of draining the service pipeline on shutdown.
+ *
+ * @param drained   true if every stage finished its work before the deadline and nothing was left behind
+ * @param elapsed   the time the drain took
+ * @param leftovers the IDs of the orders left behind, per stage, in pipeline order
+ */
+public record DrainReport(boolean drained, Duration elapsed, Map<String, List<UUID>> leftovers) {
+    public DrainReport {
+        final Map<String, List<UUID>> copy = new LinkedHashMap<>();
+        leftovers.forEach((stage, orderIds) -> copy.put(stage, List.copyOf(orderIds)));
+        leftovers = Collections.unmodifiableMap(copy);
+    }
+}
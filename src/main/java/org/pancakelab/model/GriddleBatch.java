@@ -0,0 +1,28 @@
+package org.pancakelab.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A single griddle load of one recipe, together with the orders the cooked pancakes belong to.
+ *
+ * @param recipe      the recipe cooked in this batch
+ * @param allocations the number of pancakes of this batch allocated to each order, in arrival order
+ */
+public record GriddleBatch(PancakeRecipe recipe, Map<UUID, Integer> allocations) {
+    public GriddleBatch {
+        if (recipe == null) {
+            throw new IllegalArgumentException("Recipe is required");
+        }
+        if (allocations == null || allocations.isEmpty()) {
+            throw new IllegalArgumentException("Allocations are required");
+        }
+        allocations = Collections.unmodifiableMap(new LinkedHashMap<>(allocations));
+    }
+
+    public int quantity() {
+        return allocations.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
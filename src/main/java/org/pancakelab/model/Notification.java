@@ -0,0 +1,20 @@
+package org.pancakelab.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A change of the status of an order to be told to a user.
+ *
+ * @param user    the user to notify
+ * @param orderId the ID of the order, or null if it is not known
+ * @param status  the new status of the order
+ * @param at      the instant the status changed
+ */
+public record Notification(User user, UUID orderId, OrderStatus status, Instant at) {
+    public Notification {
+        if (user == null || status == null || at == null) {
+            throw new IllegalArgumentException("User, status and instant are required");
+        }
+    }
+}
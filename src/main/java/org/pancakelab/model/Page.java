@@ -0,0 +1,19 @@
+package org.pancakelab.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A page of a board in arrival order, oldest entry first.
+ *
+ * @param entries    the entries of the page, in arrival order
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param <K>        the type of the board keys
+ * @param <V>        the type of the board values
+ */
+public record Page<K, V>(Map<K, V> entries, String nextCursor) {
+    public Page {
+        entries = Collections.unmodifiableMap(new LinkedHashMap<>(entries));
+    }
+}
@@ -1,15 +1,20 @@
 package org.pancakelab.model;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
 public class PancakeRecipe implements Comparable<PancakeRecipe> {
+    public static final String HAZELNUTS = "hazelnuts";
+    public static final String WHIPPED_CREAM = "whipped cream";
+
     private final CHOCOLATE chocolate;
     private final boolean hazelNuts;
     private final boolean whippedCream;
     private final Set<String> otherIngredients;
     private final String name;
+    private final Set<String> ingredients;
 
     @Override
     public boolean equals(Object o) {
@@ -30,6 +35,22 @@ public class PancakeRecipe implements Comparable<PancakeRecipe> {
         this.whippedCream = builder.whippedCream;
         this.otherIngredients = builder.otherIngredients;
         this.name = builder.name;
+        this.ingredients = ingredientsOf(builder);
+    }
+
+    private static Set<String> ingredientsOf(Builder builder) {
+        final Set<String> ingredients = new HashSet<>();
+        ingredients.add(builder.chocolate.getIngredient());
+        if (builder.hazelNuts) {
+            ingredients.add(HAZELNUTS);
+        }
+        if (builder.whippedCream) {
+            ingredients.add(WHIPPED_CREAM);
+        }
+        if (builder.otherIngredients != null) {
+            ingredients.addAll(builder.otherIngredients);
+        }
+        return Set.copyOf(ingredients);
     }
 
     public boolean hasHazelNuts() {
@@ -44,6 +65,16 @@ public class PancakeRecipe implements Comparable<PancakeRecipe> {
         return otherIngredients == null ? Set.of() : Set.copyOf(otherIngredients);
     }
 
+    /**
+     * Returns the names of all ingredients of the recipe, including the chocolate, the hazelnuts and the
+     * whipped cream.
+     *
+     * @return the ingredients of the recipe
+     */
+    public Set<String> getIngredients() {
+        return ingredients;
+    }
+
     public String getName() {
         return name;
     }
@@ -113,7 +144,17 @@ public class PancakeRecipe implements Comparable<PancakeRecipe> {
     }
 
     public enum CHOCOLATE {
-        MILK,
-        DARK
+        MILK("milk chocolate"),
+        DARK("dark chocolate");
+
+        private final String ingredient;
+
+        CHOCOLATE(String ingredient) {
+            this.ingredient = ingredient;
+        }
+
+        public String getIngredient() {
+            return ingredient;
+        }
     }
 }
\ No newline at end of file
@@ -6,13 +6,44 @@ public enum Privileges {
     CREATE('C'),
     DELETE('D');
 
+    private static final Privileges[] VALUES = values();
+
     private final char code;
+    private final int mask;
 
     Privileges(char code) {
         this.code = code;
+        this.mask = 1 << ordinal();
     }
 
     public char getCode() {
         return code;
     }
+
+    /**
+     * Returns the bit of the privilege in a privilege mask.
+     *
+     * @return the mask of the privilege
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * Compiles privilege codes into a privilege mask. Unknown codes grant nothing.
+     *
+     * @param codes the privilege codes, such as 'R' and 'U'
+     * @return the mask of the privileges
+     */
+    public static int maskOf(Iterable<Character> codes) {
+        int mask = 0;
+        for (Character code : codes) {
+            for (Privileges privilege : VALUES) {
+                if (code != null && privilege.code == code) {
+                    mask |= privilege.mask;
+                }
+            }
+        }
+        return mask;
+    }
 }
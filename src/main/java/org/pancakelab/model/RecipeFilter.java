@@ -0,0 +1,17 @@
+package org.pancakelab.model;
+
+import java.util.Set;
+
+/**
+ * A menu filter by ingredients, such as "dark chocolate" or "no hazelnuts".
+ * Ingredient names are those of {@link PancakeRecipe#getIngredients()}.
+ *
+ * @param included the ingredients a recipe must have, all of them
+ * @param excluded the ingredients a recipe must not have, none of them
+ */
+public record RecipeFilter(Set<String> included, Set<String> excluded) {
+    public RecipeFilter {
+        included = included == null ? Set.of() : Set.copyOf(included);
+        excluded = excluded == null ? Set.of() : Set.copyOf(excluded);
+    }
+}
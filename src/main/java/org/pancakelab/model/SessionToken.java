@@ -0,0 +1,23 @@
+package org.pancakelab.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A session issued to a user when they log in. The signature covers the username, the expiry and the compiled
+ * privileges, so the session cannot be moved to another user or extended to other privileges.
+ *
+ * @param username       the name of the user
+ * @param expiresAt      the instant the session expires at
+ * @param privilegeMasks the privilege masks of the user per resource, as compiled by {@link User}
+ * @param signature      the Base64 encoded signature of the session
+ */
+public record SessionToken(String username, Instant expiresAt, Map<String, Integer> privilegeMasks,
+                           String signature) {
+    public SessionToken {
+        if (username == null || expiresAt == null || signature == null) {
+            throw new IllegalArgumentException("Username, expiry and signature are required");
+        }
+        privilegeMasks = privilegeMasks == null ? Map.of() : Map.copyOf(privilegeMasks);
+    }
+}
@@ -1,5 +1,6 @@
 package org.pancakelab.model;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -7,15 +8,95 @@ public class User {
     private final String username;
     private final char[] password;
     private final Map<String, List<Character>> privileges;
+    private final Map<String, Integer> privilegeMasks;
+    private final SessionToken session;
 
     public User(String username, char[] password, Map<String, List<Character>> privileges) {
         this.username = username;
         this.password = password;
-        this.privileges = privileges;
+        this.privileges = copyOf(privileges);
+        this.privilegeMasks = compile(this.privileges);
+        this.session = null;
+    }
+
+    private User(User user, SessionToken session) {
+        this.username = user.username;
+        this.password = user.password;
+        this.privileges = user.privileges;
+        this.privilegeMasks = user.privilegeMasks;
+        this.session = session;
+    }
+
+    public String getUsername() {
+        return username;
     }
 
     public Map<String, List<Character>> getPrivileges() {
-        return Map.copyOf(this.privileges);
+        return privileges;
+    }
+
+    /**
+     * Checks a privilege on a resource against the privilege masks compiled when the user was created,
+     * without allocating.
+     *
+     * @param resource  the name of the resource
+     * @param privilege the privilege
+     * @return true if the user holds the privilege on the resource
+     */
+    public boolean hasPrivilege(String resource, Privileges privilege) {
+        final Integer mask = privilegeMasks.get(resource);
+        return mask != null && (mask & privilege.mask()) != 0;
+    }
+
+    /**
+     * Returns the privilege masks per resource, one bit per {@link Privileges} constant.
+     *
+     * @return the immutable privilege masks
+     */
+    public Map<String, Integer> getPrivilegeMasks() {
+        return privilegeMasks;
+    }
+
+    /**
+     * Returns the session of the user.
+     *
+     * @return the session, or null if the user has not logged in
+     */
+    public SessionToken getSession() {
+        return session;
+    }
+
+    /**
+     * Returns a copy of the user holding a session.
+     *
+     * @param session the session
+     * @return the user with the session
+     */
+    public User withSession(SessionToken session) {
+        return new User(this, session);
+    }
+
+    /**
+     * Returns a copy of the password of the user, to be checked against the hash of a stored user.
+     *
+     * @return the password
+     */
+    public char[] getPassword() {
+        return password == null ? null : password.clone();
+    }
+
+    private static Map<String, List<Character>> copyOf(Map<String, List<Character>> privileges) {
+        final Map<String, List<Character>> copy = new HashMap<>();
+        if (privileges != null) {
+            privileges.forEach((resource, codes) -> copy.put(resource, List.copyOf(codes)));
+        }
+        return Map.copyOf(copy);
+    }
+
+    private static Map<String, Integer> compile(Map<String, List<Character>> privileges) {
+        final Map<String, Integer> masks = new HashMap<>();
+        privileges.forEach((resource, codes) -> masks.put(resource, Privileges.maskOf(codes)));
+        return Map.copyOf(masks);
     }
 
     @Override
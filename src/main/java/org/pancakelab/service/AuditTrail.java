@@ -0,0 +1,57 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.AuditEvent;
+import org.pancakelab.model.Privileges;
+import org.pancakelab.model.User;
+
+import java.time.Instant;
+
+/**
+ * Records the access decisions of the authorization decorators. Recording must not block the request.
+ */
+public interface AuditTrail {
+
+    /**
+     * Records an access decision.
+     *
+     * @param event the decision
+     */
+    void record(AuditEvent event);
+
+    /**
+     * Records an allowed access.
+     *
+     * @param user      the user
+     * @param resource  the resource accessed
+     * @param privilege the privilege required
+     */
+    default void allowed(User user, String resource, Privileges privilege) {
+        record(new AuditEvent(Instant.now(), usernameOf(user), resource, privilege, true, null));
+    }
+
+    /**
+     * Records a denied access.
+     *
+     * @param user      the user, or null if there was no user
+     * @param resource  the resource accessed, or null if the user could not be authenticated
+     * @param privilege the privilege required, or null if the decision was not about a privilege
+     * @param reason    why the access was denied
+     */
+    default void denied(User user, String resource, Privileges privilege, String reason) {
+        record(new AuditEvent(Instant.now(), usernameOf(user), resource, privilege, false, reason));
+    }
+
+    /**
+     * Returns an audit trail which records nothing.
+     *
+     * @return the audit trail
+     */
+    static AuditTrail discard() {
+        return event -> {
+        };
+    }
+
+    private static String usernameOf(User user) {
+        return user == null ? null : user.getUsername();
+    }
+}
@@ -0,0 +1,58 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.AuthenticationFailureException;
+import org.pancakelab.model.AuthorizationFailureException;
+import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.model.Privileges;
+import org.pancakelab.model.User;
+
+import static org.pancakelab.util.PancakeUtils.authorizeUser;
+
+/**
+ * The authentication and authorization checks of the authorization decorators, recording every decision to an
+ * audit trail. The checks are made here rather than by the trail, so that a trail only records the decisions and
+ * can never decide them.
+ */
+final class AuditedAccess {
+
+    private AuditedAccess() {
+    }
+
+    /**
+     * Authenticates a user, recording a denied access if the user cannot be authenticated.
+     *
+     * @param auditTrail            the audit trail recording the decision
+     * @param authenticationService the authentication service
+     * @param user                  the user to authenticate
+     * @throws PancakeServiceException if the user cannot be authenticated
+     */
+    static void authenticate(final AuditTrail auditTrail, final AuthenticationService authenticationService,
+                             final User user) throws PancakeServiceException {
+        try {
+            authenticationService.authenticate(user);
+        } catch (AuthenticationFailureException e) {
+            auditTrail.denied(user, null, null, e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Authorizes a user for a privilege on a resource, recording the decision.
+     *
+     * @param auditTrail the audit trail recording the decision
+     * @param user       the user to authorize
+     * @param resource   the name of the resource
+     * @param privilege  the required privilege
+     * @throws PancakeServiceException if the user is not authorized
+     */
+    static void authorize(final AuditTrail auditTrail, final User user, final String resource,
+                          final Privileges privilege) throws PancakeServiceException {
+        try {
+            authorizeUser(user, resource, privilege);
+        } catch (AuthorizationFailureException e) {
+            auditTrail.denied(user, resource, privilege, e.getMessage());
+            throw e;
+        }
+        auditTrail.allowed(user, resource, privilege);
+    }
+}
@@ -5,4 +5,5 @@ import org.pancakelab.model.User;
 
 public interface AuthenticationService {
     void authenticate(User user) throws AuthenticationFailureException;
-}
\ No newline at end of file
+    User login(User user) throws AuthenticationFailureException;
+}
@@ -1,20 +1,45 @@
 package org.pancakelab.service;
 
 import org.pancakelab.model.AuthenticationFailureException;
+import org.pancakelab.model.SessionToken;
 import org.pancakelab.model.User;
+import org.pancakelab.util.HmacSigner;
+import org.pancakelab.util.PasswordHasher;
 
-import java.util.HashSet;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Implementation of the AuthenticationService interface.
+ * A user logs in once with their password and gets a copy of their stored user holding a signed, expiring session.
+ * Passwords are checked against their salted slow hashes; a password which passed recently is remembered in a
+ * {@link VerifiedCredentialCache}, so only the first check pays for the hash.
+ * Every further request is authenticated by verifying the signature of the session in constant time and a
+ * lock-free lookup in the {@link UserDirectory}, without comparing passwords. Users without a session are still
+ * authenticated by password.
  */
 public class AuthenticationServiceImpl implements AuthenticationService {
 
     public static final String USER_IS_NOT_AUTHENTICATED = "User not authenticated";
     public static final String INVALID_USER = "Invalid user";
+    public static final String INVALID_SESSION = "Invalid session";
+    public static final String SESSION_EXPIRED = "Session expired";
+    public static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMinutes(30);
+    private static final String DUMMY_PASSWORD = "no such user";
 
-    private final HashSet<User> authenticatedUsers;
+    private final UserDirectory userDirectory;
+    private final PasswordHasher passwordHasher;
+    private final VerifiedCredentialCache verifiedCredentials;
+    private final HmacSigner signer;
+    private final Duration sessionTimeout;
+    private final Clock clock;
+    private volatile String dummyHash;
 
     /**
      * Constructs an AuthenticationServiceImpl with a set of authenticated users.
@@ -22,22 +47,203 @@ public class AuthenticationServiceImpl implements AuthenticationService {
      * @param authenticatedUsers users to be saved in the authentication service
      */
     public AuthenticationServiceImpl(Set<User> authenticatedUsers) {
-        this.authenticatedUsers = new HashSet<>(authenticatedUsers);
+        this(authenticatedUsers, new HmacSigner(), DEFAULT_SESSION_TIMEOUT, Clock.systemUTC());
     }
 
     /**
-     * Authenticates a user.
+     * Constructs an AuthenticationServiceImpl.
+     *
+     * @param authenticatedUsers users to be saved in the authentication service
+     * @param signer             the signer of the sessions
+     * @param sessionTimeout     how long a session lasts
+     * @param clock              the clock the sessions expire by
+     */
+    public AuthenticationServiceImpl(Set<User> authenticatedUsers, HmacSigner signer, Duration sessionTimeout,
+                                     Clock clock) {
+        this(new UserDirectory(authenticatedUsers), signer, sessionTimeout, clock);
+    }
+
+    /**
+     * Constructs an AuthenticationServiceImpl on a user directory, which may change while the service runs.
+     *
+     * @param userDirectory  the users of the authentication service
+     * @param signer         the signer of the sessions
+     * @param sessionTimeout how long a session lasts
+     * @param clock          the clock the sessions expire by
+     */
+    public AuthenticationServiceImpl(UserDirectory userDirectory, HmacSigner signer, Duration sessionTimeout,
+                                     Clock clock) {
+        this(userDirectory, new PasswordHasher(), new VerifiedCredentialCache(), signer, sessionTimeout, clock);
+    }
+
+    /**
+     * Constructs an AuthenticationServiceImpl on a user directory, which may change while the service runs.
+     *
+     * @param userDirectory       the users of the authentication service
+     * @param passwordHasher      the verifier of the password hashes
+     * @param verifiedCredentials the cache of the recently verified passwords
+     * @param signer              the signer of the sessions
+     * @param sessionTimeout      how long a session lasts
+     * @param clock               the clock the sessions expire by
+     */
+    public AuthenticationServiceImpl(UserDirectory userDirectory, PasswordHasher passwordHasher,
+                                     VerifiedCredentialCache verifiedCredentials, HmacSigner signer,
+                                     Duration sessionTimeout, Clock clock) {
+        this.userDirectory = userDirectory;
+        this.passwordHasher = passwordHasher;
+        this.verifiedCredentials = verifiedCredentials;
+        this.signer = signer;
+        this.sessionTimeout = sessionTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Authenticates a user, by their session if they have one, else by their password.
      *
      * @param user the user to authenticate
-     * @throws AuthenticationFailureException if the user is null or not authenticated
+     * @throws AuthenticationFailureException if the user is null or not authenticated, or the session is invalid
+     *                                        or expired
      */
     @Override
     public void authenticate(User user) throws AuthenticationFailureException {
         if (user == null) {
             throw new AuthenticationFailureException(INVALID_USER);
         }
-        if (!authenticatedUsers.contains(user)) {
+        final SessionToken session = user.getSession();
+        if (session != null) {
+            verify(user, session);
+        } else {
+            storedAccount(user);
+        }
+    }
+
+    /**
+     * Logs a user in with their password.
+     *
+     * @param user the user logging in
+     * @return the stored user, with its privileges, holding a new session
+     * @throws AuthenticationFailureException if the user is null or not authenticated
+     */
+    @Override
+    public User login(User user) throws AuthenticationFailureException {
+        if (user == null) {
+            throw new AuthenticationFailureException(INVALID_USER);
+        }
+        final UserDirectory.Account account = storedAccount(user);
+        final User stored = account.user();
+        final Instant expiresAt = clock.instant().plus(sessionTimeout);
+        final byte[] signature = signer.sign(
+                payload(stored.getUsername(), expiresAt, stored.getPrivilegeMasks(), account.passwordHash()));
+        return stored.withSession(new SessionToken(
+                stored.getUsername(), expiresAt, stored.getPrivilegeMasks(),
+                Base64.getEncoder().encodeToString(signature)
+        ));
+    }
+
+    /**
+     * Looks up the stored account with the name of a user and checks the password, first in the cache of recently
+     * verified passwords and then against the password hash. When there is no such account, the password is checked
+     * against a dummy hash all the same, so that how long the check takes does not tell which usernames exist.
+     *
+     * @param user the user
+     * @return the stored account
+     * @throws AuthenticationFailureException if there is no such user or the password does not match
+     */
+    private UserDirectory.Account storedAccount(User user) throws AuthenticationFailureException {
+        final char[] password = user.getPassword();
+        if (password == null) {
+            throw new AuthenticationFailureException(USER_IS_NOT_AUTHENTICATED);
+        }
+        final UserDirectory.Account account = userDirectory.account(user.getUsername());
+        if (account == null) {
+            try {
+                passwordHasher.verify(password, dummyHash());
+            } finally {
+                Arrays.fill(password, '\0');
+            }
             throw new AuthenticationFailureException(USER_IS_NOT_AUTHENTICATED);
         }
+        try {
+            if (!verifiedCredentials.isVerified(user.getUsername(), password, account.passwordHash())) {
+                if (!passwordHasher.verify(password, account.passwordHash())) {
+                    throw new AuthenticationFailureException(USER_IS_NOT_AUTHENTICATED);
+                }
+                verifiedCredentials.remember(user.getUsername(), password, account.passwordHash());
+            }
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+        return account;
+    }
+
+    /**
+     * Returns the hash checked when there is no account, hashing it on first use with the same cost as the stored
+     * password hashes.
+     *
+     * @return the dummy hash
+     */
+    private String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = passwordHasher.hash(DUMMY_PASSWORD.toCharArray());
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Verifies that a session was issued by this service to the user presenting it and has not expired.
+     * The privileges of the user must be the privileges the session was signed with, and the user must still
+     * exist in the directory with the same privileges, so that revoking or demoting a user ends their sessions.
+     * The signature also covers the stored password hash, which is salted anew whenever the password is set, so
+     * that resetting the password ends the sessions issued before.
+     *
+     * @param user    the user presenting the session
+     * @param session the session
+     * @throws AuthenticationFailureException if the session is invalid or expired
+     */
+    private void verify(User user, SessionToken session) throws AuthenticationFailureException {
+        final byte[] signature;
+        try {
+            signature = Base64.getDecoder().decode(session.signature());
+        } catch (IllegalArgumentException e) {
+            throw new AuthenticationFailureException(INVALID_SESSION, e);
+        }
+        final UserDirectory.Account account = userDirectory.account(session.username());
+        if (account == null) {
+            throw new AuthenticationFailureException(USER_IS_NOT_AUTHENTICATED);
+        }
+        if (!signer.verify(payload(session.username(), session.expiresAt(), session.privilegeMasks(),
+                account.passwordHash()), signature)
+                || !session.username().equals(user.getUsername())
+                || !session.privilegeMasks().equals(user.getPrivilegeMasks())) {
+            throw new AuthenticationFailureException(INVALID_SESSION);
+        }
+        if (!clock.instant().isBefore(session.expiresAt())) {
+            throw new AuthenticationFailureException(SESSION_EXPIRED);
+        }
+        if (!account.user().getPrivilegeMasks().equals(session.privilegeMasks())) {
+            throw new AuthenticationFailureException(USER_IS_NOT_AUTHENTICATED);
+        }
+    }
+
+    /**
+     * Builds the signed payload of a session, with the privileges in a stable order.
+     *
+     * @param username       the name of the user
+     * @param expiresAt      the instant the session expires at
+     * @param privilegeMasks the privilege masks of the user
+     * @param passwordHash   the stored password hash of the user, which never leaves the service
+     * @return the payload
+     */
+    private static String payload(String username, Instant expiresAt, Map<String, Integer> privilegeMasks,
+                                  String passwordHash) {
+        final StringBuilder payload = new StringBuilder()
+                .append(username.length()).append(':').append(username)
+                .append('|').append(expiresAt.toEpochMilli())
+                .append('|').append(passwordHash.length()).append(':').append(passwordHash);
+        new TreeMap<>(privilegeMasks).forEach((resource, mask) ->
+                payload.append('|').append(resource.length()).append(':').append(resource).append('=').append(mask));
+        return payload.toString();
     }
-}
\ No newline at end of file
+}
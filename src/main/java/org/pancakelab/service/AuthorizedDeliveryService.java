@@ -1,14 +1,18 @@
 package org.pancakelab.service;
 
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.DeliveryBatch;
 import org.pancakelab.model.DeliveryInfo;
+import org.pancakelab.model.Page;
 import org.pancakelab.model.PancakeServiceException;
 import org.pancakelab.model.Privileges;
 import org.pancakelab.model.User;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-
-import static org.pancakelab.util.PancakeUtils.authorizeUser;
+import java.util.concurrent.Flow;
 
 /**
  * Service that provides authorized delivery operations.
@@ -19,6 +23,7 @@ public class AuthorizedDeliveryService implements DeliveryService {
     private static final String DELIVERY_RESOURCE_NAME = "delivery";
     private final DeliveryService deliveryService;
     private final AuthenticationService authenticationService;
+    private final AuditTrail auditTrail;
 
     /**
      * Constructs an AuthorizedDeliveryService with the specified delivery and authentication services.
@@ -30,18 +35,25 @@ public class AuthorizedDeliveryService implements DeliveryService {
             final DeliveryService deliveryService,
             final AuthenticationService authenticationService
     ) {
-        this.deliveryService = deliveryService;
-        this.authenticationService = authenticationService;
+        this(deliveryService, authenticationService, AuditTrail.discard());
     }
 
     /**
-     * Authenticates the specified user.
+     * Constructs an AuthorizedDeliveryService with the specified delivery and authentication services,
+     * recording every access decision to an audit trail.
      *
-     * @param user the user to authenticate
-     * @throws PancakeServiceException if the user cannot be authenticated
+     * @param deliveryService the delivery service to delegate to
+     * @param authenticationService the authentication service to use for user authentication
+     * @param auditTrail            the audit trail of the access decisions
      */
-    private void authenticateUser(User user) throws PancakeServiceException {
-        authenticationService.authenticate(user);
+    public AuthorizedDeliveryService(
+            final DeliveryService deliveryService,
+            final AuthenticationService authenticationService,
+            final AuditTrail auditTrail
+    ) {
+        this.deliveryService = deliveryService;
+        this.authenticationService = authenticationService;
+        this.auditTrail = auditTrail;
     }
 
     /**
@@ -53,11 +65,77 @@ public class AuthorizedDeliveryService implements DeliveryService {
      */
     @Override
     public Map<UUID, DeliveryInfo> viewCompletedOrders(User user) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, DELIVERY_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
         return deliveryService.viewCompletedOrders(user);
     }
 
+    /**
+     * Returns the completed orders of a range of buildings for the specified user.
+     *
+     * @param user         the user whose completed orders are to be viewed
+     * @param fromBuilding the first building number of the range, inclusive
+     * @param toBuilding   the last building number of the range, inclusive
+     * @return a map of completed orders
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public Map<UUID, DeliveryInfo> viewCompletedOrders(User user, int fromBuilding, int toBuilding)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
+        return deliveryService.viewCompletedOrders(user, fromBuilding, toBuilding);
+    }
+
+    /**
+     * Returns a page of the completed orders for the specified user, in the order in which they became ready.
+     *
+     * @param user     the user whose completed orders are to be viewed
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of orders of the page
+     * @return the page of completed orders
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the cursor is invalid
+     */
+    @Override
+    public Page<UUID, DeliveryInfo> viewCompletedOrders(User user, String cursor, int pageSize)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
+        return deliveryService.viewCompletedOrders(user, cursor, pageSize);
+    }
+
+    /**
+     * Returns the changes of the completed orders since the specified version for the specified user.
+     *
+     * @param user         the user whose completed orders are to be viewed
+     * @param sinceVersion the version the user has already seen
+     * @return the changes of the completed orders
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public BoardChanges<UUID, DeliveryInfo> viewCompletedOrderChanges(User user, long sinceVersion)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
+        return deliveryService.viewCompletedOrderChanges(user, sinceVersion);
+    }
+
+    /**
+     * Subscribes the specified user to the changes of the completed orders. The user is authorized once,
+     * when subscribing.
+     *
+     * @param user       the user subscribing to the completed orders
+     * @param subscriber the subscriber receiving the changes
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public void subscribeCompletedOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, DeliveryInfo>> subscriber)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
+        deliveryService.subscribeCompletedOrders(user, subscriber);
+    }
+
     /**
      * Accepts the specified order for the specified user.
      *
@@ -67,11 +145,40 @@ public class AuthorizedDeliveryService implements DeliveryService {
      */
     @Override
     public void acceptOrder(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, DELIVERY_RESOURCE_NAME, Privileges.CREATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.CREATE);
         deliveryService.acceptOrder(user, orderId);
     }
 
+    /**
+     * Returns the open delivery batches for the specified user.
+     *
+     * @param user the user whose delivery batches are to be viewed
+     * @return the open delivery batches
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public List<DeliveryBatch> viewDeliveryBatches(User user) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.READ);
+        return deliveryService.viewDeliveryBatches(user);
+    }
+
+    /**
+     * Accepts the specified delivery batch for the specified user.
+     *
+     * @param user    the user accepting the batch
+     * @param batchId the ID of the batch to accept
+     * @return the accepted batch
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public DeliveryBatch acceptBatch(User user, UUID batchId) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.CREATE);
+        return deliveryService.acceptBatch(user, batchId);
+    }
+
     /**
      * Sends the specified order for delivery for the specified user.
      *
@@ -81,8 +188,8 @@ public class AuthorizedDeliveryService implements DeliveryService {
      */
     @Override
     public void sendForTheDelivery(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, DELIVERY_RESOURCE_NAME, Privileges.UPDATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, DELIVERY_RESOURCE_NAME, Privileges.UPDATE);
         deliveryService.sendForTheDelivery(user, orderId);
     }
 }
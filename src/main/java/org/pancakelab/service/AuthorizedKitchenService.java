@@ -1,15 +1,23 @@
 package org.pancakelab.service;
 
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.GriddleBatch;
+import org.pancakelab.model.Page;
 import org.pancakelab.model.PancakeRecipe;
 import org.pancakelab.model.PancakeServiceException;
 import org.pancakelab.model.Privileges;
+import org.pancakelab.model.RecipeFilter;
 import org.pancakelab.model.User;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-
-import static org.pancakelab.util.PancakeUtils.authorizeUser;
+import java.util.concurrent.Flow;
 
 /**
  * Service that provides authorized kitchen operations.
@@ -20,6 +28,7 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
     private static final String RECIPE_RESOURCE_NAME = "recipe";
     private final KitchenServiceImpl chefService;
     private final AuthenticationService authenticationService;
+    private final AuditTrail auditTrail;
 
     /**
      * Constructs an AuthorizedKitchenService with the specified kitchen and authentication services.
@@ -31,18 +40,25 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
             final KitchenServiceImpl kitchenService,
             final AuthenticationService authenticationService
     ) {
-        this.chefService = kitchenService;
-        this.authenticationService = authenticationService;
+        this(kitchenService, authenticationService, AuditTrail.discard());
     }
 
     /**
-     * Authenticates the specified user.
+     * Constructs an AuthorizedKitchenService with the specified kitchen and authentication services,
+     * recording every access decision to an audit trail.
      *
-     * @param user the user to authenticate
-     * @throws PancakeServiceException if the user cannot be authenticated
+     * @param kitchenService        the kitchen service to delegate to
+     * @param authenticationService the authentication service to use for user authentication
+     * @param auditTrail            the audit trail of the access decisions
      */
-    private void authenticateUser(User user) throws PancakeServiceException {
-        authenticationService.authenticate(user);
+    public AuthorizedKitchenService(
+            final KitchenServiceImpl kitchenService,
+            final AuthenticationService authenticationService,
+            final AuditTrail auditTrail
+    ) {
+        this.chefService = kitchenService;
+        this.authenticationService = authenticationService;
+        this.auditTrail = auditTrail;
     }
 
     /**
@@ -54,11 +70,59 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public Map<UUID, Map<PancakeRecipe, Integer>> viewOrders(User user) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, KITCHEN_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.READ);
         return chefService.viewOrders(user);
     }
 
+    /**
+     * Returns a page of the orders for the specified user, in arrival order.
+     *
+     * @param user     the user whose orders are to be viewed
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of orders of the page
+     * @return the page of orders
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the cursor is invalid
+     */
+    @Override
+    public Page<UUID, Map<PancakeRecipe, Integer>> viewOrders(User user, String cursor, int pageSize)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.READ);
+        return chefService.viewOrders(user, cursor, pageSize);
+    }
+
+    /**
+     * Returns the changes of the orders since the specified version for the specified user.
+     *
+     * @param user         the user whose orders are to be viewed
+     * @param sinceVersion the version the user has already seen
+     * @return the changes of the orders
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public BoardChanges<UUID, Map<PancakeRecipe, Integer>> viewOrderChanges(User user, long sinceVersion)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.READ);
+        return chefService.viewOrderChanges(user, sinceVersion);
+    }
+
+    /**
+     * Subscribes the specified user to the changes of the orders. The user is authorized once, when subscribing.
+     *
+     * @param user       the user subscribing to the orders
+     * @param subscriber the subscriber receiving the changes
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public void subscribeOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, Map<PancakeRecipe, Integer>>> subscriber)
+            throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.READ);
+        chefService.subscribeOrders(user, subscriber);
+    }
+
     /**
      * Accepts the specified order for the specified user.
      *
@@ -68,11 +132,25 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void acceptOrder(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, KITCHEN_RESOURCE_NAME, Privileges.CREATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.CREATE);
         chefService.acceptOrder(user, orderId);
     }
 
+    /**
+     * Claims the next waiting order for the specified user.
+     *
+     * @param user the user claiming an order
+     * @return the ID of the claimed order, or empty if there is no order waiting
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public Optional<UUID> claimNextOrder(User user) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.CREATE);
+        return chefService.claimNextOrder(user);
+    }
+
     /**
      * Notifies the completion of the specified order for the specified user.
      *
@@ -82,11 +160,39 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void notifyOrderCompletion(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, KITCHEN_RESOURCE_NAME, Privileges.UPDATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.UPDATE);
         chefService.notifyOrderCompletion(user, orderId);
     }
 
+    /**
+     * Returns the griddle batches planned over the open orders for the specified user.
+     *
+     * @param user the user requesting the plan
+     * @return the planned griddle batches
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public List<GriddleBatch> planBatches(User user) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.READ);
+        return chefService.planBatches(user);
+    }
+
+    /**
+     * Records the specified cooked batch for the specified user.
+     *
+     * @param user  the user who cooked the batch
+     * @param batch the cooked batch
+     * @return the IDs of the orders whose pancakes are now all cooked
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized
+     */
+    @Override
+    public Set<UUID> completeBatch(User user, GriddleBatch batch) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, KITCHEN_RESOURCE_NAME, Privileges.UPDATE);
+        return chefService.completeBatch(user, batch);
+    }
 
     /**
      * Adds a new recipe for the specified user.
@@ -97,8 +203,8 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void addRecipe(User user, PancakeRecipe recipe) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, RECIPE_RESOURCE_NAME, Privileges.CREATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.CREATE);
         chefService.addRecipe(user, recipe);
     }
 
@@ -111,8 +217,8 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void removeRecipe(User user, String recipe) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, RECIPE_RESOURCE_NAME, Privileges.DELETE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.DELETE);
         chefService.removeRecipe(user, recipe);
     }
 
@@ -126,8 +232,8 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void updateRecipe(User user, String name, PancakeRecipe recipe) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, RECIPE_RESOURCE_NAME, Privileges.UPDATE.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.UPDATE);
         chefService.updateRecipe(user, name, recipe);
     }
 
@@ -140,8 +246,8 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public void exits(User user, PancakeRecipe recipe) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, RECIPE_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.READ);
         chefService.exits(user, recipe);
     }
 
@@ -154,8 +260,53 @@ public class AuthorizedKitchenService implements ChefService, RecipeService {
      */
     @Override
     public Set<PancakeRecipe> getRecipes(User user) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, RECIPE_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.READ);
         return chefService.getRecipes(user);
     }
+
+    /**
+     * Returns the recipes matching the specified ingredient filter for the specified user.
+     *
+     * @param user   the user searching the recipes
+     * @param filter the ingredient filter
+     * @return the matching recipes
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the filter is null
+     */
+    @Override
+    public List<PancakeRecipe> findRecipes(User user, RecipeFilter filter) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.READ);
+        return chefService.findRecipes(user, filter);
+    }
+
+    /**
+     * Imports recipes from CSV for the specified user, who must be allowed to both create and update recipes.
+     *
+     * @param user the user importing the recipes
+     * @param csv  the source of the CSV
+     * @return the number of imported recipes
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the import fails
+     */
+    @Override
+    public int importRecipes(User user, Reader csv) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.CREATE);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.UPDATE);
+        return chefService.importRecipes(user, csv);
+    }
+
+    /**
+     * Exports the recipes as CSV for the specified user.
+     *
+     * @param user the user exporting the recipes
+     * @param csv  the target of the CSV
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the export fails
+     */
+    @Override
+    public void exportRecipes(User user, Writer csv) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, RECIPE_RESOURCE_NAME, Privileges.READ);
+        chefService.exportRecipes(user, csv);
+    }
 }
@@ -2,11 +2,9 @@ package org.pancakelab.service;
 
 import org.pancakelab.model.*;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static org.pancakelab.util.PancakeUtils.authorizeUser;
 
 /**
  * Service that provides authorized order operations.
@@ -17,68 +15,95 @@ public class AuthorizedOrderService implements OrderService {
     public static final String ORDER_RESOURCE_NAME = "order";
     public static final String USER_DOES_NOT_HAVE_AUTHORITY_TO_ACCESS_ORDER = "User not authorized to access order";
     public static final String ORDER_NOT_FOUND = "Order not found";
+    public static final String ORDER_OWNERSHIP_REQUIRED = "Order service must keep the owners of its orders";
 
     private final OrderService orderService;
+    private final OrderOwnership orderOwnership;
     private final AuthenticationService authenticationService;
-    private final ConcurrentHashMap<UUID, User> orderUserMap = new ConcurrentHashMap<>();
+    private final AuditTrail auditTrail;
 
     /**
      * Constructs an AuthorizedOrderService with the specified order and authentication services.
      *
      * @param orderService          the order service to delegate to
      * @param authenticationService the authentication service to use for user authentication
+     * @throws IllegalArgumentException if the order service does not keep the owners of its orders
      */
     public AuthorizedOrderService(
             final OrderService orderService,
             final AuthenticationService authenticationService
     ) {
-        this.orderService = orderService;
-        this.authenticationService = authenticationService;
+        this(orderService, authenticationService, AuditTrail.discard());
     }
 
     /**
-     * Authorizes access to the specified order for the specified user.
+     * Constructs an AuthorizedOrderService with the specified order and authentication services,
+     * recording every access decision to an audit trail.
      *
-     * @param user    the user to authorize
-     * @param orderId the ID of the order to authorize access to
-     * @throws AuthorizationFailureException if the user is not authorized to access the order
+     * @param orderService          the order service to delegate to
+     * @param authenticationService the authentication service to use for user authentication
+     * @param auditTrail            the audit trail of the access decisions
+     * @throws IllegalArgumentException if the order service does not keep the owners of its orders
      */
-    private void authorizeOrderAccess(User user, UUID orderId) throws AuthorizationFailureException {
-        if (orderUserMap.get(orderId) == null) {
-            throw new AuthorizationFailureException(ORDER_NOT_FOUND);
-        }
-        if (!orderUserMap.get(orderId).equals(user)) {
-            throw new AuthorizationFailureException(USER_DOES_NOT_HAVE_AUTHORITY_TO_ACCESS_ORDER);
-        }
+    public AuthorizedOrderService(
+            final OrderService orderService,
+            final AuthenticationService authenticationService,
+            final AuditTrail auditTrail
+    ) {
+        this(orderService, ownershipOf(orderService), authenticationService, auditTrail);
     }
 
     /**
-     * Authenticates the specified user.
+     * Constructs an AuthorizedOrderService which checks the order access against the given owners of the orders.
      *
-     * @param user the user to authenticate
-     * @throws PancakeServiceException if the user cannot be authenticated
+     * @param orderService          the order service to delegate to
+     * @param orderOwnership        the owners of the orders
+     * @param authenticationService the authentication service to use for user authentication
+     * @param auditTrail            the audit trail of the access decisions
      */
-    private void authenticateUser(User user) throws PancakeServiceException {
-        authenticationService.authenticate(user);
+    AuthorizedOrderService(
+            final OrderService orderService,
+            final OrderOwnership orderOwnership,
+            final AuthenticationService authenticationService,
+            final AuditTrail auditTrail
+    ) {
+        this.orderService = orderService;
+        this.orderOwnership = orderOwnership;
+        this.authenticationService = authenticationService;
+        this.auditTrail = auditTrail;
     }
 
     /**
-     * Assigns the specified order to the specified user.
+     * Returns the owners of the orders, as kept by the order service.
      *
-     * @param orderId the ID of the order to assign
-     * @param user    the user to assign the order to
+     * @param orderService the order service
+     * @return the owners of the orders
+     * @throws IllegalArgumentException if the order service does not keep the owners of its orders
      */
-    private void assignOrderToUser(UUID orderId, User user) {
-        orderUserMap.put(orderId, user);
+    private static OrderOwnership ownershipOf(final OrderService orderService) {
+        if (orderService instanceof OrderOwnership orderOwnership) {
+            return orderOwnership;
+        }
+        throw new IllegalArgumentException(ORDER_OWNERSHIP_REQUIRED);
     }
 
     /**
-     * Unassigns the specified order from any user.
+     * Authorizes access to the specified order for the specified user.
      *
-     * @param orderId the ID of the order to unassign
+     * @param user    the user to authorize
+     * @param orderId the ID of the order to authorize access to
+     * @throws AuthorizationFailureException if the user is not authorized to access the order
      */
-    private void unAssignOrderFromUser(UUID orderId) {
-        orderUserMap.remove(orderId);
+    private void authorizeOrderAccess(User user, UUID orderId) throws AuthorizationFailureException {
+        final String owner = orderOwnership.ownerOf(orderId);
+        if (owner == null) {
+            auditTrail.denied(user, ORDER_RESOURCE_NAME, null, ORDER_NOT_FOUND);
+            throw new AuthorizationFailureException(ORDER_NOT_FOUND);
+        }
+        if (!owner.equals(user.getUsername())) {
+            auditTrail.denied(user, ORDER_RESOURCE_NAME, null, USER_DOES_NOT_HAVE_AUTHORITY_TO_ACCESS_ORDER);
+            throw new AuthorizationFailureException(USER_DOES_NOT_HAVE_AUTHORITY_TO_ACCESS_ORDER);
+        }
     }
 
     /**
@@ -91,11 +116,9 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public UUID createOrder(User user, DeliveryInfo deliveryInformation) throws PancakeServiceException {
-        authenticateUser(user);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.CREATE.getCode());
-        var orderId = orderService.createOrder(user, deliveryInformation);
-        assignOrderToUser(orderId, user);
-        return orderId;
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.CREATE);
+        return orderService.createOrder(user, deliveryInformation);
     }
 
     /**
@@ -108,9 +131,9 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public void addPancakes(User user, UUID orderId, Map<PancakeRecipe, Integer> pancakes) throws PancakeServiceException {
-        authenticateUser(user);
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
         authorizeOrderAccess(user, orderId);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.CREATE.getCode());
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.CREATE);
         orderService.addPancakes(user, orderId, pancakes);
     }
 
@@ -124,9 +147,9 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public Map<PancakeRecipe, Integer> orderSummary(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
         authorizeOrderAccess(user, orderId);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.READ);
         return orderService.orderSummary(user, orderId);
     }
 
@@ -140,14 +163,32 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public OrderStatus status(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
         authorizeOrderAccess(user, orderId);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.READ.getCode());
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.READ);
         return orderService.status(user, orderId);
     }
 
+    /**
+     * Returns the estimated time the specified order of the specified user will be ready.
+     *
+     * @param user    the user whose order is to be estimated
+     * @param orderId the ID of the order to estimate
+     * @return the estimated time the order will be ready
+     * @throws PancakeServiceException if the user cannot be authenticated or authorized, or the order is not in
+     *                                 the kitchen
+     */
+    @Override
+    public Instant estimatedReadyAt(User user, UUID orderId) throws PancakeServiceException {
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
+        authorizeOrderAccess(user, orderId);
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.READ);
+        return orderService.estimatedReadyAt(user, orderId);
+    }
+
     /**
      * Completes the specified order for the specified user.
+     * Ownership is kept by the order service itself, see {@link OrderService#ownerOf(UUID)}.
      *
      * @param user    the user completing the order
      * @param orderId the ID of the order to complete
@@ -155,11 +196,10 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public void complete(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
         authorizeOrderAccess(user, orderId);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.CREATE.getCode());
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.CREATE);
         orderService.complete(user, orderId);
-        unAssignOrderFromUser(orderId);
     }
 
     /**
@@ -171,10 +211,9 @@ public class AuthorizedOrderService implements OrderService {
      */
     @Override
     public void cancel(User user, UUID orderId) throws PancakeServiceException {
-        authenticateUser(user);
+        AuditedAccess.authenticate(auditTrail, authenticationService, user);
         authorizeOrderAccess(user, orderId);
-        authorizeUser(user, ORDER_RESOURCE_NAME, Privileges.UPDATE.getCode());
+        AuditedAccess.authorize(auditTrail, user, ORDER_RESOURCE_NAME, Privileges.UPDATE);
         orderService.cancel(user, orderId);
-        unAssignOrderFromUser(orderId);
     }
 }
\ No newline at end of file
@@ -1,14 +1,28 @@
 package org.pancakelab.service;
 
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.GriddleBatch;
+import org.pancakelab.model.Page;
 import org.pancakelab.model.PancakeRecipe;
 import org.pancakelab.model.PancakeServiceException;
 import org.pancakelab.model.User;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Flow;
 
 public interface ChefService {
     Map<UUID, Map<PancakeRecipe,Integer>> viewOrders(User user) throws PancakeServiceException;
+    Page<UUID, Map<PancakeRecipe, Integer>> viewOrders(User user, String cursor, int pageSize) throws PancakeServiceException;
+    BoardChanges<UUID, Map<PancakeRecipe, Integer>> viewOrderChanges(User user, long sinceVersion) throws PancakeServiceException;
+    void subscribeOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, Map<PancakeRecipe, Integer>>> subscriber) throws PancakeServiceException;
     void acceptOrder(User user, UUID orderId) throws PancakeServiceException;
+    Optional<UUID> claimNextOrder(User user) throws PancakeServiceException;
     void notifyOrderCompletion(User user, UUID orderId) throws PancakeServiceException;
+    List<GriddleBatch> planBatches(User user) throws PancakeServiceException;
+    Set<UUID> completeBatch(User user, GriddleBatch batch) throws PancakeServiceException;
 }
@@ -0,0 +1,227 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns kitchen orders to chefs in the spirit of fork/join work stealing.
+ * Every chef owns a deque; incoming orders are dealt round-robin to the chefs, a chef takes work from the head
+ * of its own deque and, when idle, steals from the tail of the busiest other chef.
+ * An order is claimed by moving its status from COMPLETED to IN_PROGRESS with a compare-and-set on the status
+ * repository, hence an order is claimed exactly once even if it is taken from two deques or accepted directly.
+ */
+public class ChefWorkScheduler {
+
+    private final ConcurrentMap<UUID, OrderStatus> orderStatusRepository;
+    private final ConcurrentMap<String, WorkQueue> chefQueues = new ConcurrentHashMap<>();
+    private final WorkQueue unassignedOrders = new WorkQueue();
+    private final AtomicInteger nextChef = new AtomicInteger();
+    private volatile List<String> chefs = List.of();
+
+    /**
+     * Constructs a new ChefWorkScheduler.
+     *
+     * @param orderStatusRepository the map of order statuses used to claim orders
+     */
+    public ChefWorkScheduler(final ConcurrentMap<UUID, OrderStatus> orderStatusRepository) {
+        this.orderStatusRepository = orderStatusRepository;
+    }
+
+    /**
+     * Registers a chef, so that incoming orders are dealt to the chef as well.
+     * Orders which arrived while no chef was registered are handed to the first chef.
+     *
+     * @param chef the name of the chef
+     */
+    public void registerChef(final String chef) {
+        if (!chefQueues.containsKey(chef)) {
+            addChef(chef);
+        }
+    }
+
+    /**
+     * Adds a chef's deque and publishes the new list of chefs.
+     *
+     * @param chef the name of the chef
+     */
+    private synchronized void addChef(final String chef) {
+        if (chefQueues.containsKey(chef)) {
+            return;
+        }
+        final WorkQueue queue = new WorkQueue();
+        UUID orderId;
+        while ((orderId = unassignedOrders.pollFirst()) != null) {
+            queue.addLast(orderId);
+        }
+        chefQueues.put(chef, queue);
+        final List<String> updated = new ArrayList<>(chefs);
+        updated.add(chef);
+        chefs = List.copyOf(updated);
+    }
+
+    /**
+     * Unregisters a chef, handing the chef's pending orders back to the scheduler.
+     *
+     * @param chef the name of the chef
+     */
+    public synchronized void unregisterChef(final String chef) {
+        final WorkQueue queue = chefQueues.remove(chef);
+        if (queue == null) {
+            return;
+        }
+        final List<String> updated = new ArrayList<>(chefs);
+        updated.remove(chef);
+        chefs = List.copyOf(updated);
+        UUID orderId;
+        while ((orderId = queue.pollFirst()) != null) {
+            submit(orderId);
+        }
+    }
+
+    /**
+     * Deals an order to the next chef in round-robin order.
+     *
+     * @param orderId the ID of the order waiting to be cooked
+     */
+    public void submit(final UUID orderId) {
+        final List<String> current = chefs;
+        if (current.isEmpty()) {
+            unassignedOrders.addLast(orderId);
+            return;
+        }
+        final String chef = current.get(Math.floorMod(nextChef.getAndIncrement(), current.size()));
+        final WorkQueue queue = chefQueues.get(chef);
+        if (queue == null) {
+            unassignedOrders.addLast(orderId);
+        } else {
+            queue.addLast(orderId);
+        }
+    }
+
+    /**
+     * Claims the next order for a chef, registering the chef on first use. The chef's own deque is served first,
+     * then orders no chef owns yet, and finally work is stolen from the busiest other chef.
+     * Orders which were cancelled or already claimed elsewhere are dropped on the way.
+     *
+     * @param chef the name of the chef
+     * @return the ID of the claimed order, or empty if there is no work left
+     */
+    public Optional<UUID> claimNext(final String chef) {
+        registerChef(chef);
+        final WorkQueue own = chefQueues.get(chef);
+        UUID orderId;
+        while (own != null && (orderId = own.pollFirst()) != null) {
+            if (claim(orderId)) {
+                return Optional.of(orderId);
+            }
+        }
+        while ((orderId = unassignedOrders.pollFirst()) != null) {
+            if (claim(orderId)) {
+                return Optional.of(orderId);
+            }
+        }
+        WorkQueue victim;
+        while ((victim = busiestOtherThan(chef)) != null) {
+            while ((orderId = victim.pollLast()) != null) {
+                if (claim(orderId)) {
+                    return Optional.of(orderId);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Claims an order by moving it from COMPLETED to IN_PROGRESS.
+     *
+     * @param orderId the ID of the order to claim
+     * @return true if this call claimed the order
+     */
+    public boolean claim(final UUID orderId) {
+        return orderStatusRepository.replace(orderId, OrderStatus.COMPLETED, OrderStatus.IN_PROGRESS);
+    }
+
+    /**
+     * Returns the number of orders waiting in a chef's deque.
+     *
+     * @param chef the name of the chef
+     * @return the number of waiting orders
+     */
+    public int pendingFor(final String chef) {
+        final WorkQueue queue = chefQueues.get(chef);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Returns the number of registered chefs.
+     *
+     * @return the number of chefs
+     */
+    public int chefCount() {
+        return chefs.size();
+    }
+
+    /**
+     * Finds the non-empty deque of another chef holding the most orders.
+     *
+     * @param chef the chef looking for work
+     * @return the deque to steal from, or null if every other chef is idle
+     */
+    private WorkQueue busiestOtherThan(final String chef) {
+        WorkQueue busiest = null;
+        int busiestSize = 0;
+        for (String other : chefs) {
+            if (other.equals(chef)) {
+                continue;
+            }
+            final WorkQueue queue = chefQueues.get(other);
+            final int size = queue == null ? 0 : queue.size();
+            if (size > busiestSize) {
+                busiest = queue;
+                busiestSize = size;
+            }
+        }
+        return busiest;
+    }
+
+    /**
+     * A chef's deque with a size counter, so that picking a victim to steal from does not walk the deques.
+     */
+    private static final class WorkQueue {
+        private final Deque<UUID> orders = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        void addLast(final UUID orderId) {
+            orders.addLast(orderId);
+            size.incrementAndGet();
+        }
+
+        UUID pollFirst() {
+            return counted(orders.pollFirst());
+        }
+
+        UUID pollLast() {
+            return counted(orders.pollLast());
+        }
+
+        int size() {
+            return Math.max(0, size.get());
+        }
+
+        private UUID counted(final UUID orderId) {
+            if (orderId != null) {
+                size.decrementAndGet();
+            }
+            return orderId;
+        }
+    }
+}
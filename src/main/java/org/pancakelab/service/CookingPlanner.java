@@ -0,0 +1,173 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.GriddleBatch;
+import org.pancakelab.model.PancakeRecipe;
+
+import java.util.*;
+
+/**
+ * Aggregates the pending pancakes of all open kitchen orders per recipe, so that chefs can fill the griddle
+ * with one recipe across several orders instead of cooking one order at a time.
+ * The aggregation is maintained incrementally when orders arrive or leave the kitchen, hence planning never
+ * has to walk the kitchen board.
+ */
+public class CookingPlanner {
+
+    public static final String INVALID_GRIDDLE_CAPACITY = "Griddle capacity must be positive";
+
+    private final int griddleCapacity;
+    private final Map<PancakeRecipe, LinkedHashMap<UUID, Integer>> pendingByRecipe = new HashMap<>();
+    private final Map<PancakeRecipe, Integer> pendingTotals = new HashMap<>();
+    private final Map<UUID, Integer> pendingByOrder = new HashMap<>();
+
+    /**
+     * Constructs a new CookingPlanner.
+     *
+     * @param griddleCapacity the maximum number of pancakes that fit on the griddle at once
+     */
+    public CookingPlanner(final int griddleCapacity) {
+        if (griddleCapacity <= 0) {
+            throw new IllegalArgumentException(INVALID_GRIDDLE_CAPACITY);
+        }
+        this.griddleCapacity = griddleCapacity;
+    }
+
+    /**
+     * Adds the pancakes of an order to the plan. Adding an order which is already planned has no effect.
+     *
+     * @param orderId  the ID of the order
+     * @param pancakes the pancakes of the order and their quantities
+     */
+    public synchronized void addOrder(final UUID orderId, final Map<PancakeRecipe, Integer> pancakes) {
+        if (pendingByOrder.containsKey(orderId)) {
+            return;
+        }
+        int orderTotal = 0;
+        for (Map.Entry<PancakeRecipe, Integer> item : pancakes.entrySet()) {
+            final int quantity = item.getValue();
+            if (quantity <= 0) {
+                continue;
+            }
+            pendingByRecipe.computeIfAbsent(item.getKey(), recipe -> new LinkedHashMap<>()).put(orderId, quantity);
+            pendingTotals.merge(item.getKey(), quantity, Integer::sum);
+            orderTotal += quantity;
+        }
+        if (orderTotal > 0) {
+            pendingByOrder.put(orderId, orderTotal);
+        }
+    }
+
+    /**
+     * Removes whatever is still pending for an order from the plan.
+     *
+     * @param orderId the ID of the order
+     */
+    public synchronized void removeOrder(final UUID orderId) {
+        if (pendingByOrder.remove(orderId) == null) {
+            return;
+        }
+        final Iterator<Map.Entry<PancakeRecipe, LinkedHashMap<UUID, Integer>>> recipes = pendingByRecipe.entrySet().iterator();
+        while (recipes.hasNext()) {
+            final Map.Entry<PancakeRecipe, LinkedHashMap<UUID, Integer>> entry = recipes.next();
+            final Integer quantity = entry.getValue().remove(orderId);
+            if (quantity != null) {
+                decrementTotal(entry.getKey(), quantity);
+                if (entry.getValue().isEmpty()) {
+                    recipes.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pending pancakes per recipe across all planned orders.
+     *
+     * @return a map of recipes to pending quantities
+     */
+    public synchronized Map<PancakeRecipe, Integer> pendingTotals() {
+        return Map.copyOf(pendingTotals);
+    }
+
+    /**
+     * Splits the pending pancakes into griddle batches. Recipes with the most pending pancakes come first and
+     * within a recipe the orders are served in arrival order, so an order may be spread over two batches.
+     *
+     * @return the griddle batches, none of them larger than the griddle capacity
+     */
+    public synchronized List<GriddleBatch> planBatches() {
+        final List<PancakeRecipe> recipes = new ArrayList<>(pendingTotals.keySet());
+        recipes.sort(Comparator.comparing((PancakeRecipe recipe) -> pendingTotals.get(recipe)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        final List<GriddleBatch> batches = new ArrayList<>();
+        for (PancakeRecipe recipe : recipes) {
+            Map<UUID, Integer> allocations = new LinkedHashMap<>();
+            int free = griddleCapacity;
+            for (Map.Entry<UUID, Integer> pending : pendingByRecipe.get(recipe).entrySet()) {
+                int quantity = pending.getValue();
+                while (quantity > 0) {
+                    final int portion = Math.min(quantity, free);
+                    allocations.merge(pending.getKey(), portion, Integer::sum);
+                    quantity -= portion;
+                    free -= portion;
+                    if (free == 0) {
+                        batches.add(new GriddleBatch(recipe, allocations));
+                        allocations = new LinkedHashMap<>();
+                        free = griddleCapacity;
+                    }
+                }
+            }
+            if (!allocations.isEmpty()) {
+                batches.add(new GriddleBatch(recipe, allocations));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Records a cooked batch and maps the finished pancakes back to their orders.
+     * Allocations of orders which already left the plan, or which exceed what is still pending, are ignored.
+     *
+     * @param batch the cooked batch
+     * @return the IDs of the orders whose pancakes are now all cooked
+     */
+    public synchronized Set<UUID> completeBatch(final GriddleBatch batch) {
+        final LinkedHashMap<UUID, Integer> pending = pendingByRecipe.get(batch.recipe());
+        if (pending == null) {
+            return Set.of();
+        }
+        final Set<UUID> cookedOrders = new LinkedHashSet<>();
+        for (Map.Entry<UUID, Integer> allocation : batch.allocations().entrySet()) {
+            final UUID orderId = allocation.getKey();
+            final Integer stillPending = pending.get(orderId);
+            if (stillPending == null) {
+                continue;
+            }
+            final int cooked = Math.min(stillPending, allocation.getValue());
+            if (cooked == stillPending) {
+                pending.remove(orderId);
+            } else {
+                pending.put(orderId, stillPending - cooked);
+            }
+            decrementTotal(batch.recipe(), cooked);
+            final int orderRemaining = pendingByOrder.merge(orderId, -cooked, Integer::sum);
+            if (orderRemaining <= 0) {
+                pendingByOrder.remove(orderId);
+                cookedOrders.add(orderId);
+            }
+        }
+        if (pending.isEmpty()) {
+            pendingByRecipe.remove(batch.recipe());
+        }
+        return cookedOrders;
+    }
+
+    /**
+     * Decrements the pending total of a recipe, dropping the recipe once nothing is pending.
+     *
+     * @param recipe   the recipe
+     * @param quantity the quantity to subtract
+     */
+    private void decrementTotal(final PancakeRecipe recipe, final int quantity) {
+        pendingTotals.computeIfPresent(recipe, (key, total) -> total - quantity > 0 ? total - quantity : null);
+    }
+}
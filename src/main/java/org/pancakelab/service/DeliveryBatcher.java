@@ -0,0 +1,224 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.DeliveryBatch;
+import org.pancakelab.model.DeliveryInfo;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups orders ready for delivery by building and then by room, and releases the groups as delivery batches.
+ * A building's orders are released as soon as they fill a batch of the maximum size, or once the oldest of them
+ * has waited for the maximum wait time, whichever happens first.
+ * Released batches stay open until a courier takes them.
+ */
+public class DeliveryBatcher {
+
+    public static final String INVALID_BATCH_POLICY = "Batch size must be positive and wait time must not be negative";
+    private static final Comparator<String> ROOM_ORDER = Comparator.nullsFirst(
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, BuildingGroup> waitingByBuilding = new LinkedHashMap<>();
+    private final Map<UUID, DeliveryInfo> waitingOrders = new HashMap<>();
+    private final Map<UUID, DeliveryBatch> releasedBatches = new LinkedHashMap<>();
+    private final Map<UUID, UUID> batchByOrder = new HashMap<>();
+
+    /**
+     * Constructs a new DeliveryBatcher.
+     *
+     * @param maxBatchSize the maximum number of orders in a batch
+     * @param maxWait      the maximum time an order waits before its building's batch is released
+     */
+    public DeliveryBatcher(final int maxBatchSize, final Duration maxWait) {
+        this(maxBatchSize, maxWait, System::nanoTime);
+    }
+
+    DeliveryBatcher(final int maxBatchSize, final Duration maxWait, final LongSupplier nanoClock) {
+        if (maxBatchSize <= 0 || maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException(INVALID_BATCH_POLICY);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Adds an order ready for delivery. Adding an order which is already waiting or released has no effect.
+     *
+     * @param orderId      the ID of the order
+     * @param deliveryInfo the delivery information of the order
+     */
+    public synchronized void add(final UUID orderId, final DeliveryInfo deliveryInfo) {
+        if (waitingOrders.containsKey(orderId) || batchByOrder.containsKey(orderId)) {
+            return;
+        }
+        waitingOrders.put(orderId, deliveryInfo);
+        waitingByBuilding.computeIfAbsent(deliveryInfo.buildingNo(), building -> new BuildingGroup())
+                .add(deliveryInfo.roomNo(), orderId, nanoClock.getAsLong());
+    }
+
+    /**
+     * Removes an order which was handled on its own. A released batch containing the order shrinks accordingly.
+     *
+     * @param orderId the ID of the order
+     */
+    public synchronized void remove(final UUID orderId) {
+        final DeliveryInfo deliveryInfo = waitingOrders.remove(orderId);
+        if (deliveryInfo != null) {
+            final BuildingGroup group = waitingByBuilding.get(deliveryInfo.buildingNo());
+            group.remove(deliveryInfo.roomNo(), orderId);
+            if (group.isEmpty()) {
+                waitingByBuilding.remove(deliveryInfo.buildingNo());
+            }
+            return;
+        }
+        final UUID batchId = batchByOrder.remove(orderId);
+        if (batchId != null) {
+            final DeliveryBatch batch = releasedBatches.remove(batchId);
+            final Map<String, List<UUID>> remaining = new LinkedHashMap<>();
+            batch.ordersByRoom().forEach((room, orders) -> {
+                final List<UUID> others = orders.stream().filter(id -> !id.equals(orderId)).toList();
+                if (!others.isEmpty()) {
+                    remaining.put(room, others);
+                }
+            });
+            if (!remaining.isEmpty()) {
+                releasedBatches.put(batchId, new DeliveryBatch(batchId, batch.buildingNo(), remaining));
+            }
+        }
+    }
+
+    /**
+     * Releases the batches which are due under the size and wait policy and returns all open batches.
+     *
+     * @return the open delivery batches, oldest first
+     */
+    public synchronized List<DeliveryBatch> releaseBatches() {
+        final long now = nanoClock.getAsLong();
+        final Iterator<Map.Entry<String, BuildingGroup>> buildings = waitingByBuilding.entrySet().iterator();
+        while (buildings.hasNext()) {
+            final Map.Entry<String, BuildingGroup> building = buildings.next();
+            final BuildingGroup group = building.getValue();
+            while (group.size >= maxBatchSize) {
+                release(building.getKey(), group.take(maxBatchSize));
+            }
+            if (group.size > 0 && now - group.oldestNanos >= maxWaitNanos) {
+                release(building.getKey(), group.take(group.size));
+            }
+            if (group.isEmpty()) {
+                buildings.remove();
+            }
+        }
+        return List.copyOf(releasedBatches.values());
+    }
+
+    /**
+     * Takes an open batch, so that no other courier can take it.
+     *
+     * @param batchId the ID of the batch
+     * @return the batch, or null if it is not open
+     */
+    public synchronized DeliveryBatch take(final UUID batchId) {
+        final DeliveryBatch batch = releasedBatches.remove(batchId);
+        if (batch != null) {
+            batch.orderIds().forEach(batchByOrder::remove);
+        }
+        return batch;
+    }
+
+    /**
+     * Returns the number of orders which are not released in a batch yet.
+     *
+     * @return the number of waiting orders
+     */
+    public synchronized int waitingCount() {
+        return waitingOrders.size();
+    }
+
+    /**
+     * Publishes a batch of orders taken from a building group.
+     *
+     * @param buildingNo   the building of the orders
+     * @param ordersByRoom the orders grouped by room
+     */
+    private void release(final String buildingNo, final Map<String, List<UUID>> ordersByRoom) {
+        final DeliveryBatch batch = new DeliveryBatch(UUID.randomUUID(), buildingNo, ordersByRoom);
+        releasedBatches.put(batch.batchId(), batch);
+        for (UUID orderId : batch.orderIds()) {
+            waitingOrders.remove(orderId);
+            batchByOrder.put(orderId, batch.batchId());
+        }
+    }
+
+    /**
+     * An order waiting in a building group together with the time it arrived.
+     *
+     * @param orderId      the ID of the order
+     * @param arrivalNanos the time the order arrived
+     */
+    private record WaitingOrder(UUID orderId, long arrivalNanos) {
+    }
+
+    /**
+     * The orders of one building waiting to be released, grouped by room.
+     */
+    private static final class BuildingGroup {
+        private final TreeMap<String, Deque<WaitingOrder>> rooms = new TreeMap<>(ROOM_ORDER);
+        private int size;
+        private long oldestNanos = Long.MAX_VALUE;
+
+        private void add(final String roomNo, final UUID orderId, final long arrivalNanos) {
+            rooms.computeIfAbsent(roomNo, room -> new ArrayDeque<>()).addLast(new WaitingOrder(orderId, arrivalNanos));
+            oldestNanos = Math.min(oldestNanos, arrivalNanos);
+            size++;
+        }
+
+        private void remove(final String roomNo, final UUID orderId) {
+            final Deque<WaitingOrder> orders = rooms.get(roomNo);
+            if (orders != null && orders.removeIf(waiting -> waiting.orderId().equals(orderId))) {
+                size--;
+                if (orders.isEmpty()) {
+                    rooms.remove(roomNo);
+                }
+                updateOldest();
+            }
+        }
+
+        private Map<String, List<UUID>> take(final int count) {
+            final Map<String, List<UUID>> taken = new LinkedHashMap<>();
+            int remaining = count;
+            while (remaining > 0) {
+                final Map.Entry<String, Deque<WaitingOrder>> room = rooms.firstEntry();
+                final List<UUID> orders = taken.computeIfAbsent(room.getKey(), key -> new ArrayList<>());
+                while (remaining > 0 && !room.getValue().isEmpty()) {
+                    orders.add(room.getValue().pollFirst().orderId());
+                    remaining--;
+                    size--;
+                }
+                if (room.getValue().isEmpty()) {
+                    rooms.pollFirstEntry();
+                }
+            }
+            updateOldest();
+            return taken;
+        }
+
+        /**
+         * Recomputes the arrival time of the oldest order from the head of each room, which is the oldest of the room.
+         */
+        private void updateOldest() {
+            oldestNanos = Long.MAX_VALUE;
+            for (Deque<WaitingOrder> orders : rooms.values()) {
+                oldestNanos = Math.min(oldestNanos, orders.peekFirst().arrivalNanos());
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -1,14 +1,26 @@
 package org.pancakelab.service;
 
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.DeliveryBatch;
 import org.pancakelab.model.DeliveryInfo;
+import org.pancakelab.model.Page;
 import org.pancakelab.model.PancakeServiceException;
 import org.pancakelab.model.User;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Flow;
 
 public interface DeliveryService {
     Map<UUID, DeliveryInfo> viewCompletedOrders(User user) throws PancakeServiceException;
+    Map<UUID, DeliveryInfo> viewCompletedOrders(User user, int fromBuilding, int toBuilding) throws PancakeServiceException;
+    Page<UUID, DeliveryInfo> viewCompletedOrders(User user, String cursor, int pageSize) throws PancakeServiceException;
+    BoardChanges<UUID, DeliveryInfo> viewCompletedOrderChanges(User user, long sinceVersion) throws PancakeServiceException;
+    void subscribeCompletedOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, DeliveryInfo>> subscriber) throws PancakeServiceException;
     void acceptOrder(User user, UUID orderId) throws PancakeServiceException;
+    List<DeliveryBatch> viewDeliveryBatches(User user) throws PancakeServiceException;
+    DeliveryBatch acceptBatch(User user, UUID batchId) throws PancakeServiceException;
     void sendForTheDelivery(User user, UUID orderId) throws PancakeServiceException;
 }
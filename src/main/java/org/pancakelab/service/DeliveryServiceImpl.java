@@ -1,13 +1,16 @@
 package org.pancakelab.service;
 
-import org.pancakelab.model.DeliveryInfo;
-import org.pancakelab.model.OrderDetails;
-import org.pancakelab.model.OrderStatus;
-import org.pancakelab.model.User;
+import org.pancakelab.model.*;
+import org.pancakelab.util.NotificationDispatcher;
 import org.pancakelab.util.PancakeUtils;
+import org.pancakelab.util.VersionedBoard;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -18,15 +21,24 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * The delivery service uses a blocking queue to store the order ids that are ready for delivery.
  * This service tries to only show the delivery information and order id to the user for security reasons.
  */
-public class DeliveryServiceImpl implements DeliveryService {
+public class DeliveryServiceImpl implements DeliveryService, Drainable {
+    public static final String BATCH_NOT_AVAILABLE = "Delivery batch is not available";
+    public static final int DEFAULT_MAX_BATCH_SIZE = 5;
+    public static final Duration DEFAULT_MAX_BATCH_WAIT = Duration.ofMinutes(2);
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
     private final ConcurrentMap<UUID, OrderDetails> ordersRepository;
     private final ConcurrentMap<UUID, OrderStatus> orderStatusRepository;
-    private final ExecutorService executorService;
+    private final PipelineStage pipelineStage;
+    private SupervisedConsumer consumer;
     private final BlockingDeque<UUID> deliveryQueue;
-    private final Map<UUID, DeliveryInfo> localDeliveryMap = new ConcurrentHashMap<>();
+    private final VersionedBoard<UUID, DeliveryInfo> localDeliveryMap = new VersionedBoard<>();
+    private final ConcurrentNavigableMap<Integer, Map<UUID, DeliveryInfo>> buildingIndex = new ConcurrentSkipListMap<>();
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
     private final ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+    private final DeliveryBatcher deliveryBatcher;
+    private final NotificationDispatcher notificationDispatcher;
 
     /**
      * Constructs a new DeliveryServiceImpl.
@@ -41,11 +53,59 @@ public class DeliveryServiceImpl implements DeliveryService {
             final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
             final BlockingDeque<UUID> deliveryQueue,
             final Integer internalThreads
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryQueue, internalThreads,
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_WAIT);
+    }
+
+    /**
+     * Constructs a new DeliveryServiceImpl with a custom delivery batching policy.
+     *
+     * @param ordersRepository      the map of order details
+     * @param orderStatusRepository the map of order statuses
+     * @param deliveryQueue         the queue of orders ready for delivery
+     * @param internalThreads       the number of internal threads to use
+     * @param maxBatchSize          the maximum number of orders in a delivery batch
+     * @param maxBatchWait          the maximum time an order waits before its batch is released
+     */
+    public DeliveryServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final int maxBatchSize,
+            final Duration maxBatchWait
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryQueue, internalThreads, maxBatchSize, maxBatchWait,
+                PancakeUtils.notifications());
+    }
+
+    /**
+     * Constructs a new DeliveryServiceImpl which notifies the users through its own dispatcher.
+     *
+     * @param ordersRepository       the map of order details
+     * @param orderStatusRepository  the map of order statuses
+     * @param deliveryQueue          the queue of orders ready for delivery
+     * @param internalThreads        the number of internal threads to use
+     * @param maxBatchSize           the maximum number of orders in a delivery batch
+     * @param maxBatchWait           the maximum time an order waits before its batch is released
+     * @param notificationDispatcher the dispatcher of the user notifications
+     */
+    public DeliveryServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final int maxBatchSize,
+            final Duration maxBatchWait,
+            final NotificationDispatcher notificationDispatcher
     ) {
         this.ordersRepository = ordersRepository;
         this.orderStatusRepository = orderStatusRepository;
         this.deliveryQueue = deliveryQueue;
-        this.executorService = Executors.newFixedThreadPool(internalThreads);
+        this.pipelineStage = new PipelineStage(internalThreads);
+        this.deliveryBatcher = new DeliveryBatcher(maxBatchSize, maxBatchWait);
+        this.notificationDispatcher = notificationDispatcher;
         startOrderUpdateThread();
     }
 
@@ -57,10 +117,67 @@ public class DeliveryServiceImpl implements DeliveryService {
      * @return a map of order IDs to delivery information
      */
     @Override
-    public synchronized Map<UUID, DeliveryInfo> viewCompletedOrders(User user) {
+    public Map<UUID, DeliveryInfo> viewCompletedOrders(User user) {
+        return localDeliveryMap.snapshot();
+    }
+
+    /**
+     * Allows the user to view the completed orders page by page, in the order in which they became ready.
+     *
+     * @param user     the user requesting to view completed orders
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of orders of the page
+     * @return the page of order IDs to delivery information
+     * @throws ValidationException if the cursor or the page size is invalid
+     */
+    @Override
+    public Page<UUID, DeliveryInfo> viewCompletedOrders(User user, String cursor, int pageSize)
+            throws ValidationException {
+        return localDeliveryMap.page(cursor, pageSize);
+    }
+
+    /**
+     * Allows the user to fetch only the changes of the completed orders since the version the user has already seen.
+     *
+     * @param user         the user requesting the changes
+     * @param sinceVersion the version of the completed orders the user has already seen, or 0 for all orders
+     * @return the changes since the version, or all completed orders if the version is too old
+     */
+    @Override
+    public BoardChanges<UUID, DeliveryInfo> viewCompletedOrderChanges(User user, long sinceVersion) {
+        return localDeliveryMap.changesSince(sinceVersion);
+    }
+
+    /**
+     * Subscribes the user to the changes of the completed orders, which are pushed as the subscriber requests them.
+     *
+     * @param user       the user subscribing to the completed orders
+     * @param subscriber the subscriber receiving the changes
+     */
+    @Override
+    public void subscribeCompletedOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, DeliveryInfo>> subscriber) {
+        localDeliveryMap.subscribe(subscriber);
+    }
+
+    /**
+     * Allows the user to view the completed orders of a range of buildings. Only the buildings in the range
+     * are visited, hence the cost depends on the number of returned orders rather than on all completed orders.
+     *
+     * @param user         the user requesting to view completed orders
+     * @param fromBuilding the first building number of the range, inclusive
+     * @param toBuilding   the last building number of the range, inclusive
+     * @return a map of order IDs to delivery information
+     */
+    @Override
+    public Map<UUID, DeliveryInfo> viewCompletedOrders(User user, int fromBuilding, int toBuilding) {
+        final Map<UUID, DeliveryInfo> completedOrders = new HashMap<>();
+        if (fromBuilding > toBuilding) {
+            return completedOrders;
+        }
         readLock.lock();
         try {
-            return new HashMap<>(localDeliveryMap);
+            buildingIndex.subMap(fromBuilding, true, toBuilding, true).values().forEach(completedOrders::putAll);
+            return completedOrders;
         } finally {
             readLock.unlock();
         }
@@ -72,23 +189,90 @@ public class DeliveryServiceImpl implements DeliveryService {
      *
      * @param user    the user accepting the order
      * @param orderId the ID of the order to be accepted
+     * @throws PancakeServiceException if the service is shutting down
      */
     @Override
-    public void acceptOrder(User user, UUID orderId) {
-        CompletableFuture.runAsync(() -> {
+    public void acceptOrder(User user, UUID orderId) throws PancakeServiceException {
+        pipelineStage.runAsync(() -> {
             OrderDetails orderDetails;
             synchronized (ordersRepository) {
                 orderDetails = ordersRepository.get(orderId);
             }
             if (orderDetails != null) {
+                final boolean outForDelivery;
                 synchronized (orderStatusRepository) {
-                    if (orderStatusRepository.get(orderId) == OrderStatus.READY_FOR_DELIVERY) {
+                    outForDelivery = orderStatusRepository.get(orderId) == OrderStatus.READY_FOR_DELIVERY;
+                    if (outForDelivery) {
                         orderStatusRepository.put(orderId, OrderStatus.OUT_FOR_DELIVERY);
-                        PancakeUtils.notifyUser(user, OrderStatus.OUT_FOR_DELIVERY);
                     }
                 }
+                if (outForDelivery) {
+                    notificationDispatcher.notifyUser(user, orderId, OrderStatus.OUT_FOR_DELIVERY);
+                }
+                deliveryBatcher.remove(orderId);
             }
-        }, executorService);
+        });
+    }
+
+    /**
+     * Allows the user to view the delivery batches, releasing the batches which are due.
+     * Orders ready for delivery are grouped by building and then by room.
+     *
+     * @param user the user requesting to view delivery batches
+     * @return the open delivery batches
+     */
+    @Override
+    public List<DeliveryBatch> viewDeliveryBatches(User user) {
+        return deliveryBatcher.releaseBatches();
+    }
+
+    /**
+     * Allows the user to accept a whole delivery batch. Either every order of the batch goes out for delivery,
+     * or none does; orders of a failed batch which are still ready for delivery are batched again.
+     *
+     * @param user    the user accepting the batch
+     * @param batchId the ID of the batch to be accepted
+     * @return the accepted batch
+     * @throws PancakeServiceException if the batch is not open, one of its orders is no longer ready for delivery,
+     *                                 or the service is shutting down
+     */
+    @Override
+    public DeliveryBatch acceptBatch(User user, UUID batchId) throws PancakeServiceException {
+        pipelineStage.ensureAccepting();
+        final DeliveryBatch batch = deliveryBatcher.take(batchId);
+        if (batch == null) {
+            throw new PancakeServiceException(BATCH_NOT_AVAILABLE);
+        }
+        synchronized (orderStatusRepository) {
+            final boolean allReady = batch.orderIds().stream()
+                    .allMatch(orderId -> orderStatusRepository.get(orderId) == OrderStatus.READY_FOR_DELIVERY);
+            if (!allReady) {
+                requeueReadyOrders(batch);
+                throw new PancakeServiceException(BATCH_NOT_AVAILABLE);
+            }
+            batch.orderIds().forEach(orderId -> orderStatusRepository.put(orderId, OrderStatus.OUT_FOR_DELIVERY));
+        }
+        batch.orderIds().forEach(orderId -> notificationDispatcher.notifyUser(user, orderId, OrderStatus.OUT_FOR_DELIVERY));
+        return batch;
+    }
+
+    /**
+     * Hands the orders of a failed batch which are still ready for delivery back to the batcher.
+     *
+     * @param batch the failed batch
+     */
+    private void requeueReadyOrders(final DeliveryBatch batch) {
+        readLock.lock();
+        try {
+            for (UUID orderId : batch.orderIds()) {
+                final DeliveryInfo deliveryInfo = localDeliveryMap.get(orderId);
+                if (deliveryInfo != null && orderStatusRepository.get(orderId) == OrderStatus.READY_FOR_DELIVERY) {
+                    deliveryBatcher.add(orderId, deliveryInfo);
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
     }
 
     /**
@@ -97,10 +281,11 @@ public class DeliveryServiceImpl implements DeliveryService {
      *
      * @param user    the user sending the order for delivery
      * @param orderId the ID of the order to be delivered
+     * @throws PancakeServiceException if the service is shutting down
      */
     @Override
-    public void sendForTheDelivery(User user, UUID orderId) {
-        CompletableFuture.runAsync(() -> {
+    public void sendForTheDelivery(User user, UUID orderId) throws PancakeServiceException {
+        pipelineStage.runAsync(() -> {
             OrderDetails orderDetails;
             synchronized (ordersRepository) {
                 orderDetails = ordersRepository.get(orderId);
@@ -113,58 +298,169 @@ public class DeliveryServiceImpl implements DeliveryService {
                 }
                 writeLock.lock();
                 try {
-                    localDeliveryMap.remove(orderId);
+                    final DeliveryInfo deliveryInfo = localDeliveryMap.remove(orderId);
+                    if (deliveryInfo != null) {
+                        unIndex(orderId, deliveryInfo);
+                    }
                 } finally {
                     writeLock.unlock();
                 }
+                deliveryBatcher.remove(orderId);
                 synchronized (ordersRepository) {
                     ordersRepository.remove(orderId);
                 }
             }
-            PancakeUtils.notifyUser(user, OrderStatus.DELIVERED);
-        }, executorService);
+            notificationDispatcher.notifyUser(user, orderId, OrderStatus.DELIVERED);
+        });
     }
 
     /**
-     * Starts a thread to update the local delivery map with orders from the delivery queue.
+     * Starts consuming the delivery queue to update the local delivery map.
      */
     private void startOrderUpdateThread() {
-        executorService.submit(() -> {
-            while (true) {
-                try {
-                    final UUID orderId = deliveryQueue.take();
-                    OrderDetails orderDetails;
-                    synchronized (ordersRepository) {
-                        orderDetails = ordersRepository.get(orderId);
-                    }
-                    if (orderDetails != null) {
-                        writeLock.lock();
-                        try {
-                            localDeliveryMap.put(orderId, orderDetails.getDeliveryInfo());
-                        } finally {
-                            writeLock.unlock();
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+        consumer = pipelineStage.consume(deliveryQueue, this::updateLocalDeliveryMap);
+    }
+
+    /**
+     * Adds a completed order to the local delivery map, the building index and the delivery batches.
+     *
+     * @param orderId the ID of the completed order
+     */
+    private void updateLocalDeliveryMap(UUID orderId) {
+        OrderDetails orderDetails;
+        synchronized (ordersRepository) {
+            orderDetails = ordersRepository.get(orderId);
+        }
+        if (orderDetails != null) {
+            writeLock.lock();
+            try {
+                localDeliveryMap.put(orderId, orderDetails.getDeliveryInfo());
+                index(orderId, orderDetails.getDeliveryInfo());
+            } finally {
+                writeLock.unlock();
             }
-        });
+            deliveryBatcher.add(orderId, orderDetails.getDeliveryInfo());
+        }
     }
 
     /**
-     * Shuts down the executor service, waiting for tasks to complete or forcing shutdown if necessary.
+     * Adds an order to the building index. Must be called while holding the write lock.
+     * Orders with a building number which is not numeric are not indexed.
+     *
+     * @param orderId      the ID of the order
+     * @param deliveryInfo the delivery information of the order
      */
-    public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
+    private void index(final UUID orderId, final DeliveryInfo deliveryInfo) {
+        final Integer building = buildingKey(deliveryInfo);
+        if (building != null) {
+            buildingIndex.computeIfAbsent(building, key -> new ConcurrentHashMap<>()).put(orderId, deliveryInfo);
+        }
+    }
+
+    /**
+     * Removes an order from the building index. Must be called while holding the write lock.
+     *
+     * @param orderId      the ID of the order
+     * @param deliveryInfo the delivery information of the order
+     */
+    private void unIndex(final UUID orderId, final DeliveryInfo deliveryInfo) {
+        final Integer building = buildingKey(deliveryInfo);
+        if (building == null) {
+            return;
+        }
+        final Map<UUID, DeliveryInfo> orders = buildingIndex.get(building);
+        if (orders != null) {
+            orders.remove(orderId);
+            if (orders.isEmpty()) {
+                buildingIndex.remove(building);
             }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the building number used as index key.
+     *
+     * @param deliveryInfo the delivery information
+     * @return the building number, or null if it is not numeric
+     */
+    private static Integer buildingKey(final DeliveryInfo deliveryInfo) {
+        try {
+            return Integer.parseInt(deliveryInfo.buildingNo());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the liveness and lag of the consumer of the delivery queue.
+     *
+     * @return the health of the consumer
+     */
+    public ConsumerHealth consumerHealth() {
+        return consumer.health();
+    }
+
+    /**
+     * Returns the orders the consumer of the delivery queue gave up on.
+     *
+     * @return the dead letters
+     */
+    public List<DeadLetter> deadLetters() {
+        return consumer.deadLetters();
+    }
+
+    /**
+     * Queues a dead-lettered order again, once the cause of its failure has been fixed.
+     *
+     * @param orderId the ID of the order
+     * @return true if the order was dead-lettered and is queued again
+     */
+    public boolean redriveDeadLetter(UUID orderId) {
+        return consumer.redrive(orderId);
+    }
+
+    /**
+     * Stops taking new requests from users.
+     */
+    @Override
+    public void stopIntake() {
+        pipelineStage.stopIntake();
+    }
+
+    /**
+     * Lets the consumer finish the queued completed orders and waits for the requests in flight.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the service is drained, false if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Override
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        return pipelineStage.awaitDrained(timeout);
+    }
+
+    /**
+     * Stops the consumer and the requests in flight and completes the subscriptions to the completed orders.
+     *
+     * @return the IDs of the orders left in the delivery queue or on the delivery board, as they can no longer be
+     * sent for delivery
+     */
+    @Override
+    public List<UUID> stop() {
+        pipelineStage.stop();
+        localDeliveryMap.close();
+        final Set<UUID> leftovers = new LinkedHashSet<>(deliveryQueue);
+        leftovers.addAll(localDeliveryMap.snapshot().keySet());
+        return List.copyOf(leftovers);
+    }
+
+    /**
+     * Shuts down this stage only, draining the delivery queue first. The order and kitchen stages are left
+     * running; use {@link PipelineDrainer#shutdown} to drain the whole pipeline.
+     *
+     * @return the report of the drain
+     */
+    public DrainReport shutdown() {
+        return PipelineDrainer.drain(DEFAULT_DRAIN_TIMEOUT, this);
+    }
+}
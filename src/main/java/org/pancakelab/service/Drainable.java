@@ -0,0 +1,42 @@
+package org.pancakelab.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A stage of the service pipeline which can be drained on shutdown: it stops taking new requests, finishes the
+ * work already handed to it, and only then stops its consumers.
+ */
+public interface Drainable {
+
+    /**
+     * Returns the name of the stage used in the drain report.
+     *
+     * @return the name of the stage
+     */
+    default String stageName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Stops taking new requests from users. Work handed over by the upstream stages is still taken.
+     */
+    void stopIntake();
+
+    /**
+     * Lets the consumers finish the queued work and waits for them and for the requests in flight to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the stage is drained, false if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    boolean awaitDrained(Duration timeout) throws InterruptedException;
+
+    /**
+     * Stops the stage, abandoning any work which is still running.
+     *
+     * @return the IDs of the orders left behind by the stage
+     */
+    List<UUID> stop();
+}
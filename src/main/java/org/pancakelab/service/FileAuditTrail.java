@@ -0,0 +1,262 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.AuditEvent;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the access decisions to rotating local files, off the request path.
+ * A request only appends its decision to a lock-free queue; a daemon thread drains the queue in batches, writes
+ * every batch as tab separated lines with a single flush, and rotates the file once it outgrows its limit, keeping
+ * a fixed number of older files as {@code file.1}, {@code file.2} and so on. The queue is bounded: once it is full,
+ * new decisions are dropped and counted rather than slowing the requests down.
+ * <p>
+ * A line reads {@code instant ALLOW|DENY username resource privilege reason}, with {@code -} for a missing field.
+ */
+public class FileAuditTrail implements AuditTrail, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 65_536;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 5;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(200);
+    public static final String INVALID_LIMIT = "Capacity, batch size, file size and file count must be positive";
+    private static final Logger logger = Logger.getLogger(FileAuditTrail.class.getName());
+    private static final char SEPARATOR = '\t';
+    private static final String MISSING = "-";
+
+    private final Path file;
+    private final int capacity;
+    private final int batchSize;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final long flushIntervalNanos;
+    private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    /**
+     * Constructs a new FileAuditTrail with the default limits.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file cannot be opened
+     */
+    public FileAuditTrail(final Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES,
+                DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructs a new FileAuditTrail.
+     *
+     * @param file          the file to write to
+     * @param capacity      the most decisions waiting to be written
+     * @param batchSize     the most decisions written at once
+     * @param maxFileBytes  the size a file is rotated at
+     * @param maxFiles      the number of rotated files kept
+     * @param flushInterval how long the writer waits when there is nothing to write
+     * @throws IOException if the file cannot be opened
+     */
+    public FileAuditTrail(final Path file, final int capacity, final int batchSize, final long maxFileBytes,
+                          final int maxFiles, final Duration flushInterval) throws IOException {
+        if (capacity <= 0 || batchSize <= 0 || maxFileBytes <= 0 || maxFiles <= 0) {
+            throw new IllegalArgumentException(INVALID_LIMIT);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        open();
+        this.writerThread = new Thread(this::writeLoop, "audit-trail-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a decision to be written, or drops it if the queue is full.
+     *
+     * @param event the decision
+     */
+    @Override
+    public void record(final AuditEvent event) {
+        if (!running || pending.incrementAndGet() > capacity) {
+            if (running) {
+                pending.decrementAndGet();
+            }
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(event);
+    }
+
+    /**
+     * Returns the number of decisions dropped because the queue was full, the trail was closed or a write failed.
+     *
+     * @return the number of dropped decisions
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of decisions written.
+     *
+     * @return the number of written decisions
+     */
+    public long written() {
+        return written.get();
+    }
+
+    /**
+     * Stops taking decisions, writes the queued ones and closes the file.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes batches until the trail is closed, then writes what is left and closes the file.
+     */
+    private void writeLoop() {
+        try {
+            while (running) {
+                if (!writeBatch()) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+            }
+            while (writeBatch()) {
+                // write what was queued before the trail was closed
+            }
+        } finally {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close the audit trail", e);
+            }
+        }
+    }
+
+    /**
+     * Writes up to one batch of decisions, rotating the file first if the batch would outgrow it.
+     *
+     * @return true if there was anything to write
+     */
+    private boolean writeBatch() {
+        final StringBuilder lines = new StringBuilder();
+        int count = 0;
+        AuditEvent event;
+        while (count < batchSize && (event = queue.poll()) != null) {
+            appendLine(lines, event);
+            count++;
+        }
+        if (count == 0) {
+            return false;
+        }
+        pending.addAndGet(-count);
+        try {
+            final byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+            if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+                try {
+                    rotate();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Could not rotate the audit trail", e);
+                }
+            }
+            if (writer == null) {
+                open();
+            }
+            writer.write(lines.toString());
+            writer.flush();
+            fileBytes += bytes.length;
+            written.addAndGet(count);
+        } catch (IOException e) {
+            dropped.addAndGet(count);
+            logger.log(Level.WARNING, "Could not write the audit trail", e);
+        }
+        return true;
+    }
+
+    private static void appendLine(final StringBuilder lines, final AuditEvent event) {
+        lines.append(event.at()).append(SEPARATOR)
+                .append(event.allowed() ? "ALLOW" : "DENY").append(SEPARATOR)
+                .append(field(event.username())).append(SEPARATOR)
+                .append(field(event.resource())).append(SEPARATOR)
+                .append(event.privilege() == null ? MISSING : event.privilege().name()).append(SEPARATOR)
+                .append(field(event.reason())).append('\n');
+    }
+
+    /**
+     * Returns a field with the separators and line breaks replaced, so a field cannot forge a line.
+     *
+     * @param value the value of the field
+     * @return the field
+     */
+    private static String field(final String value) {
+        if (value == null || value.isEmpty()) {
+            return MISSING;
+        }
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Shifts the rotated files by one, dropping the oldest, and starts a new file. The file is opened again even if
+     * the files cannot be moved, so that the trail keeps writing to the current file until a rotation succeeds.
+     *
+     * @throws IOException if the files cannot be moved or the file cannot be opened again
+     */
+    private void rotate() throws IOException {
+        writer.close();
+        writer = null;
+        try {
+            Files.deleteIfExists(rotated(maxFiles));
+            for (int index = maxFiles - 1; index >= 1; index--) {
+                if (Files.exists(rotated(index))) {
+                    Files.move(rotated(index), rotated(index + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            open();
+        }
+    }
+
+    private Path rotated(final int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+}
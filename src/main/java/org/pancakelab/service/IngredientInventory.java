@@ -0,0 +1,124 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.PancakeServiceException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the stock of the ingredients, counted in pancake portions, and reserves the ingredients of the pancakes
+ * when they are ordered, so that an order which cannot be cooked is rejected up front instead of stalling the chefs.
+ * Every ingredient has its own counter which is only ever changed with compare-and-set, hence reservations of
+ * different ingredients never contend and no reservation takes a lock.
+ * Ingredients which were never stocked are not tracked and are always available.
+ */
+public class IngredientInventory {
+
+    public static final String INGREDIENT_OUT_OF_STOCK = "Not enough %s in stock";
+    public static final String INVALID_QUANTITY = "Quantity must be positive";
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final ConcurrentMap<String, AtomicLong> stock = new ConcurrentHashMap<>();
+
+    /**
+     * Adds portions of an ingredient to the stock, starting to track the ingredient if it was not tracked yet.
+     *
+     * @param ingredient the name of the ingredient
+     * @param portions   the number of portions to add
+     */
+    public void restock(final String ingredient, final long portions) {
+        if (portions <= 0) {
+            throw new IllegalArgumentException(INVALID_QUANTITY);
+        }
+        stock.computeIfAbsent(ingredient, name -> new AtomicLong()).addAndGet(portions);
+    }
+
+    /**
+     * Returns the portions of an ingredient that are neither reserved nor used.
+     *
+     * @param ingredient the name of the ingredient
+     * @return the available portions, or {@link #UNLIMITED} if the ingredient is not tracked
+     */
+    public long available(final String ingredient) {
+        final AtomicLong portions = stock.get(ingredient);
+        return portions == null ? UNLIMITED : portions.get();
+    }
+
+    /**
+     * Reserves the ingredients of the pancakes, all or nothing. The ingredients are taken one counter at a time;
+     * when one runs short, the ones already taken are given back, so a concurrent reservation may briefly see
+     * them as taken and be rejected as well.
+     *
+     * @param pancakes the pancakes and their quantities
+     * @throws PancakeServiceException if an ingredient is not available in the required quantity
+     */
+    public void reserve(final Map<PancakeRecipe, Integer> pancakes) throws PancakeServiceException {
+        final Map<String, Long> required = requiredPortions(pancakes);
+        final List<Map.Entry<String, Long>> reserved = new ArrayList<>(required.size());
+        for (Map.Entry<String, Long> ingredient : required.entrySet()) {
+            final AtomicLong portions = stock.get(ingredient.getKey());
+            if (portions == null) {
+                continue;
+            }
+            if (!take(portions, ingredient.getValue())) {
+                reserved.forEach(taken -> stock.get(taken.getKey()).addAndGet(taken.getValue()));
+                throw new PancakeServiceException(INGREDIENT_OUT_OF_STOCK.formatted(ingredient.getKey()));
+            }
+            reserved.add(ingredient);
+        }
+    }
+
+    /**
+     * Gives back the ingredients of pancakes which were reserved but will not be cooked.
+     *
+     * @param pancakes the pancakes and their quantities
+     */
+    public void release(final Map<PancakeRecipe, Integer> pancakes) {
+        requiredPortions(pancakes).forEach((ingredient, portions) -> {
+            final AtomicLong available = stock.get(ingredient);
+            if (available != null) {
+                available.addAndGet(portions);
+            }
+        });
+    }
+
+    /**
+     * Sums up the portions of every ingredient needed for the pancakes.
+     *
+     * @param pancakes the pancakes and their quantities
+     * @return the portions per ingredient
+     */
+    private static Map<String, Long> requiredPortions(final Map<PancakeRecipe, Integer> pancakes) {
+        final Map<String, Long> required = new HashMap<>();
+        pancakes.forEach((recipe, quantity) -> {
+            if (quantity > 0) {
+                recipe.getIngredients().forEach(ingredient -> required.merge(ingredient, (long) quantity, Long::sum));
+            }
+        });
+        return required;
+    }
+
+    /**
+     * Takes portions from a counter unless fewer portions are left.
+     *
+     * @param available the counter of the available portions
+     * @param portions  the portions to take
+     * @return true if the portions were taken
+     */
+    private static boolean take(final AtomicLong available, final long portions) {
+        long current = available.get();
+        while (current >= portions) {
+            if (available.compareAndSet(current, current - portions)) {
+                return true;
+            }
+            current = available.get();
+        }
+        return false;
+    }
+}
@@ -1,14 +1,23 @@
 package org.pancakelab.service;
 
 import org.pancakelab.model.*;
+import org.pancakelab.util.NotificationDispatcher;
 import org.pancakelab.util.PancakeUtils;
+import org.pancakelab.util.RecipeCsvFormat;
+import org.pancakelab.util.VersionedBoard;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Implementation of the KitchenService interface.
@@ -16,31 +25,41 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * updating their status, and notifying users upon completion.
  * It uses a separate thread to update the local order map and manages order and delivery queues.
  */
-public class KitchenServiceImpl implements ChefService, RecipeService {
+public class KitchenServiceImpl implements ChefService, RecipeService, Drainable {
 
     public static final String RECIPE_ALREADY_EXISTS = "Recipe already exists.";
     public static final String RECIPE_DOES_NOT_EXIST = "Recipe does not exist.";
     public static final String RECIPE_CANNOT_BE_NULL = "Recipe cannot be null.";
+    public static final String BATCH_CANNOT_BE_NULL = "Batch cannot be null.";
+    public static final String FILTER_CANNOT_BE_NULL = "Filter cannot be null.";
+    public static final String RECIPE_IMPORT_FAILED = "Recipes could not be imported.";
+    public static final String RECIPE_EXPORT_FAILED = "Recipes could not be exported.";
+    public static final int DEFAULT_GRIDDLE_CAPACITY = 8;
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
 
     private final ConcurrentMap<UUID, OrderDetails> ordersRepository;
     private final ConcurrentMap<UUID, OrderStatus> orderStatusRepository;
-    private final ConcurrentSkipListSet<PancakeRecipe> pancakeRecipesRepository;
-    private final ExecutorService executorService;
+    private final RecipeCatalog recipeCatalog;
+    private final PipelineStage pipelineStage;
+    private SupervisedConsumer consumer;
     private final BlockingDeque<UUID> orderQueue;
     private final BlockingDeque<UUID> deliveryQueue;
-    private final Map<UUID, Map<PancakeRecipe, Integer>> localOrderMap;
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-    private final ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
-    private final ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+    private final VersionedBoard<UUID, Map<PancakeRecipe, Integer>> localOrderMap;
+    private final CookingPlanner cookingPlanner;
+    private final ChefWorkScheduler chefWorkScheduler;
+    private final KitchenThroughputModel throughputModel;
+    private final NotificationDispatcher notificationDispatcher;
 
     /**
      * Constructs a new KitchenServiceImpl.
      *
-     * @param ordersRepository      the map of order details
-     * @param orderStatusRepository the map of order statuses
-     * @param orderQueue            the queue of orders to be processed
-     * @param deliveryQueue         the queue of orders ready for delivery
-     * @param internalThreads       the number of internal threads to use
+     * @param ordersRepository         the map of order details
+     * @param orderStatusRepository    the map of order statuses
+     * @param pancakeRecipesRepository the recipes of the kitchen, read when the kitchen is first used and kept up to
+     *                                 date with its changes
+     * @param orderQueue               the queue of orders to be processed
+     * @param deliveryQueue            the queue of orders ready for delivery
+     * @param internalThreads          the number of internal threads to use
      */
     public KitchenServiceImpl(
             final ConcurrentMap<UUID, OrderDetails> ordersRepository,
@@ -49,32 +68,133 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
             final BlockingDeque<UUID> orderQueue,
             final BlockingDeque<UUID> deliveryQueue,
             final Integer internalThreads
+    ) {
+        this(ordersRepository, orderStatusRepository, pancakeRecipesRepository, orderQueue, deliveryQueue,
+                internalThreads, DEFAULT_GRIDDLE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new KitchenServiceImpl with a custom griddle capacity.
+     *
+     * @param ordersRepository         the map of order details
+     * @param orderStatusRepository    the map of order statuses
+     * @param pancakeRecipesRepository the recipes of the kitchen, read when the kitchen is first used and kept up to
+     *                                 date with its changes
+     * @param orderQueue               the queue of orders to be processed
+     * @param deliveryQueue            the queue of orders ready for delivery
+     * @param internalThreads          the number of internal threads to use
+     * @param griddleCapacity          the maximum number of pancakes cooked in one batch
+     */
+    public KitchenServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final ConcurrentSkipListSet<PancakeRecipe> pancakeRecipesRepository,
+            final BlockingDeque<UUID> orderQueue,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final int griddleCapacity
+    ) {
+        this(ordersRepository, orderStatusRepository, pancakeRecipesRepository, orderQueue, deliveryQueue,
+                internalThreads, griddleCapacity, new KitchenThroughputModel());
+    }
+
+    /**
+     * Constructs a new KitchenServiceImpl which reports the progress of the orders to a given throughput model.
+     *
+     * @param ordersRepository         the map of order details
+     * @param orderStatusRepository    the map of order statuses
+     * @param pancakeRecipesRepository the recipes of the kitchen, read when the kitchen is first used and kept up to
+     *                                 date with its changes
+     * @param orderQueue               the queue of orders to be processed
+     * @param deliveryQueue            the queue of orders ready for delivery
+     * @param internalThreads          the number of internal threads to use
+     * @param throughputModel          the model learning the cook times of the kitchen, shared with the order service
+     */
+    public KitchenServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final ConcurrentSkipListSet<PancakeRecipe> pancakeRecipesRepository,
+            final BlockingDeque<UUID> orderQueue,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final KitchenThroughputModel throughputModel
+    ) {
+        this(ordersRepository, orderStatusRepository, pancakeRecipesRepository, orderQueue, deliveryQueue,
+                internalThreads, DEFAULT_GRIDDLE_CAPACITY, throughputModel);
+    }
+
+    /**
+     * Constructs a new KitchenServiceImpl with a custom griddle capacity, which reports the progress of the orders
+     * to a given throughput model.
+     *
+     * @param ordersRepository         the map of order details
+     * @param orderStatusRepository    the map of order statuses
+     * @param pancakeRecipesRepository the recipes of the kitchen, read when the kitchen is first used and kept up to
+     *                                 date with its changes
+     * @param orderQueue               the queue of orders to be processed
+     * @param deliveryQueue            the queue of orders ready for delivery
+     * @param internalThreads          the number of internal threads to use
+     * @param griddleCapacity          the maximum number of pancakes cooked in one batch
+     * @param throughputModel          the model learning the cook times of the kitchen, shared with the order service
+     */
+    public KitchenServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final ConcurrentSkipListSet<PancakeRecipe> pancakeRecipesRepository,
+            final BlockingDeque<UUID> orderQueue,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final int griddleCapacity,
+            final KitchenThroughputModel throughputModel
+    ) {
+        this(ordersRepository, orderStatusRepository, pancakeRecipesRepository, orderQueue, deliveryQueue,
+                internalThreads, griddleCapacity, throughputModel, PancakeUtils.notifications());
+    }
+
+    /**
+     * Constructs a new KitchenServiceImpl which notifies the users through its own dispatcher.
+     *
+     * @param ordersRepository         the map of order details
+     * @param orderStatusRepository    the map of order statuses
+     * @param pancakeRecipesRepository the recipes of the kitchen, read when the kitchen is first used and kept up to
+     *                                 date with its changes
+     * @param orderQueue               the queue of orders to be processed
+     * @param deliveryQueue            the queue of orders ready for delivery
+     * @param internalThreads          the number of internal threads to use
+     * @param griddleCapacity          the maximum number of pancakes cooked in one batch
+     * @param throughputModel          the model learning the cook times of the kitchen, shared with the order service
+     * @param notificationDispatcher   the dispatcher of the user notifications
+     */
+    public KitchenServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final ConcurrentSkipListSet<PancakeRecipe> pancakeRecipesRepository,
+            final BlockingDeque<UUID> orderQueue,
+            final BlockingDeque<UUID> deliveryQueue,
+            final Integer internalThreads,
+            final int griddleCapacity,
+            final KitchenThroughputModel throughputModel,
+            final NotificationDispatcher notificationDispatcher
     ) {
         this.ordersRepository = ordersRepository;
         this.orderStatusRepository = orderStatusRepository;
-        this.pancakeRecipesRepository = pancakeRecipesRepository;
+        this.recipeCatalog = RecipeCatalog.backedBy(pancakeRecipesRepository);
         this.orderQueue = orderQueue;
         this.deliveryQueue = deliveryQueue;
-        this.executorService = Executors.newFixedThreadPool(internalThreads);
-        this.localOrderMap = new ConcurrentHashMap<>();
+        this.pipelineStage = new PipelineStage(internalThreads);
+        this.localOrderMap = new VersionedBoard<>();
+        this.cookingPlanner = new CookingPlanner(griddleCapacity);
+        this.chefWorkScheduler = new ChefWorkScheduler(orderStatusRepository);
+        this.throughputModel = throughputModel;
+        this.notificationDispatcher = notificationDispatcher;
         startOrderUpdateThread();
     }
 
     /**
-     * Starts a thread to update the local order map with orders from the order queue.
+     * Starts consuming the order queue to update the local order map.
      */
     private void startOrderUpdateThread() {
-        executorService.submit(() -> {
-            while (true) {
-                try {
-                    UUID orderId = orderQueue.take();
-                    updateLocalOrderMap(orderId);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-        });
+        consumer = pipelineStage.consume(orderQueue, this::updateLocalOrderMap);
     }
 
     /**
@@ -85,34 +205,86 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      */
     @Override
     public Map<UUID, Map<PancakeRecipe, Integer>> viewOrders(User user) {
-        readLock.lock();
-        try {
-            return new ConcurrentHashMap<>(localOrderMap);
-        } finally {
-            readLock.unlock();
-        }
+        return localOrderMap.snapshot();
+    }
+
+    /**
+     * Allows the user to view the current orders page by page, in the order in which they arrived at the kitchen.
+     *
+     * @param user     the user requesting to view orders
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of orders of the page
+     * @return the page of order IDs to pancake recipes and their quantities
+     * @throws ValidationException if the cursor or the page size is invalid
+     */
+    @Override
+    public Page<UUID, Map<PancakeRecipe, Integer>> viewOrders(User user, String cursor, int pageSize)
+            throws ValidationException {
+        return localOrderMap.page(cursor, pageSize);
+    }
+
+    /**
+     * Allows the user to fetch only the changes of the orders since the version the user has already seen.
+     *
+     * @param user         the user requesting the changes
+     * @param sinceVersion the version of the orders the user has already seen, or 0 for all orders
+     * @return the changes since the version, or all orders if the version is too old
+     */
+    @Override
+    public BoardChanges<UUID, Map<PancakeRecipe, Integer>> viewOrderChanges(User user, long sinceVersion) {
+        return localOrderMap.changesSince(sinceVersion);
+    }
+
+    /**
+     * Subscribes the user to the changes of the orders, which are pushed as the subscriber requests them.
+     *
+     * @param user       the user subscribing to the orders
+     * @param subscriber the subscriber receiving the changes
+     */
+    @Override
+    public void subscribeOrders(User user, Flow.Subscriber<? super BoardEvent<UUID, Map<PancakeRecipe, Integer>>> subscriber) {
+        localOrderMap.subscribe(subscriber);
     }
 
     /**
      * Allows the user to accept an order. The order status is updated asynchronously.
+     * Only a completed order which no other chef has accepted yet can be accepted.
      *
      * @param user    the user accepting the order
      * @param orderId the ID of the order to be accepted
+     * @throws PancakeServiceException if the service is shutting down
      */
     @Override
-    public void acceptOrder(User user, UUID orderId) {
-        CompletableFuture.runAsync(() -> {
+    public void acceptOrder(User user, UUID orderId) throws PancakeServiceException {
+        pipelineStage.runAsync(() -> {
             OrderDetails orderDetails;
             synchronized (ordersRepository) {
                 orderDetails = ordersRepository.get(orderId);
             }
-            if (orderDetails != null) {
-                synchronized (orderStatusRepository) {
-                    orderStatusRepository.put(orderId, OrderStatus.IN_PROGRESS);
-                }
-                PancakeUtils.notifyUser(user, OrderStatus.IN_PROGRESS);
+            if (orderDetails != null && chefWorkScheduler.claim(orderId)) {
+                throughputModel.orderStarted(orderId);
+                notificationDispatcher.notifyUser(user, orderId, OrderStatus.IN_PROGRESS);
             }
-        }, executorService);
+        });
+    }
+
+    /**
+     * Claims the next order for the user from the user's own work queue, stealing from other chefs when idle.
+     *
+     * @param user the chef claiming an order
+     * @return the ID of the claimed order, or empty if there is no order waiting
+     * @throws PancakeServiceException if the service is shutting down
+     */
+    @Override
+    public Optional<UUID> claimNextOrder(User user) throws PancakeServiceException {
+        pipelineStage.ensureAccepting();
+        final Optional<UUID> orderId = chefWorkScheduler.claimNext(user.getUsername());
+        throughputModel.setActiveChefs(chefWorkScheduler.chefCount());
+        orderId.ifPresent(claimed -> {
+            throughputModel.orderStarted(claimed);
+            notificationDispatcher.notifyUser(user, claimed, OrderStatus.IN_PROGRESS);
+        });
+        return orderId;
     }
 
     /**
@@ -120,10 +292,11 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      *
      * @param user    the user to be notified
      * @param orderId the ID of the order that is complete
+     * @throws PancakeServiceException if the service is shutting down
      */
     @Override
-    public void notifyOrderCompletion(User user, UUID orderId) {
-        CompletableFuture.runAsync(() -> {
+    public void notifyOrderCompletion(User user, UUID orderId) throws PancakeServiceException {
+        pipelineStage.runAsync(() -> {
             OrderDetails orderDetails;
             synchronized (ordersRepository) {
                 orderDetails = ordersRepository.get(orderId);
@@ -132,18 +305,42 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
                 synchronized (orderStatusRepository) {
                     orderStatusRepository.put(orderId, OrderStatus.READY_FOR_DELIVERY);
                 }
-                PancakeUtils.notifyUser(user, OrderStatus.READY_FOR_DELIVERY);
+                notificationDispatcher.notifyUser(user, orderId, OrderStatus.READY_FOR_DELIVERY);
                 synchronized (deliveryQueue) {
                     deliveryQueue.add(orderId);
                 }
-                writeLock.lock();
-                try {
-                    localOrderMap.remove(orderId);
-                } finally {
-                    writeLock.unlock();
-                }
+                localOrderMap.remove(orderId);
+                cookingPlanner.removeOrder(orderId);
+                throughputModel.orderCooked(orderId);
             }
-        }, executorService);
+        });
+    }
+
+    /**
+     * Plans griddle batches over all open orders, grouping the same recipe across orders.
+     *
+     * @param user the user requesting the plan
+     * @return the griddle batches to cook
+     */
+    @Override
+    public List<GriddleBatch> planBatches(User user) {
+        return cookingPlanner.planBatches();
+    }
+
+    /**
+     * Records a cooked griddle batch against the orders it was planned for.
+     *
+     * @param user  the user who cooked the batch
+     * @param batch the cooked batch
+     * @return the IDs of the orders whose pancakes are now all cooked
+     * @throws PancakeServiceException if the batch is null
+     */
+    @Override
+    public Set<UUID> completeBatch(User user, GriddleBatch batch) throws PancakeServiceException {
+        if (batch == null) {
+            throw new PancakeServiceException(BATCH_CANNOT_BE_NULL);
+        }
+        return cookingPlanner.completeBatch(batch);
     }
 
 
@@ -158,13 +355,10 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
             orderDetails = ordersRepository.get(orderId);
         }
         if (orderDetails != null) {
-            final Map<PancakeRecipe, Integer> pancakeRecipes = new ConcurrentHashMap<>(orderDetails.getPancakes());
-            writeLock.lock();
-            try {
-                localOrderMap.put(orderId, pancakeRecipes);
-            } finally {
-                writeLock.unlock();
-            }
+            final Map<PancakeRecipe, Integer> pancakeRecipes = Map.copyOf(orderDetails.getPancakes());
+            localOrderMap.put(orderId, pancakeRecipes);
+            cookingPlanner.addOrder(orderId, pancakeRecipes);
+            chefWorkScheduler.submit(orderId);
         }
     }
 
@@ -177,9 +371,9 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      * @throws PancakeServiceException if the recipe already exists or is null
      */
     @Override
-    public synchronized void addRecipe(User user, PancakeRecipe recipe) throws PancakeServiceException {
+    public void addRecipe(User user, PancakeRecipe recipe) throws PancakeServiceException {
         validate(recipe);
-        if (!pancakeRecipesRepository.add(recipe)) {
+        if (!recipeCatalog.add(recipe)) {
             throw new PancakeServiceException(RECIPE_ALREADY_EXISTS);
         }
     }
@@ -192,8 +386,8 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      * @throws PancakeServiceException if the recipe does not exist
      */
     @Override
-    public synchronized void removeRecipe(User user, String recipe) throws PancakeServiceException {
-        if (!pancakeRecipesRepository.removeIf(r -> r.getName().equals(recipe))) {
+    public void removeRecipe(User user, String recipe) throws PancakeServiceException {
+        if (recipeCatalog.remove(recipe) == null) {
             throw new PancakeServiceException(RECIPE_DOES_NOT_EXIST);
         }
     }
@@ -207,10 +401,9 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      * @throws PancakeServiceException if the recipe is null
      */
     @Override
-    public synchronized void updateRecipe(User user, String name, PancakeRecipe recipe) throws PancakeServiceException {
+    public void updateRecipe(User user, String name, PancakeRecipe recipe) throws PancakeServiceException {
         validate(recipe);
-        pancakeRecipesRepository.removeIf(r -> r.getName().equals(name));
-        pancakeRecipesRepository.add(recipe);
+        recipeCatalog.replace(name, recipe);
     }
 
     /**
@@ -222,20 +415,75 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
      */
     @Override
     public void exits(User user, PancakeRecipe recipe) throws PancakeServiceException {
-        if (!pancakeRecipesRepository.contains(recipe)) {
+        if (recipe == null || !recipeCatalog.contains(recipe)) {
             throw new PancakeServiceException(RECIPE_DOES_NOT_EXIST);
         }
     }
 
     /**
-     * Retrieves all pancake recipes from the repository.
+     * Retrieves all pancake recipes from the current catalog snapshot, without copying them.
      *
      * @param user the user requesting the recipes
-     * @return a set of all pancake recipes
+     * @return an immutable set of all pancake recipes
      */
     @Override
     public Set<PancakeRecipe> getRecipes(User user) {
-        return new HashSet<>(pancakeRecipesRepository);
+        return recipeCatalog.recipes();
+    }
+
+    /**
+     * Finds the pancake recipes with all included and none of the excluded ingredients of a filter, using the
+     * bitmap index of the current catalog snapshot.
+     *
+     * @param user   the user searching the recipes
+     * @param filter the ingredient filter
+     * @return the matching recipes, ordered by name
+     * @throws PancakeServiceException if the filter is null
+     */
+    @Override
+    public List<PancakeRecipe> findRecipes(User user, RecipeFilter filter) throws PancakeServiceException {
+        if (filter == null) {
+            throw new PancakeServiceException(FILTER_CANNOT_BE_NULL);
+        }
+        return recipeCatalog.find(filter);
+    }
+
+    /**
+     * Imports pancake recipes from CSV in the format of {@link RecipeCsvFormat}, adding new recipes and replacing
+     * the recipes with the same names. The recipes are parsed as they are read and published together as a single
+     * catalog version once the whole file is valid, so a failed import leaves the catalog untouched.
+     *
+     * @param user the user importing the recipes
+     * @param csv  the source of the CSV
+     * @return the number of imported recipes
+     * @throws PancakeServiceException if a line is not a valid recipe or the source cannot be read
+     */
+    @Override
+    public int importRecipes(User user, Reader csv) throws PancakeServiceException {
+        final List<PancakeRecipe> imported = new ArrayList<>();
+        try {
+            RecipeCsvFormat.read(csv, imported::add);
+        } catch (IOException e) {
+            throw new PancakeServiceException(RECIPE_IMPORT_FAILED, e);
+        }
+        recipeCatalog.putAll(imported);
+        return imported.size();
+    }
+
+    /**
+     * Exports the pancake recipes of the current catalog snapshot as CSV in the format of {@link RecipeCsvFormat}.
+     *
+     * @param user the user exporting the recipes
+     * @param csv  the target of the CSV
+     * @throws PancakeServiceException if the target cannot be written
+     */
+    @Override
+    public void exportRecipes(User user, Writer csv) throws PancakeServiceException {
+        try {
+            RecipeCsvFormat.write(recipeCatalog.recipes(), csv);
+        } catch (IOException e) {
+            throw new PancakeServiceException(RECIPE_EXPORT_FAILED, e);
+        }
     }
 
     /**
@@ -251,17 +499,85 @@ public class KitchenServiceImpl implements ChefService, RecipeService {
     }
 
     /**
-     * Shuts down the executor service, waiting for tasks to complete or forcing shutdown if necessary.
+     * Returns the model learning the cook times of the kitchen, so that an order service sending its orders here
+     * estimates from the same model.
+     *
+     * @return the throughput model
      */
-    public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+    KitchenThroughputModel throughputModel() {
+        return throughputModel;
+    }
+
+    /**
+     * Returns the liveness and lag of the consumer of the order queue.
+     *
+     * @return the health of the consumer
+     */
+    public ConsumerHealth consumerHealth() {
+        return consumer.health();
+    }
+
+    /**
+     * Returns the orders the consumer of the order queue gave up on.
+     *
+     * @return the dead letters
+     */
+    public List<DeadLetter> deadLetters() {
+        return consumer.deadLetters();
+    }
+
+    /**
+     * Queues a dead-lettered order again, once the cause of its failure has been fixed.
+     *
+     * @param orderId the ID of the order
+     * @return true if the order was dead-lettered and is queued again
+     */
+    public boolean redriveDeadLetter(UUID orderId) {
+        return consumer.redrive(orderId);
+    }
+
+    /**
+     * Stops taking new requests from users.
+     */
+    @Override
+    public void stopIntake() {
+        pipelineStage.stopIntake();
+    }
+
+    /**
+     * Lets the consumer finish the queued orders and waits for the requests in flight.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the service is drained, false if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Override
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        return pipelineStage.awaitDrained(timeout);
+    }
+
+    /**
+     * Stops the consumer and the requests in flight and completes the subscriptions to the orders.
+     *
+     * @return the IDs of the orders left in the order queue or on the kitchen board, as chefs can no longer
+     * complete them
+     */
+    @Override
+    public List<UUID> stop() {
+        pipelineStage.stop();
+        localOrderMap.close();
+        final Set<UUID> leftovers = new LinkedHashSet<>(orderQueue);
+        leftovers.addAll(localOrderMap.snapshot().keySet());
+        return List.copyOf(leftovers);
+    }
+
+    /**
+     * Shuts down this stage only, draining the order queue first. The order and delivery stages are left
+     * running; use {@link PipelineDrainer#shutdown} to drain the whole pipeline.
+     *
+     * @return the report of the drain
+     */
+    public DrainReport shutdown() {
+        return PipelineDrainer.drain(DEFAULT_DRAIN_TIMEOUT, this);
     }
-}
\ No newline at end of file
+}
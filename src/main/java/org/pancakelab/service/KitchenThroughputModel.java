@@ -0,0 +1,191 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.PancakeRecipe;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Models the throughput of the kitchen to estimate when an order will be ready.
+ * The cook time per pancake of every recipe is learned from the orders the chefs finish, as an exponentially
+ * weighted moving average. The work of every order entering the kitchen is added to a running total, and the
+ * order remembers the total including its own work; the work of every finished order is added to a second
+ * running total. The work still ahead of an order is therefore the difference of the two, and the estimate is
+ * computed in constant time, however long the queue is.
+ */
+public class KitchenThroughputModel {
+
+    public static final Duration DEFAULT_COOK_TIME = Duration.ofMinutes(2);
+    public static final double DEFAULT_SMOOTHING = 0.2;
+    public static final String INVALID_COOK_TIME = "Cook time must be positive";
+    public static final String INVALID_SMOOTHING = "Smoothing must be between 0 exclusive and 1 inclusive";
+
+    private final double initialCookTimeNanos;
+    private final double smoothing;
+    private final LongSupplier nanoClock;
+    private final Map<PancakeRecipe, Double> cookTimeNanos = new HashMap<>();
+    private final Map<UUID, QueuedOrder> queuedOrders = new HashMap<>();
+    private double enqueuedWorkNanos;
+    private double completedWorkNanos;
+    private int activeChefs = 1;
+
+    /**
+     * Constructs a new KitchenThroughputModel with the default initial cook time and smoothing.
+     */
+    public KitchenThroughputModel() {
+        this(DEFAULT_COOK_TIME, DEFAULT_SMOOTHING);
+    }
+
+    /**
+     * Constructs a new KitchenThroughputModel.
+     *
+     * @param initialCookTime the cook time per pancake assumed for a recipe before any of it was cooked
+     * @param smoothing       the weight of a new observation in the moving average of the cook time
+     */
+    public KitchenThroughputModel(final Duration initialCookTime, final double smoothing) {
+        this(initialCookTime, smoothing, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new KitchenThroughputModel with a custom clock.
+     *
+     * @param initialCookTime the cook time per pancake assumed for a recipe before any of it was cooked
+     * @param smoothing       the weight of a new observation in the moving average of the cook time
+     * @param nanoClock       the clock measuring the cook times, in nanoseconds
+     */
+    KitchenThroughputModel(final Duration initialCookTime, final double smoothing, final LongSupplier nanoClock) {
+        if (initialCookTime == null || initialCookTime.isNegative() || initialCookTime.isZero()) {
+            throw new IllegalArgumentException(INVALID_COOK_TIME);
+        }
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException(INVALID_SMOOTHING);
+        }
+        this.initialCookTimeNanos = initialCookTime.toNanos();
+        this.smoothing = smoothing;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records an order entering the kitchen queue. Recording an order which is already queued has no effect.
+     *
+     * @param orderId  the ID of the order
+     * @param pancakes the pancakes of the order and their quantities
+     */
+    public synchronized void orderQueued(final UUID orderId, final Map<PancakeRecipe, Integer> pancakes) {
+        if (queuedOrders.containsKey(orderId)) {
+            return;
+        }
+        double workNanos = 0;
+        for (Map.Entry<PancakeRecipe, Integer> item : pancakes.entrySet()) {
+            workNanos += cookTimeOf(item.getKey()) * Math.max(0, item.getValue());
+        }
+        enqueuedWorkNanos += workNanos;
+        queuedOrders.put(orderId, new QueuedOrder(Map.copyOf(pancakes), workNanos, enqueuedWorkNanos));
+    }
+
+    /**
+     * Records a chef starting to cook an order.
+     *
+     * @param orderId the ID of the order
+     */
+    public synchronized void orderStarted(final UUID orderId) {
+        final QueuedOrder order = queuedOrders.get(orderId);
+        if (order != null && order.startedAtNanos == null) {
+            order.startedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * Records an order leaving the kitchen. If the order was started, its cook time is shared among its recipes
+     * in proportion to their expected work and folded into their moving averages.
+     *
+     * @param orderId the ID of the order
+     */
+    public synchronized void orderCooked(final UUID orderId) {
+        final QueuedOrder order = queuedOrders.remove(orderId);
+        if (order == null) {
+            return;
+        }
+        completedWorkNanos += order.workNanos;
+        if (order.startedAtNanos == null || order.workNanos <= 0) {
+            return;
+        }
+        final double elapsedNanos = nanoClock.getAsLong() - order.startedAtNanos;
+        order.pancakes.forEach((recipe, quantity) -> {
+            if (quantity > 0) {
+                final double current = cookTimeOf(recipe);
+                final double observed = elapsedNanos * current / order.workNanos;
+                cookTimeNanos.put(recipe, smoothing * observed + (1 - smoothing) * current);
+            }
+        });
+    }
+
+    /**
+     * Updates the number of chefs sharing the work.
+     *
+     * @param chefs the number of active chefs
+     */
+    public synchronized void setActiveChefs(final int chefs) {
+        this.activeChefs = Math.max(1, chefs);
+    }
+
+    /**
+     * Estimates how long it takes until an order is ready, assuming the active chefs share the queued work
+     * in arrival order.
+     *
+     * @param orderId the ID of the order
+     * @return the estimated time until the order is ready, or empty if the order is not in the kitchen
+     */
+    public synchronized Optional<Duration> estimatedWait(final UUID orderId) {
+        final QueuedOrder order = queuedOrders.get(orderId);
+        if (order == null) {
+            return Optional.empty();
+        }
+        final double remainingNanos = Math.max(0, order.workUntilDoneNanos - completedWorkNanos);
+        return Optional.of(Duration.ofNanos((long) (remainingNanos / activeChefs)));
+    }
+
+    /**
+     * Returns the learned cook time per pancake of a recipe.
+     *
+     * @param recipe the recipe
+     * @return the cook time per pancake
+     */
+    public synchronized Duration cookTime(final PancakeRecipe recipe) {
+        return Duration.ofNanos((long) cookTimeOf(recipe));
+    }
+
+    /**
+     * Returns the number of orders in the kitchen.
+     *
+     * @return the number of queued or cooking orders
+     */
+    public synchronized int queueDepth() {
+        return queuedOrders.size();
+    }
+
+    private double cookTimeOf(final PancakeRecipe recipe) {
+        return cookTimeNanos.getOrDefault(recipe, initialCookTimeNanos);
+    }
+
+    /**
+     * An order in the kitchen, with its expected work and the running total of the work up to and including it.
+     */
+    private static final class QueuedOrder {
+        private final Map<PancakeRecipe, Integer> pancakes;
+        private final double workNanos;
+        private final double workUntilDoneNanos;
+        private Long startedAtNanos;
+
+        private QueuedOrder(final Map<PancakeRecipe, Integer> pancakes, final double workNanos,
+                            final double workUntilDoneNanos) {
+            this.pancakes = pancakes;
+            this.workNanos = workNanos;
+            this.workUntilDoneNanos = workUntilDoneNanos;
+        }
+    }
+}
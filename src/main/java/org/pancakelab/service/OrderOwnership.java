@@ -0,0 +1,18 @@
+package org.pancakelab.service;
+
+import java.util.UUID;
+
+/**
+ * Looks up the owners of the orders, so that the order access can be authorized. It is kept off the public
+ * OrderService interface, as it is not authorized itself.
+ */
+interface OrderOwnership {
+
+    /**
+     * Returns the owner of an order.
+     *
+     * @param orderId the ID of the order
+     * @return the name of the owner, or null if the order is unknown
+     */
+    String ownerOf(UUID orderId);
+}
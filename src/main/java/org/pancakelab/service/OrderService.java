@@ -2,6 +2,7 @@ package org.pancakelab.service;
 
 import org.pancakelab.model.*;
 
+import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
 
@@ -12,4 +13,5 @@ public interface OrderService {
     void cancel(User user, UUID orderId) throws PancakeServiceException;
     Map<PancakeRecipe, Integer> orderSummary(User user, UUID orderId) throws PancakeServiceException;
     OrderStatus status(User user, UUID orderId) throws PancakeServiceException;
+    Instant estimatedReadyAt(User user, UUID orderId) throws PancakeServiceException;
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package org.pancakelab.service;
 
 import org.pancakelab.model.*;
 import org.pancakelab.util.DeliveryInformationValidator;
+import org.pancakelab.util.NotificationDispatcher;
 import org.pancakelab.util.PancakeUtils;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -16,7 +19,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * It uses a separate thread to process orders and manages order and delivery queues.
  * The service also validates delivery information and ensures that users do not have multiple ongoing orders.
  */
-public class OrderServiceImpl implements OrderService {
+public class OrderServiceImpl implements OrderService, OrderOwnership, Drainable {
 
     public static final String ORDER_NOT_FOUND = "Order not found";
     public static final String ORDER_CANNOT_BE_PROCESSED_WITHOUT_ORDER_ID = "Order id cannot be null";
@@ -24,27 +27,35 @@ public class OrderServiceImpl implements OrderService {
     public static final Integer MAXIMUM_PANCAKES = 10;
     public static final String MAXIMUM_PANCAKES_EXCEEDED = "The maximum number of pancakes that can be ordered is %d".formatted(MAXIMUM_PANCAKES);
     public static final String USER_HAS_AN_ONGOING_ORDER = "The user has an ongoing order";
+    public static final String ORDER_NOT_IN_KITCHEN = "Order is not in the kitchen";
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
 
     private final ConcurrentMap<UUID, OrderDetails> ordersRepository;
     private final ConcurrentMap<UUID, OrderStatus> orderStatusRepository;
     private final DeliveryInformationValidator deliveryInformationValidator;
-    private final ExecutorService executorService;
+    private final PipelineStage pipelineStage;
     private final BlockingDeque<UUID> ordersQueue;
     private final ConcurrentMap<DeliveryInfo, UUID> orderStorage = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, DraftOrder> drafts = new ConcurrentHashMap<>();
     private final ConcurrentMap<UUID, Map<PancakeRecipe, Integer>> orderItemsLocalCache = new ConcurrentHashMap<>();
     private final ReentrantReadWriteLock orderItemsLock = new ReentrantReadWriteLock();
     private final ReentrantReadWriteLock.ReadLock orderItemsReadLock = orderItemsLock.readLock();
     private final ReentrantReadWriteLock.WriteLock orderItemsWriteLock = orderItemsLock.writeLock();
     private final RecipeService recipeService;
+    private final IngredientInventory ingredientInventory;
+    private final KitchenThroughputModel throughputModel;
+    private final NotificationDispatcher notificationDispatcher;
 
     /**
-     * Constructs a new OrderServiceImpl.
+     * Constructs a new OrderServiceImpl. If the recipes are provided by the kitchen the orders are sent to, the
+     * ready times are estimated from the throughput model of that kitchen.
      *
      * @param ordersRepository             the map of order details
      * @param orderStatusRepository        the map of order statuses
      * @param deliveryInformationValidator the validator for delivery information
      * @param ordersQueue                  the queue of orders to be processed
      * @param internalThreads              the number of internal threads to use
+     * @param recipeService                the service providing the available recipes
      */
     public OrderServiceImpl(
             final ConcurrentMap<UUID, OrderDetails> ordersRepository,
@@ -53,13 +64,134 @@ public class OrderServiceImpl implements OrderService {
             final BlockingDeque<UUID> ordersQueue,
             final Integer internalThreads,
             final RecipeService recipeService
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, internalThreads,
+                recipeService, new IngredientInventory());
+    }
+
+    /**
+     * Constructs a new OrderServiceImpl which reserves the ingredients of the ordered pancakes. If the recipes are
+     * provided by the kitchen the orders are sent to, the ready times are estimated from the throughput model of
+     * that kitchen.
+     *
+     * @param ordersRepository             the map of order details
+     * @param orderStatusRepository        the map of order statuses
+     * @param deliveryInformationValidator the validator for delivery information
+     * @param ordersQueue                  the queue of orders to be processed
+     * @param internalThreads              the number of internal threads to use
+     * @param recipeService                the service providing the available recipes
+     * @param ingredientInventory          the stock the ingredients of the ordered pancakes are reserved from
+     */
+    public OrderServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final DeliveryInformationValidator deliveryInformationValidator,
+            final BlockingDeque<UUID> ordersQueue,
+            final Integer internalThreads,
+            final RecipeService recipeService,
+            final IngredientInventory ingredientInventory
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, internalThreads,
+                recipeService, ingredientInventory, throughputModelOf(recipeService));
+    }
+
+    /**
+     * Constructs a new OrderServiceImpl which estimates the ready times from a given throughput model.
+     *
+     * @param ordersRepository             the map of order details
+     * @param orderStatusRepository        the map of order statuses
+     * @param deliveryInformationValidator the validator for delivery information
+     * @param ordersQueue                  the queue of orders to be processed
+     * @param internalThreads              the number of internal threads to use
+     * @param recipeService                the service providing the available recipes
+     * @param throughputModel              the model of the kitchen the orders are sent to, shared with the kitchen
+     */
+    public OrderServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final DeliveryInformationValidator deliveryInformationValidator,
+            final BlockingDeque<UUID> ordersQueue,
+            final Integer internalThreads,
+            final RecipeService recipeService,
+            final KitchenThroughputModel throughputModel
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, internalThreads,
+                recipeService, new IngredientInventory(), throughputModel);
+    }
+
+    /**
+     * Constructs a new OrderServiceImpl which reserves the ingredients of the ordered pancakes and estimates the
+     * ready times from a given throughput model.
+     *
+     * @param ordersRepository             the map of order details
+     * @param orderStatusRepository        the map of order statuses
+     * @param deliveryInformationValidator the validator for delivery information
+     * @param ordersQueue                  the queue of orders to be processed
+     * @param internalThreads              the number of internal threads to use
+     * @param recipeService                the service providing the available recipes
+     * @param ingredientInventory          the stock the ingredients of the ordered pancakes are reserved from
+     * @param throughputModel              the model of the kitchen the orders are sent to, shared with the kitchen
+     */
+    public OrderServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final DeliveryInformationValidator deliveryInformationValidator,
+            final BlockingDeque<UUID> ordersQueue,
+            final Integer internalThreads,
+            final RecipeService recipeService,
+            final IngredientInventory ingredientInventory,
+            final KitchenThroughputModel throughputModel
+    ) {
+        this(ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, internalThreads,
+                recipeService, ingredientInventory, throughputModel, PancakeUtils.notifications());
+    }
+
+    /**
+     * Constructs a new OrderServiceImpl which notifies the users through its own dispatcher.
+     *
+     * @param ordersRepository             the map of order details
+     * @param orderStatusRepository        the map of order statuses
+     * @param deliveryInformationValidator the validator for delivery information
+     * @param ordersQueue                  the queue of orders to be processed
+     * @param internalThreads              the number of internal threads to use
+     * @param recipeService                the service providing the available recipes
+     * @param ingredientInventory          the stock the ingredients of the ordered pancakes are reserved from
+     * @param throughputModel              the model of the kitchen the orders are sent to, shared with the kitchen
+     * @param notificationDispatcher       the dispatcher of the user notifications
+     */
+    public OrderServiceImpl(
+            final ConcurrentMap<UUID, OrderDetails> ordersRepository,
+            final ConcurrentMap<UUID, OrderStatus> orderStatusRepository,
+            final DeliveryInformationValidator deliveryInformationValidator,
+            final BlockingDeque<UUID> ordersQueue,
+            final Integer internalThreads,
+            final RecipeService recipeService,
+            final IngredientInventory ingredientInventory,
+            final KitchenThroughputModel throughputModel,
+            final NotificationDispatcher notificationDispatcher
     ) {
         this.ordersRepository = ordersRepository;
         this.orderStatusRepository = orderStatusRepository;
         this.deliveryInformationValidator = deliveryInformationValidator;
         this.ordersQueue = ordersQueue;
-        this.executorService = Executors.newFixedThreadPool(internalThreads);
+        this.pipelineStage = new PipelineStage(internalThreads);
         this.recipeService = recipeService;
+        this.ingredientInventory = ingredientInventory;
+        this.throughputModel = throughputModel;
+        this.notificationDispatcher = notificationDispatcher;
+    }
+
+    /**
+     * Returns the throughput model of the kitchen providing the recipes, or a model of its own if the recipes
+     * come from elsewhere.
+     *
+     * @param recipeService the service providing the available recipes
+     * @return the throughput model
+     */
+    private static KitchenThroughputModel throughputModelOf(final RecipeService recipeService) {
+        return recipeService instanceof KitchenServiceImpl kitchen
+                ? kitchen.throughputModel()
+                : new KitchenThroughputModel();
     }
 
     /**
@@ -72,6 +204,7 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public UUID createOrder(User user, final DeliveryInfo deliveryInformation) throws PancakeServiceException {
+        pipelineStage.ensureAccepting();
         deliveryInformationValidator.validate(deliveryInformation);
         synchronized (ordersRepository) {
             if (ordersRepository.values().stream().anyMatch(orderDetails ->
@@ -86,24 +219,26 @@ public class OrderServiceImpl implements OrderService {
             if (orderStorage.putIfAbsent(deliveryInformation, orderId) != null) {
                 throw new PancakeServiceException(DUPLICATE_ORDERS_CANNOT_BE_PLACED);
             }
+            drafts.put(orderId, new DraftOrder(orderId, deliveryInformation, user));
         }
         synchronized (orderStatusRepository) {
             orderStatusRepository.put(orderId, OrderStatus.CREATED);
         }
-        PancakeUtils.notifyUser(user, OrderStatus.CREATED);
+        notificationDispatcher.notifyUser(user, orderId, OrderStatus.CREATED);
         return orderId;
     }
 
     /**
-     * Adds pancakes to an existing order.
+     * Adds pancakes to an existing order, reserving their ingredients.
      *
      * @param user     the user adding pancakes
      * @param orderId  the ID of the order to add pancakes to
      * @param pancakes the pancakes to add
-     * @throws PancakeServiceException if the pancakes cannot be added
+     * @throws PancakeServiceException if the pancakes cannot be added or their ingredients are out of stock
      */
     @Override
     public void addPancakes(User user, final UUID orderId, final Map<PancakeRecipe, Integer> pancakes) throws PancakeServiceException {
+        pipelineStage.ensureAccepting();
         validateOrderId(orderId);
         if (!recipeService.getRecipes(user).containsAll(pancakes.keySet())) {
             throw new PancakeServiceException("Pancakes not found");
@@ -118,11 +253,10 @@ public class OrderServiceImpl implements OrderService {
         } finally {
             orderItemsReadLock.unlock();
         }
-        synchronized (orderStorage) {
-            if (!orderStorage.containsValue(orderId)) {
-                throw new PancakeServiceException(ORDER_NOT_FOUND);
-            }
+        if (!drafts.containsKey(orderId)) {
+            throw new PancakeServiceException(ORDER_NOT_FOUND);
         }
+        ingredientInventory.reserve(pancakes);
         orderItemsWriteLock.lock();
         try {
             if (!orderItemsLocalCache.containsKey(orderId)) {
@@ -173,6 +307,42 @@ public class OrderServiceImpl implements OrderService {
         return orderStatusRepository.get(orderId);
     }
 
+    /**
+     * Estimates when an order will be ready for delivery, from the work queued ahead of it in the kitchen.
+     *
+     * @param user    the user requesting the estimate
+     * @param orderId the ID of the order
+     * @return the estimated time the order will be ready
+     * @throws PancakeServiceException if the order is not in the kitchen
+     */
+    @Override
+    public Instant estimatedReadyAt(User user, UUID orderId) throws PancakeServiceException {
+        validateOrderId(orderId);
+        return throughputModel.estimatedWait(orderId)
+                .map(Instant.now()::plus)
+                .orElseThrow(() -> new PancakeServiceException(ORDER_NOT_IN_KITCHEN));
+    }
+
+    /**
+     * Returns the owner of an order, from the draft while the order is put together and from the order details
+     * once it is completed, so that the owner keeps access to the order until it is delivered.
+     *
+     * @param orderId the ID of the order
+     * @return the name of the owner, or null if the order is unknown
+     */
+    @Override
+    public String ownerOf(UUID orderId) {
+        if (orderId == null) {
+            return null;
+        }
+        final DraftOrder draft = drafts.get(orderId);
+        if (draft != null) {
+            return draft.owner().getUsername();
+        }
+        final OrderDetails orderDetails = ordersRepository.get(orderId);
+        return orderDetails == null || orderDetails.getUser() == null ? null : orderDetails.getUser().getUsername();
+    }
+
     /**
      * Completes an order.
      *
@@ -183,18 +353,19 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public void complete(User user, final UUID orderId) throws PancakeServiceException {
         validateOrderId(orderId);
-        if (!orderStorage.containsValue(orderId)) {
+        if (!drafts.containsKey(orderId)) {
             throw new PancakeServiceException(ORDER_NOT_FOUND);
         }
-        CompletableFuture.runAsync(() -> {
-            var deliveryInfo = getDeliveryInfoByOrderId(orderId);
+        pipelineStage.runAsync(() -> {
+            final DraftOrder draft = getDraft(orderId);
+            final DeliveryInfo deliveryInfo = draft.deliveryInfo();
             OrderDetails orderDetails;
             orderItemsReadLock.lock();
             try {
                 orderDetails = new OrderDetails.Builder()
                         .withDeliveryInfo(deliveryInfo)
                         .withOrderId(orderId)
-                        .withUser(user)
+                        .withUser(draft.owner())
                         .withPanCakes(orderItemsLocalCache.get(orderId))
                         .build();
             } finally {
@@ -207,17 +378,18 @@ public class OrderServiceImpl implements OrderService {
                 synchronized (orderStatusRepository) {
                     orderStatusRepository.put(orderId, OrderStatus.COMPLETED);
                 }
+                throughputModel.orderQueued(orderId, orderDetails.getPancakes());
                 synchronized (ordersQueue) {
                     ordersQueue.add(orderId);
                 }
                 cleanUpOrder(orderId, deliveryInfo);
-                PancakeUtils.notifyUser(user, OrderStatus.COMPLETED);
+                notificationDispatcher.notifyUser(user, orderId, OrderStatus.COMPLETED);
             }
-        }, executorService);
+        });
     }
 
     /**
-     * Cancels an order.
+     * Cancels an order, giving back the reserved ingredients of its pancakes.
      *
      * @param user    the user canceling the order
      * @param orderId the ID of the order to cancel
@@ -226,19 +398,20 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public void cancel(User user, final UUID orderId) throws PancakeServiceException {
         validateOrderId(orderId);
-        if (!orderStorage.containsValue(orderId)) {
+        if (!drafts.containsKey(orderId)) {
             throw new IllegalStateException(ORDER_NOT_FOUND);
         }
-        CompletableFuture.runAsync(() -> {
-            var deliveryInfo = getDeliveryInfoByOrderId(orderId);
+        pipelineStage.runAsync(() -> {
+            final DeliveryInfo deliveryInfo = getDraft(orderId).deliveryInfo();
             if (deliveryInfo != null) {
+                releaseIngredients(orderId);
                 cleanUpOrder(orderId, deliveryInfo);
                 synchronized (orderStatusRepository) {
                     orderStatusRepository.put(orderId, OrderStatus.CANCELLED);
                 }
-                PancakeUtils.notifyUser(user, OrderStatus.CANCELLED);
+                notificationDispatcher.notifyUser(user, orderId, OrderStatus.CANCELLED);
             }
-        }, executorService);
+        });
     }
 
     /**
@@ -254,17 +427,35 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * Gets the delivery information by order ID.
+     * Gets the draft of an order.
      *
      * @param orderId the ID of the order
-     * @return the delivery information
+     * @return the draft
+     * @throws IllegalStateException if the order is not a draft
      */
-    private synchronized DeliveryInfo getDeliveryInfoByOrderId(final UUID orderId) {
-        return orderStorage.entrySet().stream()
-                .filter(entry -> entry.getValue().equals(orderId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException(ORDER_NOT_FOUND))
-                .getKey();
+    private DraftOrder getDraft(final UUID orderId) {
+        final DraftOrder draft = drafts.get(orderId);
+        if (draft == null) {
+            throw new IllegalStateException(ORDER_NOT_FOUND);
+        }
+        return draft;
+    }
+
+    /**
+     * Removes the pancakes of an order and gives back their reserved ingredients.
+     *
+     * @param orderId the ID of the order
+     */
+    private void releaseIngredients(final UUID orderId) {
+        orderItemsWriteLock.lock();
+        try {
+            final Map<PancakeRecipe, Integer> items = orderItemsLocalCache.remove(orderId);
+            if (items != null) {
+                ingredientInventory.release(items);
+            }
+        } finally {
+            orderItemsWriteLock.unlock();
+        }
     }
 
     /**
@@ -275,6 +466,7 @@ public class OrderServiceImpl implements OrderService {
      */
     private synchronized void cleanUpOrder(final UUID orderId, final DeliveryInfo deliveryInfo) {
         orderStorage.remove(deliveryInfo);
+        drafts.remove(orderId);
         orderItemsWriteLock.lock();
         try {
             orderItemsLocalCache.remove(orderId);
@@ -284,17 +476,43 @@ public class OrderServiceImpl implements OrderService {
     }
 
     /**
-     * Shuts down the executor service, waiting for tasks to complete or forcing shutdown if necessary.
+     * Stops taking new requests from users.
      */
-    public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+    @Override
+    public void stopIntake() {
+        pipelineStage.stopIntake();
+    }
+
+    /**
+     * Waits for the orders being completed or cancelled to be handed over.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the service is drained, false if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Override
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        return pipelineStage.awaitDrained(timeout);
+    }
+
+    /**
+     * Stops the requests in flight.
+     *
+     * @return the IDs of the orders which were created but never completed
+     */
+    @Override
+    public List<UUID> stop() {
+        pipelineStage.stop();
+        return List.copyOf(drafts.keySet());
+    }
+
+    /**
+     * Shuts down this stage only, waiting for the orders in flight to be handed over first. The kitchen and
+     * delivery stages are left running; use {@link PipelineDrainer#shutdown} to drain the whole pipeline.
+     *
+     * @return the report of the drain
+     */
+    public DrainReport shutdown() {
+        return PipelineDrainer.drain(DEFAULT_DRAIN_TIMEOUT, this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.DrainReport;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Drains the service pipeline on shutdown within a deadline.
+ * Intake is stopped at every stage first, then the stages are drained in pipeline order, so that the work a stage
+ * hands over while draining is still picked up by the next one. Once the deadline has passed, the remaining stages
+ * are stopped right away, and whatever they left behind is reported.
+ */
+public final class PipelineDrainer {
+
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    private PipelineDrainer() {
+    }
+
+    /**
+     * Shuts down the order, kitchen and delivery services together, flushing orders into the kitchen and the
+     * kitchen into delivery under one deadline.
+     *
+     * @param orderService    the order service, the first stage
+     * @param kitchenService  the kitchen service, the second stage
+     * @param deliveryService the delivery service, the last stage
+     * @return the report of the drain
+     */
+    public static DrainReport shutdown(final OrderServiceImpl orderService, final KitchenServiceImpl kitchenService,
+                                       final DeliveryServiceImpl deliveryService) {
+        return shutdown(DEFAULT_TIMEOUT, orderService, kitchenService, deliveryService);
+    }
+
+    /**
+     * Shuts down the order, kitchen and delivery services together, flushing orders into the kitchen and the
+     * kitchen into delivery under one deadline.
+     *
+     * @param timeout         the deadline for the whole pipeline
+     * @param orderService    the order service, the first stage
+     * @param kitchenService  the kitchen service, the second stage
+     * @param deliveryService the delivery service, the last stage
+     * @return the report of the drain
+     */
+    public static DrainReport shutdown(final Duration timeout, final OrderServiceImpl orderService,
+                                       final KitchenServiceImpl kitchenService,
+                                       final DeliveryServiceImpl deliveryService) {
+        return drain(timeout, orderService, kitchenService, deliveryService);
+    }
+
+    /**
+     * Drains the stages of a pipeline.
+     *
+     * @param timeout the deadline for the whole pipeline
+     * @param stages  the stages, upstream first
+     * @return the report of the drain
+     */
+    public static DrainReport drain(final Duration timeout, final Drainable... stages) {
+        final long start = System.nanoTime();
+        final long deadline = start + timeout.toNanos();
+        for (Drainable stage : stages) {
+            stage.stopIntake();
+        }
+        boolean drained = true;
+        final Map<String, List<UUID>> leftovers = new LinkedHashMap<>();
+        for (Drainable stage : stages) {
+            final Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+            try {
+                drained &= stage.awaitDrained(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drained = false;
+            }
+            final List<UUID> left = stage.stop();
+            if (!left.isEmpty()) {
+                drained = false;
+                leftovers.put(stage.stageName(), left);
+            }
+        }
+        return new DrainReport(drained, Duration.ofNanos(System.nanoTime() - start), leftovers);
+    }
+}
@@ -0,0 +1,137 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.PancakeServiceException;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the asynchronous work of a service: the consumer of the queue feeding the service and the requests the
+ * service completes in the background. It keeps track of the requests in flight and lets the consumer run
+ * until its queue is empty once the stage is drained, so that a service can shut down without losing work.
+ */
+public class PipelineStage {
+
+    public static final String SERVICE_SHUTTING_DOWN = "Service is shutting down";
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ExecutorService executorService;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CountDownLatch consumerStopped = new CountDownLatch(1);
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+    private volatile SupervisedConsumer consumer;
+
+    /**
+     * Constructs a new PipelineStage.
+     *
+     * @param internalThreads the number of threads running the consumer and the background requests
+     */
+    public PipelineStage(final int internalThreads) {
+        this.executorService = Executors.newFixedThreadPool(internalThreads);
+    }
+
+    /**
+     * Starts consuming a queue under supervision. Once the stage is drained, the consumer keeps going until the
+     * queue is empty.
+     *
+     * @param queue   the queue feeding the stage
+     * @param handler the handler of the consumed order IDs
+     * @return the consumer
+     */
+    public SupervisedConsumer consume(final BlockingDeque<UUID> queue, final Consumer<UUID> handler) {
+        final SupervisedConsumer supervised = new SupervisedConsumer(queue, handler, () -> running);
+        consumer = supervised;
+        executorService.submit(() -> {
+            try {
+                supervised.run();
+            } finally {
+                consumerStopped.countDown();
+            }
+        });
+        return supervised;
+    }
+
+    /**
+     * Checks that the stage still takes new requests.
+     *
+     * @throws PancakeServiceException if the stage is shutting down
+     */
+    public void ensureAccepting() throws PancakeServiceException {
+        if (!accepting) {
+            throw new PancakeServiceException(SERVICE_SHUTTING_DOWN);
+        }
+    }
+
+    /**
+     * Runs a request in the background, keeping track of it until it completes.
+     *
+     * @param task the request
+     * @throws PancakeServiceException if the stage is shutting down
+     */
+    public void runAsync(final Runnable task) throws PancakeServiceException {
+        inFlight.incrementAndGet();
+        if (!accepting) {
+            inFlight.decrementAndGet();
+            throw new PancakeServiceException(SERVICE_SHUTTING_DOWN);
+        }
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            }, executorService);
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            throw new PancakeServiceException(SERVICE_SHUTTING_DOWN, e);
+        }
+    }
+
+    /**
+     * Stops taking new requests.
+     */
+    public void stopIntake() {
+        accepting = false;
+    }
+
+    /**
+     * Lets the consumer finish its queue and waits for it and for the requests in flight to complete.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the stage is drained, false if the timeout elapsed first
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean awaitDrained(final Duration timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        running = false;
+        if (consumer != null && !consumerStopped.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the consumer and the requests which are still running.
+     */
+    public void stop() {
+        accepting = false;
+        running = false;
+        executorService.shutdownNow();
+        try {
+            executorService.awaitTermination(STOP_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.RecipeFilter;
+
+import java.util.*;
+
+/**
+ * An immutable bitmap index of recipes by ingredient.
+ * Every recipe gets a dense id in name order, and every ingredient a bitmap of the recipes which contain it,
+ * so that a filter is answered with one bitwise operation per ingredient of the filter instead of a scan over
+ * the recipes.
+ */
+public class RecipeBitmapIndex {
+
+    private final PancakeRecipe[] recipes;
+    private final Map<String, BitSet> recipesByIngredient = new HashMap<>();
+
+    /**
+     * Constructs a new RecipeBitmapIndex.
+     *
+     * @param recipes the recipes to index
+     */
+    public RecipeBitmapIndex(final Collection<PancakeRecipe> recipes) {
+        this.recipes = recipes.stream()
+                .sorted(Comparator.comparing(PancakeRecipe::getName))
+                .toArray(PancakeRecipe[]::new);
+        for (int id = 0; id < this.recipes.length; id++) {
+            for (String ingredient : this.recipes[id].getIngredients()) {
+                recipesByIngredient.computeIfAbsent(ingredient, name -> new BitSet(this.recipes.length)).set(id);
+            }
+        }
+    }
+
+    /**
+     * Returns the recipes which match a filter.
+     *
+     * @param filter the filter
+     * @return the matching recipes, ordered by name
+     */
+    public List<PancakeRecipe> find(final RecipeFilter filter) {
+        final BitSet matches = new BitSet(recipes.length);
+        matches.set(0, recipes.length);
+        for (String ingredient : filter.included()) {
+            final BitSet withIngredient = recipesByIngredient.get(ingredient);
+            if (withIngredient == null) {
+                return List.of();
+            }
+            matches.and(withIngredient);
+        }
+        for (String ingredient : filter.excluded()) {
+            final BitSet withIngredient = recipesByIngredient.get(ingredient);
+            if (withIngredient != null) {
+                matches.andNot(withIngredient);
+            }
+        }
+        final List<PancakeRecipe> found = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            found.add(recipes[id]);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,230 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.RecipeFilter;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The recipes the kitchen can cook, keyed by name.
+ * The catalog is published as an immutable, versioned snapshot behind a volatile reference: reads, lookups and
+ * membership checks work on the current snapshot without locking or copying, while writes, which are rare and
+ * serialized, build the next snapshot and publish it in one step, so a reader never sees half of a change.
+ * <p>
+ * A catalog backed by a recipe repository reads the repository when it is first used, and writes every later change
+ * through to it, so that the repository keeps holding the recipes of the kitchen. Changes made to the repository
+ * directly once the catalog is in use are not seen by the catalog.
+ */
+public class RecipeCatalog {
+
+    private final Set<PancakeRecipe> repository;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Constructs a new RecipeCatalog.
+     *
+     * @param recipes the initial recipes
+     */
+    public RecipeCatalog(final Collection<PancakeRecipe> recipes) {
+        this.repository = null;
+        this.snapshot = new Snapshot(1, byName(recipes));
+    }
+
+    private RecipeCatalog(final Set<PancakeRecipe> repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Constructs a new RecipeCatalog backed by a recipe repository, which is read when the catalog is first used
+     * and written through on every change.
+     *
+     * @param repository the recipe repository
+     * @return the catalog
+     */
+    public static RecipeCatalog backedBy(final Set<PancakeRecipe> repository) {
+        return new RecipeCatalog(repository);
+    }
+
+    /**
+     * Adds a recipe unless a recipe with the same name exists.
+     *
+     * @param recipe the recipe
+     * @return true if the recipe was added
+     */
+    public synchronized boolean add(final PancakeRecipe recipe) {
+        if (snapshot().recipesByName().containsKey(recipe.getName())) {
+            return false;
+        }
+        publish(recipes -> recipes.put(recipe.getName(), recipe));
+        writeThrough(repository -> repository.add(recipe));
+        return true;
+    }
+
+    /**
+     * Removes the recipe with a name.
+     *
+     * @param name the name of the recipe
+     * @return the removed recipe, or null if there was no recipe with the name
+     */
+    public synchronized PancakeRecipe remove(final String name) {
+        final PancakeRecipe removed = get(name);
+        if (removed != null) {
+            publish(recipes -> recipes.remove(name));
+            writeThrough(repository -> repository.remove(removed));
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces the recipe with a name, atomically, even if the new recipe has a different name.
+     *
+     * @param name   the name of the recipe to replace
+     * @param recipe the new recipe
+     */
+    public synchronized void replace(final String name, final PancakeRecipe recipe) {
+        final PancakeRecipe replaced = get(name);
+        publish(recipes -> {
+            if (name != null) {
+                recipes.remove(name);
+            }
+            recipes.put(recipe.getName(), recipe);
+        });
+        writeThrough(repository -> {
+            if (replaced != null) {
+                repository.remove(replaced);
+            }
+            repository.remove(recipe);
+            repository.add(recipe);
+        });
+    }
+
+    /**
+     * Adds recipes, replacing the recipes with the same names, and publishes them as a single version.
+     *
+     * @param recipes the recipes
+     */
+    public synchronized void putAll(final Collection<PancakeRecipe> recipes) {
+        if (recipes.isEmpty()) {
+            return;
+        }
+        publish(recipesByName -> recipes.forEach(recipe -> recipesByName.put(recipe.getName(), recipe)));
+        writeThrough(repository -> recipes.forEach(recipe -> {
+            repository.remove(recipe);
+            repository.add(recipe);
+        }));
+    }
+
+    /**
+     * Returns the recipe with a name.
+     *
+     * @param name the name of the recipe
+     * @return the recipe, or null if there is no recipe with the name
+     */
+    public PancakeRecipe get(final String name) {
+        return name == null ? null : snapshot().recipesByName().get(name);
+    }
+
+    /**
+     * Tells whether the catalog holds a recipe with the name of a recipe.
+     *
+     * @param recipe the recipe
+     * @return true if a recipe with the name exists
+     */
+    public boolean contains(final PancakeRecipe recipe) {
+        return snapshot().recipesByName().containsKey(recipe.getName());
+    }
+
+    /**
+     * Returns all recipes of the current snapshot.
+     *
+     * @return the recipes, which are immutable and never change afterwards
+     */
+    public Set<PancakeRecipe> recipes() {
+        return snapshot().recipes();
+    }
+
+    /**
+     * Returns the recipes of the current snapshot which match a filter.
+     *
+     * @param filter the filter
+     * @return the matching recipes, ordered by name
+     */
+    public List<PancakeRecipe> find(final RecipeFilter filter) {
+        return snapshot().index().find(filter);
+    }
+
+    /**
+     * Returns the current snapshot of the catalog.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        final Snapshot current = snapshot;
+        return current != null ? current : load();
+    }
+
+    /**
+     * Builds the first snapshot from the recipe repository, unless another thread did already.
+     *
+     * @return the first snapshot
+     */
+    private synchronized Snapshot load() {
+        if (snapshot == null) {
+            snapshot = new Snapshot(1, byName(repository));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Applies a change to the recipe repository, if the catalog is backed by one.
+     * Must be called while holding the lock of the catalog.
+     *
+     * @param change the change
+     */
+    private void writeThrough(final Consumer<Set<PancakeRecipe>> change) {
+        if (repository != null) {
+            change.accept(repository);
+        }
+    }
+
+    private static Map<String, PancakeRecipe> byName(final Collection<PancakeRecipe> recipes) {
+        final Map<String, PancakeRecipe> recipesByName = new HashMap<>();
+        recipes.forEach(recipe -> recipesByName.putIfAbsent(recipe.getName(), recipe));
+        return recipesByName;
+    }
+
+    /**
+     * Builds the next snapshot from a copy of the recipes of the current one and publishes it.
+     * Must be called while holding the lock of the catalog.
+     *
+     * @param change the change applied to the copy of the recipes, keyed by name
+     */
+    private void publish(final Consumer<Map<String, PancakeRecipe>> change) {
+        final Snapshot current = snapshot();
+        final Map<String, PancakeRecipe> recipesByName = new HashMap<>(current.recipesByName());
+        change.accept(recipesByName);
+        snapshot = new Snapshot(current.version() + 1, recipesByName);
+    }
+
+    /**
+     * An immutable version of the catalog, indexed by ingredient when it is built.
+     *
+     * @param version       the version of the catalog, incremented by every change
+     * @param recipesByName the recipes keyed by name
+     * @param recipes       the recipes
+     * @param index         the bitmap index of the recipes by ingredient
+     */
+    public record Snapshot(long version, Map<String, PancakeRecipe> recipesByName, Set<PancakeRecipe> recipes,
+                           RecipeBitmapIndex index) {
+
+        private Snapshot(final long version, final Map<String, PancakeRecipe> recipesByName) {
+            this(version, Map.copyOf(recipesByName), Set.copyOf(recipesByName.values()),
+                    new RecipeBitmapIndex(recipesByName.values()));
+        }
+    }
+}
@@ -2,8 +2,12 @@ package org.pancakelab.service;
 
 import org.pancakelab.model.PancakeRecipe;
 import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.model.RecipeFilter;
 import org.pancakelab.model.User;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
 import java.util.Set;
 
 public interface RecipeService {
@@ -12,4 +16,7 @@ public interface RecipeService {
     void updateRecipe(User user, String name, PancakeRecipe recipe) throws PancakeServiceException;
     void exits(User user, PancakeRecipe recipe) throws PancakeServiceException;
     Set<PancakeRecipe> getRecipes(User user) throws PancakeServiceException;
+    List<PancakeRecipe> findRecipes(User user, RecipeFilter filter) throws PancakeServiceException;
+    int importRecipes(User user, Reader csv) throws PancakeServiceException;
+    void exportRecipes(User user, Writer csv) throws PancakeServiceException;
 }
@@ -0,0 +1,227 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.ConsumerHealth;
+import org.pancakelab.model.DeadLetter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Consumes a queue under supervision, so that one bad event cannot stall the pipeline.
+ * An event whose handler fails is retried with exponential backoff; once it has failed every attempt, it is moved
+ * to the dead-letter store and the consumer moves on. Should the consumer loop itself die, it is restarted with
+ * backoff, and the event it was handling is dead-lettered as well; the backoff starts over once the restarted loop
+ * has handled an event. Errors of the virtual machine itself, such as running out of memory, are not supervised:
+ * they are logged, the event being handled is dead-lettered, and the error ends the consumer.
+ */
+public class SupervisedConsumer implements Runnable {
+    private static final Logger logger = Logger.getLogger(SupervisedConsumer.class.getName());
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(50);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_LIVENESS_TIMEOUT = Duration.ofSeconds(30);
+    public static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final BlockingDeque<UUID> queue;
+    private final Consumer<UUID> handler;
+    private final BooleanSupplier running;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final ConcurrentMap<UUID, DeadLetter> deadLetters = new ConcurrentHashMap<>();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private volatile long lastPollNanos = System.nanoTime();
+    private volatile boolean looping;
+    private volatile UUID current;
+
+    /**
+     * Constructs a new SupervisedConsumer with the default retry policy.
+     *
+     * @param queue   the queue to consume
+     * @param handler the handler of the consumed order IDs
+     * @param running tells whether the consumer should keep waiting for events; once it is false, the consumer
+     *                stops as soon as the queue is empty
+     */
+    public SupervisedConsumer(final BlockingDeque<UUID> queue, final Consumer<UUID> handler,
+                              final BooleanSupplier running) {
+        this(queue, handler, running, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+    }
+
+    /**
+     * Constructs a new SupervisedConsumer.
+     *
+     * @param queue          the queue to consume
+     * @param handler        the handler of the consumed order IDs
+     * @param running        tells whether the consumer should keep waiting for events; once it is false, the
+     *                       consumer stops as soon as the queue is empty
+     * @param maxAttempts    the number of attempts to handle an event before it is dead-lettered
+     * @param initialBackoff the wait before the first retry, doubled for every further retry
+     * @param maxBackoff     the longest wait between retries
+     */
+    public SupervisedConsumer(final BlockingDeque<UUID> queue, final Consumer<UUID> handler,
+                              final BooleanSupplier running, final int maxAttempts, final Duration initialBackoff,
+                              final Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.queue = queue;
+        this.handler = handler;
+        this.running = running;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Runs the consumer loop, restarting it whenever it dies, until the consumer is stopped and the queue is empty.
+     *
+     * @throws VirtualMachineError if the virtual machine fails while the consumer runs
+     */
+    @Override
+    public void run() {
+        long consecutiveRestarts = 0;
+        while (true) {
+            final long processedBefore = processed.get();
+            try {
+                looping = true;
+                consume();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (VirtualMachineError e) {
+                final UUID poisoned = current;
+                if (poisoned != null) {
+                    deadLetter(poisoned, e, 1);
+                }
+                logger.log(Level.SEVERE, "Consumer stopped by a virtual machine error while handling " + poisoned, e);
+                throw e;
+            } catch (RuntimeException | Error e) {
+                final UUID poisoned = current;
+                if (poisoned != null) {
+                    deadLetter(poisoned, e, 1);
+                }
+                restarts.incrementAndGet();
+                consecutiveRestarts = processed.get() > processedBefore ? 1 : consecutiveRestarts + 1;
+                try {
+                    Thread.sleep(backoff(consecutiveRestarts).toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } finally {
+                looping = false;
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the events given up on.
+     *
+     * @return the dead letters
+     */
+    public List<DeadLetter> deadLetters() {
+        return List.copyOf(deadLetters.values());
+    }
+
+    /**
+     * Puts a dead-lettered event back at the end of the queue, once its cause has been fixed.
+     *
+     * @param orderId the ID of the order of the event
+     * @return true if the event was dead-lettered and is queued again
+     */
+    public boolean redrive(final UUID orderId) {
+        if (deadLetters.remove(orderId) == null) {
+            return false;
+        }
+        queue.addLast(orderId);
+        return true;
+    }
+
+    /**
+     * Returns the liveness and lag of the consumer.
+     *
+     * @return the health of the consumer
+     */
+    public ConsumerHealth health() {
+        final Duration sinceLastPoll = Duration.ofNanos(System.nanoTime() - lastPollNanos);
+        return new ConsumerHealth(
+                looping && sinceLastPoll.compareTo(DEFAULT_LIVENESS_TIMEOUT) < 0,
+                queue.size(),
+                sinceLastPoll,
+                processed.get(),
+                deadLetters.size(),
+                restarts.get()
+        );
+    }
+
+    /**
+     * Polls the queue and handles the events until the consumer is stopped and the queue is empty.
+     *
+     * @throws InterruptedException if the consumer is interrupted
+     */
+    private void consume() throws InterruptedException {
+        while (running.getAsBoolean() || !queue.isEmpty()) {
+            lastPollNanos = System.nanoTime();
+            final UUID orderId = queue.poll(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+            if (orderId != null) {
+                current = orderId;
+                handle(orderId);
+                current = null;
+                lastPollNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Handles an event, retrying with backoff and dead-lettering it once every attempt has failed.
+     *
+     * @param orderId the ID of the order of the event
+     * @throws InterruptedException if the consumer is interrupted while backing off
+     */
+    private void handle(final UUID orderId) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                handler.accept(orderId);
+                processed.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == maxAttempts) {
+                    deadLetter(orderId, e, attempt);
+                    return;
+                }
+                Thread.sleep(backoff(attempt).toMillis());
+            }
+        }
+    }
+
+    private void deadLetter(final UUID orderId, final Throwable failure, final int attempts) {
+        deadLetters.put(orderId, new DeadLetter(orderId, String.valueOf(failure), attempts, Instant.now()));
+    }
+
+    /**
+     * Returns the wait before a retry, doubling from the initial backoff up to the maximum backoff.
+     *
+     * @param retry the number of the retry, starting at 1
+     * @return the wait
+     */
+    private Duration backoff(final long retry) {
+        final long shift = Math.min(retry - 1, 20);
+        final Duration backoff = initialBackoff.multipliedBy(1L << shift);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+}
@@ -0,0 +1,262 @@
+package org.pancakelab.service;
+
+import org.pancakelab.model.User;
+import org.pancakelab.model.ValidationException;
+import org.pancakelab.util.PasswordHasher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The users known to the authentication service, keyed by username, with the salted hashes of their passwords.
+ * Only the hashes are kept: the users handed out carry no password.
+ * The users are held in an immutable snapshot behind a volatile reference, so lookups never lock; changes are
+ * serialized, build the next snapshot and publish it in one step. A reload parses the whole file before publishing
+ * anything, hence readers keep using the previous users meanwhile and a broken file changes nothing.
+ * <p>
+ * The file holds one user per line, as {@code username:password:resource=CRUD;resource=R}, where the password is
+ * either a hash made by {@link PasswordHasher} or a plain password, which is hashed when the file is read. A plain
+ * password which still matches the current hash of its user keeps that hash, so that reloading an unchanged file
+ * neither ends the sessions of its users nor misses their cached credentials. Blank lines and lines starting with
+ * {@code #} are skipped.
+ */
+public class UserDirectory {
+
+    public static final String INVALID_LINE = "Line %d: %s";
+    public static final String INVALID_FIELD_COUNT = "Expected username:password:privileges";
+    public static final String INVALID_PRIVILEGES = "Invalid privileges %s";
+    public static final String DUPLICATE_USER = "Duplicate user %s";
+    public static final String USER_CANNOT_BE_NULL = "User cannot be null";
+    private static final String COMMENT = "#";
+
+    private final PasswordHasher passwordHasher;
+    private volatile Map<String, Account> accountsByName;
+
+    /**
+     * Constructs a new UserDirectory hashing the passwords with the default iterations.
+     *
+     * @param users the initial users
+     */
+    public UserDirectory(final Collection<User> users) {
+        this(users, new PasswordHasher());
+    }
+
+    /**
+     * Constructs a new UserDirectory.
+     *
+     * @param users          the initial users
+     * @param passwordHasher the hasher of the passwords
+     */
+    public UserDirectory(final Collection<User> users, final PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+        final Map<String, Account> byName = new HashMap<>();
+        users.forEach(user -> byName.put(user.getUsername(), accountOf(user, null)));
+        this.accountsByName = Map.copyOf(byName);
+    }
+
+    /**
+     * Constructs a new UserDirectory with the users of a file.
+     *
+     * @param file           the file of the users
+     * @param passwordHasher the hasher of the passwords
+     * @return the directory
+     * @throws ValidationException if a line is not a valid user
+     * @throws IOException         if the file cannot be read
+     */
+    public static UserDirectory load(final Path file, final PasswordHasher passwordHasher)
+            throws ValidationException, IOException {
+        final UserDirectory userDirectory = new UserDirectory(List.of(), passwordHasher);
+        userDirectory.reload(file);
+        return userDirectory;
+    }
+
+    /**
+     * Returns the user with a name, without locking.
+     *
+     * @param username the name of the user
+     * @return the user, without password, or null if there is no such user
+     */
+    public User get(final String username) {
+        final Account account = account(username);
+        return account == null ? null : account.user();
+    }
+
+    /**
+     * Returns the user with a name together with the hash of their password, without locking.
+     *
+     * @param username the name of the user
+     * @return the account, or null if there is no such user
+     */
+    public Account account(final String username) {
+        return username == null ? null : accountsByName.get(username);
+    }
+
+    /**
+     * Returns the number of users.
+     *
+     * @return the number of users
+     */
+    public int size() {
+        return accountsByName.size();
+    }
+
+    /**
+     * Adds a user, replacing the user with the same name. The password is hashed before the lock is taken.
+     *
+     * @param user the user
+     */
+    public void add(final User user) {
+        if (user == null) {
+            throw new IllegalArgumentException(USER_CANNOT_BE_NULL);
+        }
+        final Account account = accountOf(user, null);
+        synchronized (this) {
+            publish(accounts -> accounts.put(user.getUsername(), account));
+        }
+    }
+
+    /**
+     * Revokes a user, whose sessions stop being accepted as well.
+     *
+     * @param username the name of the user
+     * @return true if the user existed
+     */
+    public synchronized boolean revoke(final String username) {
+        if (get(username) == null) {
+            return false;
+        }
+        publish(accounts -> accounts.remove(username));
+        return true;
+    }
+
+    /**
+     * Replaces all users with the users of a file.
+     *
+     * @param file the file of the users
+     * @throws ValidationException if a line is not a valid user, in which case no user changes
+     * @throws IOException         if the file cannot be read
+     */
+    public void reload(final Path file) throws ValidationException, IOException {
+        final Map<String, Account> accounts = read(file, accountsByName);
+        synchronized (this) {
+            accountsByName = Map.copyOf(accounts);
+        }
+    }
+
+    /**
+     * Builds the next snapshot from a copy of the current one and publishes it.
+     * Must be called while holding the lock of the directory.
+     *
+     * @param change the change applied to the copy of the accounts, keyed by name
+     */
+    private void publish(final Consumer<Map<String, Account>> change) {
+        final Map<String, Account> accounts = new HashMap<>(accountsByName);
+        change.accept(accounts);
+        accountsByName = Map.copyOf(accounts);
+    }
+
+    /**
+     * Builds the account of a user, hashing the password unless its hash is given.
+     *
+     * @param user         the user
+     * @param passwordHash the hash of the password, or null to hash the password of the user
+     * @return the account, whose user has no password
+     */
+    private Account accountOf(final User user, final String passwordHash) {
+        final String hash = passwordHash != null ? passwordHash : passwordHasher.hash(user.getPassword());
+        return new Account(new User(user.getUsername(), null, user.getPrivileges()), hash);
+    }
+
+    /**
+     * Reads the users of a file.
+     *
+     * @param file    the file of the users
+     * @param current the current accounts keyed by name, whose hashes are kept for unchanged plain passwords
+     * @return the accounts keyed by name
+     * @throws ValidationException if a line is not a valid user
+     * @throws IOException         if the file cannot be read
+     */
+    private Map<String, Account> read(final Path file, final Map<String, Account> current)
+            throws ValidationException, IOException {
+        final Map<String, Account> accounts = new HashMap<>();
+        try (BufferedReader lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int lineNumber = 0;
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || line.strip().startsWith(COMMENT)) {
+                    continue;
+                }
+                final Account account;
+                try {
+                    account = parse(line.strip(), current);
+                } catch (IllegalArgumentException e) {
+                    throw new ValidationException(INVALID_LINE.formatted(lineNumber, e.getMessage()));
+                }
+                final String username = account.user().getUsername();
+                if (accounts.putIfAbsent(username, account) != null) {
+                    throw new ValidationException(
+                            INVALID_LINE.formatted(lineNumber, DUPLICATE_USER.formatted(username)));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Parses a user line.
+     *
+     * @param line    the line
+     * @param current the current accounts keyed by name
+     * @return the account of the user
+     * @throws IllegalArgumentException if the line is not a valid user
+     */
+    private Account parse(final String line, final Map<String, Account> current) {
+        final String[] fields = line.split(":", -1);
+        if (fields.length != 3 || fields[0].isBlank() || fields[1].isEmpty()) {
+            throw new IllegalArgumentException(INVALID_FIELD_COUNT);
+        }
+        final Map<String, List<Character>> privileges = new HashMap<>();
+        for (String grant : fields[2].split(";")) {
+            if (grant.isBlank()) {
+                continue;
+            }
+            final int separator = grant.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException(INVALID_PRIVILEGES.formatted(grant));
+            }
+            final List<Character> codes = new ArrayList<>();
+            grant.substring(separator + 1).strip().chars().forEach(code -> codes.add((char) code));
+            privileges.put(grant.substring(0, separator).strip(), codes);
+        }
+        final User user = new User(fields[0].strip(), fields[1].toCharArray(), privileges);
+        return accountOf(user, PasswordHasher.isHash(fields[1])
+                ? fields[1] : currentHash(current.get(user.getUsername()), user.getPassword()));
+    }
+
+    /**
+     * Returns the current hash of a user if it still matches their plain password.
+     *
+     * @param account  the current account of the user, or null if the user is new
+     * @param password the plain password
+     * @return the current hash, or null if the password has to be hashed anew
+     */
+    private String currentHash(final Account account, final char[] password) {
+        return account != null && passwordHasher.verify(password, account.passwordHash())
+                ? account.passwordHash() : null;
+    }
+
+    /**
+     * A user of the directory and the hash of their password.
+     *
+     * @param user         the user, without password
+     * @param passwordHash the encoded hash of the password
+     */
+    public record Account(User user, String passwordHash) {
+    }
+}
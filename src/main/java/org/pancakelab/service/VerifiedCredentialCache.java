@@ -0,0 +1,129 @@
+package org.pancakelab.service;
+
+import org.pancakelab.util.HmacSigner;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the credentials which passed the slow password hash recently, so that only the first request with
+ * a password pays for the hash. An entry is keyed by a keyed digest of the username, the password and the stored
+ * hash the password was verified against: the password itself is never kept, the digest cannot be reversed without
+ * the key of the cache, and a changed password or hash misses the cache. Entries expire after a while, and the
+ * cache evicts entries once it is full, the expired ones first.
+ */
+public class VerifiedCredentialCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(5);
+    public static final String INVALID_MAX_ENTRIES = "Max entries must be positive";
+
+    private final HmacSigner digest;
+    private final int maxEntries;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<ByteBuffer, Long> expiriesByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new VerifiedCredentialCache with the default bounds and a random key.
+     */
+    public VerifiedCredentialCache() {
+        this(new HmacSigner(), DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Constructs a new VerifiedCredentialCache.
+     *
+     * @param digest     the keyed digest of the credentials
+     * @param maxEntries the most credentials remembered
+     * @param timeToLive how long a credential is remembered
+     */
+    public VerifiedCredentialCache(final HmacSigner digest, final int maxEntries, final Duration timeToLive) {
+        this(digest, maxEntries, timeToLive, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new VerifiedCredentialCache with a custom clock.
+     *
+     * @param digest     the keyed digest of the credentials
+     * @param maxEntries the most credentials remembered
+     * @param timeToLive how long a credential is remembered
+     * @param nanoClock  the clock the entries expire by, in nanoseconds
+     */
+    VerifiedCredentialCache(final HmacSigner digest, final int maxEntries, final Duration timeToLive,
+                            final LongSupplier nanoClock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException(INVALID_MAX_ENTRIES);
+        }
+        this.digest = digest;
+        this.maxEntries = maxEntries;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Tells whether a credential was verified recently.
+     *
+     * @param username     the name of the user
+     * @param password     the password
+     * @param passwordHash the stored hash the password is verified against
+     * @return true if the credential was verified and has not expired
+     */
+    public boolean isVerified(final String username, final char[] password, final String passwordHash) {
+        final ByteBuffer key = keyOf(username, password, passwordHash);
+        final Long expiresAt = expiriesByKey.get(key);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (nanoClock.getAsLong() - expiresAt >= 0) {
+            expiriesByKey.remove(key, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remembers a credential which passed the password hash.
+     *
+     * @param username     the name of the user
+     * @param password     the password
+     * @param passwordHash the stored hash the password was verified against
+     */
+    public void remember(final String username, final char[] password, final String passwordHash) {
+        if (expiriesByKey.size() >= maxEntries) {
+            evict();
+        }
+        expiriesByKey.put(keyOf(username, password, passwordHash), nanoClock.getAsLong() + timeToLiveNanos);
+    }
+
+    /**
+     * Returns the number of remembered credentials.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return expiriesByKey.size();
+    }
+
+    /**
+     * Drops the expired entries and, if the cache is still full, as many other entries as needed to make room.
+     */
+    private void evict() {
+        final long now = nanoClock.getAsLong();
+        expiriesByKey.values().removeIf(expiresAt -> now - expiresAt >= 0);
+        final Iterator<ByteBuffer> keys = expiriesByKey.keySet().iterator();
+        while (expiriesByKey.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private ByteBuffer keyOf(final String username, final char[] password, final String passwordHash) {
+        final String prefix = username.length() + ":" + username + "|" + passwordHash + "|";
+        return ByteBuffer.wrap(digest.sign(prefix, password));
+    }
+}
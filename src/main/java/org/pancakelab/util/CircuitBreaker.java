@@ -0,0 +1,118 @@
+package org.pancakelab.util;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calling a failing endpoint for a while, so that an endpoint which is down does not hold up the caller
+ * with every request. The breaker opens after a number of consecutive failures; once it has been open for the
+ * open duration, a single trial call is let through, which closes the breaker if it succeeds and opens it again
+ * if it fails.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+    public static final String INVALID_FAILURE_THRESHOLD = "Failure threshold must be positive";
+    public static final String INVALID_OPEN_DURATION = "Open duration must be positive";
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+
+    /**
+     * Constructs a new CircuitBreaker with the default threshold and open duration.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * Constructs a new CircuitBreaker.
+     *
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     * @param openDuration     how long the breaker stays open before a trial call
+     */
+    public CircuitBreaker(final int failureThreshold, final Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new CircuitBreaker with a custom clock.
+     *
+     * @param failureThreshold the number of consecutive failures opening the breaker
+     * @param openDuration     how long the breaker stays open before a trial call
+     * @param nanoClock        the clock timing the open duration, in nanoseconds
+     */
+    CircuitBreaker(final int failureThreshold, final Duration openDuration, final LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException(INVALID_FAILURE_THRESHOLD);
+        }
+        if (openDuration == null || openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException(INVALID_OPEN_DURATION);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Tells whether a call may go through, letting a single trial call through once the open duration is over.
+     *
+     * @return true if the call may go through
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAtNanos >= openNanos) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a successful call, closing the breaker.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a failed call, opening the breaker if the trial call failed or the threshold is reached.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * Returns the state of the breaker.
+     *
+     * @return the state
+     */
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,96 @@
+package org.pancakelab.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Signs payloads with HMAC-SHA256 and verifies the signatures in constant time.
+ * Every thread keeps its own {@link Mac}, since a Mac cannot be shared between threads and is costly to create.
+ */
+public class HmacSigner {
+    public static final String ALGORITHM = "HmacSHA256";
+    public static final int KEY_LENGTH = 32;
+    public static final String INVALID_KEY = "Key must be at least " + KEY_LENGTH + " bytes";
+
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Constructs a new HmacSigner with a random key, which is only known to this signer.
+     */
+    public HmacSigner() {
+        this(randomKey());
+    }
+
+    /**
+     * Constructs a new HmacSigner.
+     *
+     * @param key the secret key
+     */
+    public HmacSigner(final byte[] key) {
+        if (key == null || key.length < KEY_LENGTH) {
+            throw new IllegalArgumentException(INVALID_KEY);
+        }
+        final SecretKeySpec secretKey = new SecretKeySpec(key.clone(), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(secretKey);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+        });
+    }
+
+    /**
+     * Signs a payload.
+     *
+     * @param payload the payload
+     * @return the signature
+     */
+    public byte[] sign(final String payload) {
+        return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Signs a payload followed by a secret, without turning the secret into a string.
+     *
+     * @param payload the payload
+     * @param secret  the secret
+     * @return the signature
+     */
+    public byte[] sign(final String payload, final char[] secret) {
+        final Mac mac = macs.get();
+        mac.update(payload.getBytes(StandardCharsets.UTF_8));
+        final ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(secret));
+        mac.update(bytes.duplicate());
+        if (bytes.hasArray()) {
+            Arrays.fill(bytes.array(), (byte) 0);
+        }
+        return mac.doFinal();
+    }
+
+    /**
+     * Verifies the signature of a payload, taking the same time whichever byte of the signature differs.
+     *
+     * @param payload   the payload
+     * @param signature the signature to verify
+     * @return true if the signature is the signature of the payload
+     */
+    public boolean verify(final String payload, final byte[] signature) {
+        return signature != null && MessageDigest.isEqual(sign(payload), signature);
+    }
+
+    private static byte[] randomKey() {
+        final byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,30 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.Notification;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the notifications to the log.
+ */
+public class LoggingNotificationChannel implements NotificationChannel {
+    private static final Logger logger = Logger.getLogger(LoggingNotificationChannel.class.getName());
+
+    /**
+     * Logs a batch of notifications, formatting them only if the log is enabled.
+     *
+     * @param notifications the notifications
+     */
+    @Override
+    public void deliver(final List<Notification> notifications) {
+        if (!logger.isLoggable(Level.INFO)) {
+            return;
+        }
+        for (Notification notification : notifications) {
+            logger.info("Notifying %s that the order %s is %s".formatted(
+                    notification.user(), notification.orderId(), notification.status()));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.Notification;
+
+import java.util.List;
+
+/**
+ * A way of telling users about their orders, such as a log or a webhook.
+ * Channels are called by the notification dispatcher only, one batch at a time.
+ */
+public interface NotificationChannel {
+
+    /**
+     * Delivers a batch of notifications.
+     *
+     * @param notifications the notifications, in the order they were submitted
+     * @throws Exception if the batch could not be delivered
+     */
+    void deliver(List<Notification> notifications) throws Exception;
+}
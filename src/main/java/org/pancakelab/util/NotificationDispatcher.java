@@ -0,0 +1,332 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.Notification;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers notifications off the request path.
+ * Any thread may submit a notification, which only appends it to a lock-free queue; a single daemon thread drains
+ * the queue in batches and hands every batch to every channel. The queue is bounded: once it is full, new
+ * notifications are dropped and counted rather than slowing the requests down. A channel which fails does not
+ * keep the batch from the other channels.
+ * <p>
+ * Notifications may be coalesced per user and order: the first notification of an order opens a window, the later
+ * ones within the window replace it, and only the latest is delivered once the window closes. Windows are delivered
+ * in the order they were opened, and as a notification only ever replaces an older one of the same order, a user
+ * never hears about an order going back to an earlier status. The notifications held in open windows count against
+ * the capacity like the queued ones, so the dispatcher never holds more notifications than its capacity.
+ */
+public class NotificationDispatcher implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 16_384;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final Duration DEFAULT_IDLE_WAIT = Duration.ofMillis(50);
+    public static final Duration DEFAULT_COALESCING_WINDOW = Duration.ofSeconds(1);
+    public static final String INVALID_LIMIT = "Capacity and batch size must be positive";
+    public static final String USER_AND_STATUS_REQUIRED = "User and OrderStatus cannot be null";
+    public static final String INVALID_COALESCING_WINDOW = "Coalescing window cannot be negative";
+    private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+    private final int capacity;
+    private final int batchSize;
+    private final long idleWaitNanos;
+    private final long coalescingWindowNanos;
+    private final Map<Key, OpenWindow> openWindows = new LinkedHashMap<>();
+    private final Queue<Notification> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final List<NotificationChannel> channels = new CopyOnWriteArrayList<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final Thread dispatcherThread;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a new NotificationDispatcher with the default limits and coalescing window and starts it.
+     */
+    public NotificationDispatcher() {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_IDLE_WAIT, DEFAULT_COALESCING_WINDOW);
+    }
+
+    /**
+     * Constructs a new NotificationDispatcher which does not coalesce and starts it.
+     *
+     * @param capacity  the most notifications waiting to be dispatched
+     * @param batchSize the most notifications handed to a channel at once
+     * @param idleWait  how long the dispatcher waits when there is nothing to dispatch
+     */
+    public NotificationDispatcher(final int capacity, final int batchSize, final Duration idleWait) {
+        this(capacity, batchSize, idleWait, Duration.ZERO);
+    }
+
+    /**
+     * Constructs a new NotificationDispatcher and starts it.
+     *
+     * @param capacity         the most notifications waiting to be dispatched
+     * @param batchSize        the most notifications handed to a channel at once
+     * @param idleWait         how long the dispatcher waits when there is nothing to dispatch
+     * @param coalescingWindow how long the notifications of an order are coalesced, or zero not to coalesce
+     */
+    public NotificationDispatcher(final int capacity, final int batchSize, final Duration idleWait,
+                                  final Duration coalescingWindow) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException(INVALID_LIMIT);
+        }
+        if (coalescingWindow.isNegative()) {
+            throw new IllegalArgumentException(INVALID_COALESCING_WINDOW);
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.idleWaitNanos = idleWait.toNanos();
+        this.coalescingWindowNanos = coalescingWindow.toNanos();
+        this.dispatcherThread = new Thread(this::dispatchLoop, "notification-dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    /**
+     * Adds a channel the notifications are delivered to.
+     *
+     * @param channel the channel
+     */
+    public void addChannel(final NotificationChannel channel) {
+        channels.add(channel);
+    }
+
+    /**
+     * Removes a channel.
+     *
+     * @param channel the channel
+     */
+    public void removeChannel(final NotificationChannel channel) {
+        channels.remove(channel);
+    }
+
+    /**
+     * Queues a notification, without blocking.
+     *
+     * @param notification the notification
+     * @return true if the notification was queued, false if it was dropped because the queue is full or the
+     * dispatcher is closed
+     */
+    public boolean submit(final Notification notification) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(notification);
+        return true;
+    }
+
+    /**
+     * Queues a notification that the status of an order changed, without blocking.
+     *
+     * @param user        the user to notify
+     * @param orderId     the ID of the order
+     * @param orderStatus the new status of the order
+     * @return true if the notification was queued, false if it was dropped
+     */
+    public boolean notifyUser(final User user, final UUID orderId, final OrderStatus orderStatus) {
+        if (user == null || orderStatus == null) {
+            throw new IllegalArgumentException(USER_AND_STATUS_REQUIRED);
+        }
+        return submit(new Notification(user, orderId, orderStatus, Instant.now()));
+    }
+
+    /**
+     * Returns the number of notifications dropped because the queue was full or the dispatcher was closed.
+     *
+     * @return the number of dropped notifications
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the number of notifications handed to the channels.
+     *
+     * @return the number of delivered notifications
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Returns the number of notifications replaced by a later notification of the same order within its window.
+     *
+     * @return the number of suppressed notifications
+     */
+    public long suppressed() {
+        return suppressed.get();
+    }
+
+    /**
+     * Returns the number of batches a channel failed to deliver.
+     *
+     * @return the number of failed deliveries
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Stops taking notifications and dispatches the queued ones, without waiting for their windows to close.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcherThread);
+        try {
+            dispatcherThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Dispatches batches until the dispatcher is closed, then dispatches what is left.
+     */
+    private void dispatchLoop() {
+        while (running) {
+            final boolean drained = drainBatch();
+            flushWindows(System.nanoTime(), false);
+            if (!drained) {
+                LockSupport.parkNanos(this, openWindows.isEmpty() ? idleWaitNanos
+                        : Math.min(idleWaitNanos, Math.max(1, untilFirstWindowCloses())));
+            }
+        }
+        while (drainBatch()) {
+            flushWindows(System.nanoTime(), true);
+        }
+        flushWindows(System.nanoTime(), true);
+    }
+
+    /**
+     * Takes up to one batch of notifications from the queue, delivering them right away if they are not coalesced
+     * or adding them to the windows of their orders if they are.
+     *
+     * @return true if there was anything in the queue
+     */
+    private boolean drainBatch() {
+        final List<Notification> batch = new ArrayList<>(Math.min(batchSize, Math.max(1, pending.get())));
+        Notification notification;
+        while (batch.size() < batchSize && (notification = queue.poll()) != null) {
+            batch.add(notification);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        if (coalescingWindowNanos == 0) {
+            pending.addAndGet(-batch.size());
+            deliver(batch);
+            return true;
+        }
+        final long now = System.nanoTime();
+        for (Notification next : batch) {
+            final Key key = new Key(next.user().getUsername(), next.orderId());
+            final OpenWindow open = openWindows.get(key);
+            if (open == null) {
+                openWindows.put(key, new OpenWindow(next, now + coalescingWindowNanos));
+            } else {
+                open.latest = next;
+                pending.decrementAndGet();
+                suppressed.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Delivers the latest notification of every window which has closed, in batches, in the order the windows
+     * were opened.
+     *
+     * @param now the current time, in nanoseconds
+     * @param all whether to deliver every window, closed or not
+     */
+    private void flushWindows(final long now, final boolean all) {
+        final List<Notification> batch = new ArrayList<>();
+        final Iterator<OpenWindow> windows = openWindows.values().iterator();
+        while (windows.hasNext()) {
+            final OpenWindow oldest = windows.next();
+            if (!all && now - oldest.closesAt < 0) {
+                break;
+            }
+            batch.add(oldest.latest);
+            windows.remove();
+            if (batch.size() == batchSize) {
+                pending.addAndGet(-batch.size());
+                deliver(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            pending.addAndGet(-batch.size());
+            deliver(batch);
+        }
+    }
+
+    private long untilFirstWindowCloses() {
+        return openWindows.values().iterator().next().closesAt - System.nanoTime();
+    }
+
+    /**
+     * Hands a batch of notifications to every channel.
+     *
+     * @param batch the notifications
+     */
+    private void deliver(final List<Notification> batch) {
+        final List<Notification> notifications = List.copyOf(batch);
+        for (NotificationChannel channel : channels) {
+            try {
+                channel.deliver(notifications);
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.log(Level.WARNING, "Could not deliver notifications", e);
+            }
+        }
+        delivered.addAndGet(notifications.size());
+    }
+
+    /**
+     * The user and order notifications are coalesced by.
+     */
+    private record Key(String username, UUID orderId) {
+    }
+
+    /**
+     * The latest notification of an open window and when the window closes.
+     */
+    private static final class OpenWindow {
+        private final long closesAt;
+        private Notification latest;
+
+        private OpenWindow(final Notification latest, final long closesAt) {
+            this.latest = latest;
+            this.closesAt = closesAt;
+        }
+    }
+}
@@ -3,30 +3,62 @@ package org.pancakelab.util;
 import org.pancakelab.model.AuthorizationFailureException;
 import org.pancakelab.model.OrderStatus;
 import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.model.Privileges;
 import org.pancakelab.model.User;
 
+import java.net.URI;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.UUID;
 
 public class PancakeUtils {
 
     public static final String USER_IS_NOT_AUTHORIZED = "User does not have enough privileges to perform this action";
-    private static final Logger logger = Logger.getLogger(PancakeUtils.class.getName());
 
     private PancakeUtils() {
     }
 
-    public static void notifyUser(User user, OrderStatus orderStatus) {
-        if (user == null || orderStatus == null) {
-            throw new IllegalArgumentException("User and OrderStatus cannot be null");
-        }
-        logger.info("Notifying %s that the order is %s".formatted(user, orderStatus));
+    /**
+     * Notifies a user through the default dispatcher that the status of an order changed.
+     *
+     * @param user        the user to notify
+     * @param orderId     the ID of the order
+     * @param orderStatus the new status of the order
+     */
+    public static void notifyUser(User user, UUID orderId, OrderStatus orderStatus) {
+        notifications().notifyUser(user, orderId, orderStatus);
+    }
+
+    /**
+     * Returns the default dispatcher of the user notifications, which logs them and posts them to the webhook
+     * endpoints listed in the {@value WebhookNotificationChannel#ENDPOINTS_PROPERTY} system property, if any; invalid
+     * endpoints are logged and skipped. It is used by the services which are not given a dispatcher of their own,
+     * and is only started once one of them needs it.
+     *
+     * @return the default notification dispatcher
+     */
+    public static NotificationDispatcher notifications() {
+        return DefaultNotifications.DISPATCHER;
     }
 
-    public static void authorizeUser(User user, String service, Character privilege) throws PancakeServiceException {
-        List<Character> userPrivileges = user.getPrivileges().get(service);
-        if (userPrivileges == null || !userPrivileges.contains(privilege)) {
+    public static void authorizeUser(User user, String service, Privileges privilege) throws PancakeServiceException {
+        if (!user.hasPrivilege(service, privilege)) {
             throw new AuthorizationFailureException(USER_IS_NOT_AUTHORIZED);
         }
     }
+
+    /**
+     * Holds the default dispatcher, so that it is started on first use rather than when the class is loaded.
+     */
+    private static final class DefaultNotifications {
+        private static final NotificationDispatcher DISPATCHER = new NotificationDispatcher();
+
+        static {
+            DISPATCHER.addChannel(new LoggingNotificationChannel());
+            final List<URI> webhooks = WebhookNotificationChannel.configuredEndpoints(
+                    System.getProperty(WebhookNotificationChannel.ENDPOINTS_PROPERTY));
+            if (!webhooks.isEmpty()) {
+                DISPATCHER.addChannel(new WebhookNotificationChannel(webhooks));
+            }
+        }
+    }
 }
@@ -0,0 +1,102 @@
+package org.pancakelab.util;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hashes passwords with salted PBKDF2-HMAC-SHA256, deliberately slow so that a leaked hash is costly to crack.
+ * A hash is encoded with its iterations and salt as {@code pbkdf2-sha256$iterations$salt$hash}, so hashes made
+ * with fewer iterations keep verifying after the default is raised.
+ */
+public class PasswordHasher {
+    public static final String PREFIX = "pbkdf2-sha256";
+    public static final int DEFAULT_ITERATIONS = 100_000;
+    public static final String INVALID_ITERATIONS = "Iterations must be positive";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String SEPARATOR = "$";
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH_BITS = 256;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Constructs a new PasswordHasher with the default iterations.
+     */
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Constructs a new PasswordHasher.
+     *
+     * @param iterations the iterations of new hashes
+     */
+    public PasswordHasher(final int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException(INVALID_ITERATIONS);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Hashes a password with a new random salt.
+     *
+     * @param password the password
+     * @return the encoded hash
+     */
+    public String hash(final char[] password) {
+        final byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        final Base64.Encoder encoder = Base64.getEncoder();
+        return String.join(SEPARATOR, PREFIX, String.valueOf(iterations), encoder.encodeToString(salt),
+                encoder.encodeToString(derive(password, salt, iterations)));
+    }
+
+    /**
+     * Verifies a password against an encoded hash, comparing the hashes in constant time.
+     *
+     * @param password the password
+     * @param encoded  the encoded hash
+     * @return true if the password matches, false if it does not or the hash is malformed
+     */
+    public boolean verify(final char[] password, final String encoded) {
+        if (password == null || !isHash(encoded)) {
+            return false;
+        }
+        final String[] parts = encoded.split("\\" + SEPARATOR);
+        try {
+            final int hashIterations = Integer.parseInt(parts[1]);
+            final byte[] salt = Base64.getDecoder().decode(parts[2]);
+            final byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return hashIterations > 0 && MessageDigest.isEqual(derive(password, salt, hashIterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tells whether a value looks like an encoded hash rather than a plain password.
+     *
+     * @param value the value
+     * @return true if the value is an encoded hash
+     */
+    public static boolean isHash(final String value) {
+        return value != null && value.startsWith(PREFIX + SEPARATOR) && value.split("\\" + SEPARATOR).length == 4;
+    }
+
+    private static byte[] derive(final char[] password, final byte[] salt, final int iterations) {
+        final PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, KEY_LENGTH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
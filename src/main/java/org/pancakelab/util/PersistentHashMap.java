@@ -0,0 +1,383 @@
+package org.pancakelab.util;
+
+import java.util.*;
+
+/**
+ * An immutable hash array mapped trie. Every update returns a new map that shares all untouched branches with the
+ * original, so an update copies only the path from the root to the changed entry and a reference to the map is a
+ * consistent snapshot that never needs to be copied or locked.
+ * The map itself rejects the mutators of {@link Map}; use {@link #with(Object, Object)} and
+ * {@link #without(Object)} instead.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int HASH_BITS = 32;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Object root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(final Object root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a map with the entry added or replaced.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return the new map, or this map if it already holds the same entry
+     */
+    public PersistentHashMap<K, V> with(final K key, final V value) {
+        final int hash = Objects.hashCode(key);
+        final boolean[] added = new boolean[1];
+        final Object newRoot = root == null
+                ? new Leaf<>(hash, key, value)
+                : put(root, 0, hash, key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, root == null || added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the entry of a key.
+     *
+     * @param key the key of the entry
+     * @return the new map, or this map if there is no entry for the key
+     */
+    public PersistentHashMap<K, V> without(final Object key) {
+        if (root == null) {
+            return this;
+        }
+        final Object newRoot = remove(root, 0, Objects.hashCode(key), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Leaf<K, V> leaf = find(key);
+        return leaf == null ? null : leaf.getValue();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new LeafIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Looks up the leaf of a key by following the hash bits from the root.
+     *
+     * @param key the key
+     * @return the leaf, or null if there is no entry for the key
+     */
+    @SuppressWarnings("unchecked")
+    private Leaf<K, V> find(final Object key) {
+        final int hash = Objects.hashCode(key);
+        Object node = root;
+        int shift = 0;
+        while (node instanceof Branch branch) {
+            final int bit = bit(hash, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return null;
+            }
+            node = branch.children[branch.index(bit)];
+            shift += BITS;
+        }
+        if (node instanceof Leaf<?, ?> leaf) {
+            return leaf.matches(hash, key) ? (Leaf<K, V>) leaf : null;
+        }
+        if (node instanceof Collision collision) {
+            for (final Leaf<?, ?> leaf : collision.leaves) {
+                if (Objects.equals(leaf.getKey(), key)) {
+                    return (Leaf<K, V>) leaf;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of a node with the entry added or replaced.
+     *
+     * @param node  the node
+     * @param shift the number of hash bits consumed above the node
+     * @param hash  the hash of the key
+     * @param key   the key
+     * @param value the value
+     * @param added set to true if the key was not in the node before
+     * @return the new node, or the same node if it already holds the same entry
+     */
+    private static <K, V> Object put(final Object node, final int shift, final int hash, final K key, final V value,
+                                     final boolean[] added) {
+        if (node instanceof Branch branch) {
+            final int bit = bit(hash, shift);
+            final int index = branch.index(bit);
+            if ((branch.bitmap & bit) == 0) {
+                added[0] = true;
+                final Object[] children = new Object[branch.children.length + 1];
+                System.arraycopy(branch.children, 0, children, 0, index);
+                children[index] = new Leaf<>(hash, key, value);
+                System.arraycopy(branch.children, index, children, index + 1, branch.children.length - index);
+                return new Branch(branch.bitmap | bit, children);
+            }
+            final Object child = branch.children[index];
+            final Object newChild = put(child, shift + BITS, hash, key, value, added);
+            return newChild == child ? branch : branch.replace(index, newChild);
+        }
+        if (node instanceof Leaf<?, ?> leaf) {
+            if (leaf.matches(hash, key)) {
+                return Objects.equals(leaf.getValue(), value) ? leaf : new Leaf<>(hash, key, value);
+            }
+            added[0] = true;
+            return merge(leaf, new Leaf<>(hash, key, value), shift);
+        }
+        final Collision collision = (Collision) node;
+        for (int i = 0; i < collision.leaves.length; i++) {
+            final Leaf<?, ?> leaf = collision.leaves[i];
+            if (Objects.equals(leaf.getKey(), key)) {
+                if (Objects.equals(leaf.getValue(), value)) {
+                    return collision;
+                }
+                final Leaf<?, ?>[] leaves = collision.leaves.clone();
+                leaves[i] = new Leaf<>(hash, key, value);
+                return new Collision(leaves);
+            }
+        }
+        added[0] = true;
+        final Leaf<?, ?>[] leaves = Arrays.copyOf(collision.leaves, collision.leaves.length + 1);
+        leaves[collision.leaves.length] = new Leaf<>(hash, key, value);
+        return new Collision(leaves);
+    }
+
+    /**
+     * Builds the smallest subtree holding two leaves with different keys.
+     *
+     * @param existing the leaf already in the trie
+     * @param added    the new leaf
+     * @param shift    the number of hash bits consumed above the subtree
+     * @return the subtree
+     */
+    private static Object merge(final Leaf<?, ?> existing, final Leaf<?, ?> added, final int shift) {
+        if (shift >= HASH_BITS) {
+            return new Collision(new Leaf<?, ?>[]{existing, added});
+        }
+        final int existingBit = bit(existing.hash, shift);
+        final int addedBit = bit(added.hash, shift);
+        if (existingBit == addedBit) {
+            return new Branch(existingBit, new Object[]{merge(existing, added, shift + BITS)});
+        }
+        return new Branch(existingBit | addedBit, Integer.compareUnsigned(existingBit, addedBit) < 0
+                ? new Object[]{existing, added}
+                : new Object[]{added, existing});
+    }
+
+    /**
+     * Returns a copy of a node without the entry of a key.
+     *
+     * @param node  the node
+     * @param shift the number of hash bits consumed above the node
+     * @param hash  the hash of the key
+     * @param key   the key
+     * @return the new node, the same node if there is no entry for the key, or null if the node became empty
+     */
+    private static Object remove(final Object node, final int shift, final int hash, final Object key) {
+        if (node instanceof Branch branch) {
+            final int bit = bit(hash, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return branch;
+            }
+            final int index = branch.index(bit);
+            final Object child = branch.children[index];
+            final Object newChild = remove(child, shift + BITS, hash, key);
+            if (newChild == child) {
+                return branch;
+            }
+            if (newChild != null) {
+                if (branch.children.length == 1 && newChild instanceof Leaf) {
+                    return newChild;
+                }
+                return branch.replace(index, newChild);
+            }
+            if (branch.children.length == 1) {
+                return null;
+            }
+            final Object[] children = new Object[branch.children.length - 1];
+            System.arraycopy(branch.children, 0, children, 0, index);
+            System.arraycopy(branch.children, index + 1, children, index, children.length - index);
+            if (children.length == 1 && children[0] instanceof Leaf) {
+                return children[0];
+            }
+            return new Branch(branch.bitmap & ~bit, children);
+        }
+        if (node instanceof Leaf<?, ?> leaf) {
+            return leaf.matches(hash, key) ? null : leaf;
+        }
+        final Collision collision = (Collision) node;
+        for (int i = 0; i < collision.leaves.length; i++) {
+            if (Objects.equals(collision.leaves[i].getKey(), key)) {
+                if (collision.leaves.length == 2) {
+                    return collision.leaves[1 - i];
+                }
+                final Leaf<?, ?>[] leaves = new Leaf<?, ?>[collision.leaves.length - 1];
+                System.arraycopy(collision.leaves, 0, leaves, 0, i);
+                System.arraycopy(collision.leaves, i + 1, leaves, i, leaves.length - i);
+                return new Collision(leaves);
+            }
+        }
+        return collision;
+    }
+
+    /**
+     * Returns the bitmap bit selected by the hash bits at a depth of the trie.
+     *
+     * @param hash  the hash
+     * @param shift the number of hash bits consumed above the depth
+     * @return the bit
+     */
+    private static int bit(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * An entry of the map, stored with the hash of its key.
+     */
+    private static final class Leaf<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int hash;
+
+        private Leaf(final int hash, final K key, final V value) {
+            super(key, value);
+            this.hash = hash;
+        }
+
+        private boolean matches(final int hash, final Object key) {
+            return this.hash == hash && Objects.equals(getKey(), key);
+        }
+    }
+
+    /**
+     * An inner node holding only the children that exist, indexed by the bits set in the bitmap.
+     */
+    private record Branch(int bitmap, Object[] children) {
+
+        private int index(final int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Branch replace(final int index, final Object child) {
+            final Object[] copy = children.clone();
+            copy[index] = child;
+            return new Branch(bitmap, copy);
+        }
+    }
+
+    /**
+     * The leaves of keys whose hashes are equal in all bits.
+     */
+    private record Collision(Leaf<?, ?>[] leaves) {
+    }
+
+    /**
+     * Walks the trie depth first, yielding the leaves.
+     */
+    private static final class LeafIterator<K, V> implements Iterator<Entry<K, V>> {
+        private final Deque<Iterator<Object>> path = new ArrayDeque<>();
+        private Leaf<K, V> next;
+
+        private LeafIterator(final Object root) {
+            if (root != null) {
+                path.push(List.of(root).iterator());
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final Leaf<K, V> current = next;
+            advance();
+            return current;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!path.isEmpty()) {
+                final Iterator<Object> nodes = path.peek();
+                if (!nodes.hasNext()) {
+                    path.pop();
+                    continue;
+                }
+                final Object node = nodes.next();
+                if (node instanceof Leaf<?, ?> leaf) {
+                    next = (Leaf<K, V>) leaf;
+                    return;
+                }
+                if (node instanceof Branch branch) {
+                    path.push(Arrays.asList(branch.children).iterator());
+                } else {
+                    path.push(Arrays.asList((Object[]) ((Collision) node).leaves).iterator());
+                }
+            }
+        }
+    }
+}
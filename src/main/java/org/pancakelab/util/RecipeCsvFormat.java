@@ -0,0 +1,259 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.ValidationException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes pancake recipes as CSV, one recipe per line:
+ * <pre>
+ * name,chocolate,hazelnuts,whippedCream,otherIngredients
+ * Dark Chocolate Pancake,DARK,false,false,banana;cinnamon
+ * </pre>
+ * A field holding a comma or a double quote, or starting or ending with white space, is quoted, with its double
+ * quotes doubled. Quoted fields are read verbatim while unquoted ones are stripped, so that every recipe written
+ * is read back as it was. A field cannot hold a line break. The other ingredients are separated by semicolons,
+ * hence an ingredient name cannot hold one, and such a recipe is rejected when written. Files are read one line at a time and every
+ * recipe is handed over as soon as it is parsed, so the memory used does not grow with the size of the file
+ * beyond the names seen, which are kept to reject duplicates.
+ */
+public final class RecipeCsvFormat {
+    public static final String HEADER = "name,chocolate,hazelnuts,whippedCream,otherIngredients";
+    public static final String INVALID_LINE = "Line %d: %s";
+    public static final String MISSING_HEADER = "Expected the header " + HEADER;
+    public static final String INVALID_FIELD_COUNT = "Expected 5 fields but found %d";
+    public static final String INVALID_CHOCOLATE = "Unknown chocolate %s";
+    public static final String INVALID_FLAG = "Expected true or false but found %s";
+    public static final String UNTERMINATED_QUOTE = "Unterminated quoted field";
+    public static final String DUPLICATE_RECIPE = "Duplicate recipe %s";
+    public static final String LINE_BREAK_IN_FIELD = "Field cannot hold a line break: %s";
+    public static final String SEPARATOR_IN_INGREDIENT = "Ingredient cannot hold a semicolon: %s";
+    private static final int FIELD_COUNT = 5;
+    private static final String INGREDIENT_SEPARATOR = ";";
+
+    private RecipeCsvFormat() {
+    }
+
+    /**
+     * Reads recipes, validating every one with {@link PancakeRecipe.Builder}.
+     * Blank lines are skipped. Reading stops at the first invalid line.
+     *
+     * @param reader the source of the CSV
+     * @param sink   receives every recipe as soon as it is read
+     * @return the number of recipes read
+     * @throws ValidationException if a line is not a valid recipe, with the number of the line in the message
+     * @throws IOException         if the source cannot be read
+     */
+    public static int read(final Reader reader, final Consumer<PancakeRecipe> sink)
+            throws ValidationException, IOException {
+        final BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        final Set<String> names = new HashSet<>();
+        int lineNumber = 0;
+        boolean headerRead = false;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (!headerRead) {
+                if (!HEADER.equals(line.strip())) {
+                    throw invalidLine(lineNumber, MISSING_HEADER);
+                }
+                headerRead = true;
+                continue;
+            }
+            final PancakeRecipe recipe;
+            try {
+                recipe = parse(line);
+            } catch (IllegalArgumentException e) {
+                throw invalidLine(lineNumber, e.getMessage());
+            }
+            if (!names.add(recipe.getName())) {
+                throw invalidLine(lineNumber, DUPLICATE_RECIPE.formatted(recipe.getName()));
+            }
+            sink.accept(recipe);
+        }
+        return names.size();
+    }
+
+    /**
+     * Writes recipes, ordered by name, after the header.
+     *
+     * @param recipes the recipes
+     * @param writer  the target of the CSV
+     * @throws IOException if the target cannot be written, a field holds a line break or an ingredient holds a
+     *                     semicolon
+     */
+    public static void write(final Collection<PancakeRecipe> recipes, final Writer writer) throws IOException {
+        writer.write(HEADER);
+        writer.write('\n');
+        for (PancakeRecipe recipe : new TreeSet<>(recipes)) {
+            writer.write(quote(recipe.getName()));
+            writer.write(',');
+            writer.write(recipe.getChocolate().name());
+            writer.write(',');
+            writer.write(String.valueOf(recipe.hasHazelNuts()));
+            writer.write(',');
+            writer.write(String.valueOf(recipe.hasWhippedCream()));
+            writer.write(',');
+            writer.write(quote(ingredients(recipe.getOtherIngredients())));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Parses a recipe line.
+     *
+     * @param line the line
+     * @return the recipe
+     * @throws IllegalArgumentException if the line is not a valid recipe
+     */
+    private static PancakeRecipe parse(final String line) {
+        final List<Field> fields = split(line);
+        if (fields.size() != FIELD_COUNT) {
+            throw new IllegalArgumentException(INVALID_FIELD_COUNT.formatted(fields.size()));
+        }
+        final PancakeRecipe.Builder builder = new PancakeRecipe.Builder()
+                .withName(fields.get(0).value())
+                .withChocolate(chocolate(fields.get(1).value()))
+                .withOtherIngredients(otherIngredients(fields.get(4)));
+        if (flag(fields.get(2).value())) {
+            builder.withHazelNuts();
+        }
+        if (flag(fields.get(3).value())) {
+            builder.withWhippedCream();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Splits a line into its fields, unquoting the quoted ones and stripping the others. White space outside the
+     * quotes of a quoted field is ignored.
+     *
+     * @param line the line
+     * @return the fields
+     * @throws IllegalArgumentException if a quoted field is not terminated
+     */
+    private static List<Field> split(final String line) {
+        final List<Field> fields = new ArrayList<>(FIELD_COUNT);
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                if (!wasQuoted) {
+                    final String before = field.toString().strip();
+                    field.setLength(0);
+                    field.append(before);
+                }
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(Field.of(field, wasQuoted));
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted || !Character.isWhitespace(c)) {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException(UNTERMINATED_QUOTE);
+        }
+        fields.add(Field.of(field, wasQuoted));
+        return fields;
+    }
+
+    private static PancakeRecipe.CHOCOLATE chocolate(final String value) {
+        try {
+            return PancakeRecipe.CHOCOLATE.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(INVALID_CHOCOLATE.formatted(value));
+        }
+    }
+
+    private static boolean flag(final String value) {
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException(INVALID_FLAG.formatted(value));
+    }
+
+    private static Set<String> otherIngredients(final Field field) {
+        final Set<String> ingredients = new HashSet<>();
+        for (String ingredient : field.value().split(INGREDIENT_SEPARATOR)) {
+            if (!ingredient.isBlank()) {
+                ingredients.add(field.quoted() ? ingredient : ingredient.strip());
+            }
+        }
+        return ingredients;
+    }
+
+    /**
+     * Joins the other ingredients of a recipe, ordered by name.
+     *
+     * @param ingredients the ingredients
+     * @return the ingredients, separated by semicolons
+     * @throws IOException if an ingredient holds a semicolon, which would read back as two ingredients
+     */
+    private static String ingredients(final Collection<String> ingredients) throws IOException {
+        for (String ingredient : ingredients) {
+            if (ingredient.contains(INGREDIENT_SEPARATOR)) {
+                throw new IOException(SEPARATOR_IN_INGREDIENT.formatted(ingredient));
+            }
+        }
+        return String.join(INGREDIENT_SEPARATOR, new TreeSet<>(ingredients));
+    }
+
+    /**
+     * Quotes a field if it holds a comma or a double quote, or starts or ends with white space.
+     *
+     * @param field the field
+     * @return the field, quoted if needed
+     * @throws IOException if the field holds a line break, which a line of the CSV cannot
+     */
+    private static String quote(final String field) throws IOException {
+        if (field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            throw new IOException(LINE_BREAK_IN_FIELD.formatted(field.replace("\r", "\\r").replace("\n", "\\n")));
+        }
+        final boolean padded = !field.isEmpty() && (Character.isWhitespace(field.charAt(0))
+                || Character.isWhitespace(field.charAt(field.length() - 1)));
+        if (!padded && field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static ValidationException invalidLine(final int lineNumber, final String reason) {
+        return new ValidationException(INVALID_LINE.formatted(lineNumber, reason));
+    }
+
+    /**
+     * A field of a line and whether it was quoted.
+     */
+    private record Field(String value, boolean quoted) {
+        private static Field of(final CharSequence value, final boolean quoted) {
+            return new Field(quoted ? value.toString() : value.toString().strip(), quoted);
+        }
+    }
+}
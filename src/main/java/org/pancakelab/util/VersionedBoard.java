@@ -0,0 +1,267 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.Page;
+import org.pancakelab.model.ValidationException;
+
+import java.util.*;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A map of board entries with a monotonically increasing version and a bounded log of the latest changes.
+ * The entries are held in a persistent map published through a volatile reference: writers, which are serialized,
+ * copy only the path to the changed entry, and readers get a consistent snapshot without locking.
+ * Clients polling the board remember the version they have seen and only fetch the changes since then; a client
+ * whose version has fallen out of the change log gets a full snapshot instead.
+ * Entries are also indexed by their arrival, so that the board can be read page by page in a stable order.
+ * Changes are also pushed to subscribers. Every subscriber has its own bounded buffer and receives events only
+ * as it requests them; the board never waits for a slow subscriber, it drops the events that do not fit the
+ * subscriber's buffer, and the subscriber catches up with a delta read once it notices the gap in the versions.
+ *
+ * @param <K> the type of the board keys
+ * @param <V> the type of the board values
+ */
+public class VersionedBoard<K, V> {
+
+    public static final int DEFAULT_CHANGE_LOG_CAPACITY = 1024;
+    public static final String INVALID_CURSOR = "Invalid page cursor";
+    public static final String INVALID_PAGE_SIZE = "Page size must be positive";
+
+    private volatile PersistentHashMap<K, V> entries = PersistentHashMap.empty();
+    private final ConcurrentNavigableMap<Long, K> arrivalIndex = new ConcurrentSkipListMap<>();
+    private final Map<K, Long> arrivals = new HashMap<>();
+    private final Deque<Change<K, V>> changeLog = new ArrayDeque<>();
+    private final int changeLogCapacity;
+    private final SubmissionPublisher<BoardEvent<K, V>> publisher = new SubmissionPublisher<>();
+    private long version;
+
+    /**
+     * Constructs a new VersionedBoard with the default change log capacity.
+     */
+    public VersionedBoard() {
+        this(DEFAULT_CHANGE_LOG_CAPACITY);
+    }
+
+    /**
+     * Constructs a new VersionedBoard.
+     *
+     * @param changeLogCapacity the number of changes kept for delta reads
+     */
+    public VersionedBoard(final int changeLogCapacity) {
+        if (changeLogCapacity <= 0) {
+            throw new IllegalArgumentException("Change log capacity must be positive");
+        }
+        this.changeLogCapacity = changeLogCapacity;
+    }
+
+    /**
+     * Adds or replaces an entry. A replaced entry keeps its place in the arrival order.
+     *
+     * @param key   the key of the entry
+     * @param value the value of the entry
+     * @return the version of the board after the change
+     */
+    public synchronized long put(final K key, final V value) {
+        entries = entries.with(key, value);
+        log(new Change<>(++version, key, value));
+        if (!arrivals.containsKey(key)) {
+            arrivals.put(key, version);
+            arrivalIndex.put(version, key);
+        }
+        publish(new BoardEvent<>(version, BoardEvent.Type.PUT, key, value));
+        return version;
+    }
+
+    /**
+     * Removes an entry. Removing a missing entry does not change the version.
+     *
+     * @param key the key of the entry
+     * @return the removed value, or null if there was no entry
+     */
+    public synchronized V remove(final K key) {
+        final V removed = entries.get(key);
+        if (removed != null) {
+            entries = entries.without(key);
+            arrivalIndex.remove(arrivals.remove(key));
+            log(new Change<>(++version, key, null));
+            publish(new BoardEvent<>(version, BoardEvent.Type.REMOVE, key, null));
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param key the key of the entry
+     * @return the value, or null if there is no entry
+     */
+    public V get(final K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the current version of the board.
+     *
+     * @return the version
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Returns all entries. The entries are an immutable map that later changes never touch, so the snapshot is
+     * returned as is, without copying or locking.
+     *
+     * @return the entries of the board
+     */
+    public Map<K, V> snapshot() {
+        return entries;
+    }
+
+    /**
+     * Returns the changes since a version, collapsed per key, so that only the net effect of each key is returned.
+     *
+     * @param sinceVersion the version the client has already seen, or 0 for a fresh client
+     * @return the changes since the version, or a full snapshot if the version is no longer in the change log
+     */
+    public synchronized BoardChanges<K, V> changesSince(final long sinceVersion) {
+        if (sinceVersion == version) {
+            return new BoardChanges<>(version, false, Map.of(), Set.of());
+        }
+        final Change<K, V> oldest = changeLog.peekFirst();
+        if (sinceVersion > version || oldest == null || sinceVersion < oldest.version() - 1) {
+            return new BoardChanges<>(version, true, entries, Set.of());
+        }
+        final Map<K, V> added = new HashMap<>();
+        final Set<K> removed = new HashSet<>();
+        final Iterator<Change<K, V>> changes = changeLog.descendingIterator();
+        while (changes.hasNext()) {
+            final Change<K, V> change = changes.next();
+            if (change.version() <= sinceVersion) {
+                break;
+            }
+            if (added.containsKey(change.key()) || removed.contains(change.key())) {
+                continue;
+            }
+            if (change.value() == null) {
+                removed.add(change.key());
+            } else {
+                added.put(change.key(), change.value());
+            }
+        }
+        return new BoardChanges<>(version, false, added, removed);
+    }
+
+    /**
+     * Returns a page of entries in arrival order. Fetching a page walks only the entries of the page, however large
+     * the board is. Entries added after the cursor was issued show up on later pages, and removed entries are
+     * skipped, so paging through a changing board never returns an entry twice.
+     *
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param pageSize the maximum number of entries of the page
+     * @return the page
+     * @throws ValidationException if the cursor or the page size is invalid
+     */
+    public Page<K, V> page(final String cursor, final int pageSize) throws ValidationException {
+        if (pageSize <= 0) {
+            throw new ValidationException(INVALID_PAGE_SIZE);
+        }
+        final Map<K, V> page = new LinkedHashMap<>();
+        long last = cursor == null ? 0 : decodeCursor(cursor);
+        for (final Map.Entry<Long, K> arrival : arrivalIndex.tailMap(last, false).entrySet()) {
+            if (page.size() == pageSize) {
+                return new Page<>(page, encodeCursor(last));
+            }
+            final V value = entries.get(arrival.getValue());
+            if (value != null) {
+                page.put(arrival.getValue(), value);
+            }
+            last = arrival.getKey();
+        }
+        return new Page<>(page, null);
+    }
+
+    /**
+     * Subscribes to the changes of the board made after the subscription.
+     *
+     * @param subscriber the subscriber
+     */
+    public void subscribe(final Flow.Subscriber<? super BoardEvent<K, V>> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Completes all subscriptions; later changes are no longer pushed.
+     */
+    public synchronized void close() {
+        publisher.close();
+    }
+
+    /**
+     * Appends a change to the log, evicting the oldest change once the log is full.
+     *
+     * @param change the change
+     */
+    private void log(final Change<K, V> change) {
+        changeLog.addLast(change);
+        if (changeLog.size() > changeLogCapacity) {
+            changeLog.pollFirst();
+        }
+    }
+
+    /**
+     * Encodes the arrival of the last entry of a page as an opaque cursor.
+     *
+     * @param arrival the arrival of the last entry of the page
+     * @return the cursor
+     */
+    private static String encodeCursor(final long arrival) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(arrival).array());
+    }
+
+    /**
+     * Decodes a cursor issued by {@link #encodeCursor(long)}.
+     *
+     * @param cursor the cursor
+     * @return the arrival of the last entry of the previous page
+     * @throws ValidationException if the cursor was not issued by the board
+     */
+    private static long decodeCursor(final String cursor) throws ValidationException {
+        try {
+            final byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new ValidationException(INVALID_CURSOR);
+            }
+            final long arrival = ByteBuffer.wrap(bytes).getLong();
+            if (arrival <= 0) {
+                throw new ValidationException(INVALID_CURSOR);
+            }
+            return arrival;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(INVALID_CURSOR, e);
+        }
+    }
+
+    /**
+     * Offers an event to the subscribers without waiting, dropping it for subscribers whose buffer is full.
+     *
+     * @param event the event
+     */
+    private void publish(final BoardEvent<K, V> event) {
+        if (publisher.hasSubscribers() && !publisher.isClosed()) {
+            publisher.offer(event, (subscriber, dropped) -> false);
+        }
+    }
+
+    /**
+     * A logged change; a null value marks a removal.
+     */
+    private record Change<K, V>(long version, K key, V value) {
+    }
+}
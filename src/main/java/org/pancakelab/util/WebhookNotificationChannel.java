@@ -0,0 +1,419 @@
+package org.pancakelab.util;
+
+import org.pancakelab.model.Notification;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Posts the notifications to webhook endpoints, one JSON array per batch.
+ * The endpoints share a single HTTP client, which keeps their connections open between batches. Every endpoint
+ * has its own worker thread and a bounded backlog of batches, so the dispatcher only hands a batch over and never
+ * waits for an endpoint; a slow or dead endpoint holds up neither the other endpoints nor the other channels, and
+ * once its backlog is full its further batches are dropped and counted.
+ * A batch which fails with an I/O error, a server error or too many requests is retried with exponential backoff,
+ * within a time limit per batch; any other client error is not retried. Every endpoint has its own circuit breaker,
+ * and the batches of an endpoint whose breaker is open are counted and skipped without calling it.
+ */
+public class WebhookNotificationChannel implements NotificationChannel, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(WebhookNotificationChannel.class.getName());
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(2);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_MAX_DELIVERY_TIME = Duration.ofSeconds(10);
+    public static final int DEFAULT_MAX_PENDING_BATCHES = 64;
+    public static final String ENDPOINTS_PROPERTY = "pancakelab.notifications.webhooks";
+    public static final String NO_ENDPOINTS = "At least one endpoint is required";
+    public static final String INVALID_ENDPOINT = "Endpoint must be an http or https URI: %s";
+    public static final String INVALID_LIMIT = "Max attempts and max pending batches must be positive";
+
+    private final HttpClient client;
+    private final Map<URI, Endpoint> endpoints = new LinkedHashMap<>();
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration requestTimeout;
+    private final long maxDeliveryNanos;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs a new WebhookNotificationChannel with the default retry policy, circuit breakers and backlog.
+     *
+     * @param endpoints the URIs the notifications are posted to
+     */
+    public WebhookNotificationChannel(final Collection<URI> endpoints) {
+        this(endpoints, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF, DEFAULT_REQUEST_TIMEOUT,
+                DEFAULT_MAX_DELIVERY_TIME, CircuitBreaker.DEFAULT_FAILURE_THRESHOLD,
+                CircuitBreaker.DEFAULT_OPEN_DURATION, DEFAULT_MAX_PENDING_BATCHES);
+    }
+
+    /**
+     * Constructs a new WebhookNotificationChannel.
+     *
+     * @param endpoints         the URIs the notifications are posted to
+     * @param maxAttempts       the number of attempts to post a batch to an endpoint
+     * @param initialBackoff    the wait before the first retry, doubled for every further retry
+     * @param maxBackoff        the longest wait between retries
+     * @param requestTimeout    the longest wait for the response to a post
+     * @param maxDeliveryTime   the longest time spent on a batch for an endpoint, retries included
+     * @param failureThreshold  the number of consecutive failed batches opening the circuit breaker of an endpoint
+     * @param openDuration      how long an endpoint is skipped once its circuit breaker opened
+     * @param maxPendingBatches the most batches waiting to be posted to an endpoint
+     */
+    public WebhookNotificationChannel(final Collection<URI> endpoints, final int maxAttempts,
+                                      final Duration initialBackoff, final Duration maxBackoff,
+                                      final Duration requestTimeout, final Duration maxDeliveryTime,
+                                      final int failureThreshold, final Duration openDuration,
+                                      final int maxPendingBatches) {
+        if (endpoints == null || endpoints.isEmpty()) {
+            throw new IllegalArgumentException(NO_ENDPOINTS);
+        }
+        if (maxAttempts <= 0 || maxPendingBatches <= 0) {
+            throw new IllegalArgumentException(INVALID_LIMIT);
+        }
+        for (URI endpoint : endpoints) {
+            validate(endpoint);
+            this.endpoints.put(endpoint, new Endpoint(endpoint,
+                    new CircuitBreaker(failureThreshold, openDuration), maxPendingBatches));
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.requestTimeout = requestTimeout;
+        this.maxDeliveryNanos = maxDeliveryTime.toNanos();
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .build();
+    }
+
+    /**
+     * Parses a comma separated list of webhook endpoints, as given in the {@value #ENDPOINTS_PROPERTY} system
+     * property.
+     *
+     * @param endpoints the endpoints, separated by commas
+     * @return the URIs of the endpoints, empty if there are none
+     * @throws IllegalArgumentException if an endpoint is not an http or https URI
+     */
+    public static List<URI> parseEndpoints(final String endpoints) {
+        final List<URI> uris = new ArrayList<>();
+        if (endpoints == null) {
+            return uris;
+        }
+        for (String endpoint : endpoints.split(",")) {
+            if (!endpoint.isBlank()) {
+                final URI uri;
+                try {
+                    uri = URI.create(endpoint.strip());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(INVALID_ENDPOINT.formatted(endpoint.strip()), e);
+                }
+                validate(uri);
+                uris.add(uri);
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Parses the configured webhook endpoints, logging and skipping the invalid ones, so that a mistake in the
+     * configuration costs that endpoint only rather than the notifications altogether.
+     *
+     * @param endpoints the endpoints, separated by commas, or null if none are configured
+     * @return the URIs of the valid endpoints, empty if there are none
+     */
+    static List<URI> configuredEndpoints(final String endpoints) {
+        final List<URI> uris = new ArrayList<>();
+        if (endpoints == null) {
+            return uris;
+        }
+        for (String endpoint : endpoints.split(",")) {
+            try {
+                uris.addAll(parseEndpoints(endpoint));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Skipping the webhook endpoint in %s: %s".formatted(ENDPOINTS_PROPERTY, e.getMessage()));
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Hands a batch of notifications to the worker of every endpoint, without waiting for it to be posted.
+     *
+     * @param notifications the notifications
+     */
+    @Override
+    public void deliver(final List<Notification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        final String body = toJson(notifications);
+        for (Endpoint endpoint : endpoints.values()) {
+            try {
+                endpoint.worker.execute(() -> post(endpoint, body, notifications.size()));
+            } catch (RejectedExecutionException e) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Stops taking batches and waits for the pending ones to be posted, up to the delivery time limit of a batch,
+     * before giving up on the rest.
+     */
+    @Override
+    public void close() {
+        endpoints.values().forEach(endpoint -> endpoint.worker.shutdown());
+        final long deadline = System.nanoTime() + maxDeliveryNanos;
+        for (Endpoint endpoint : endpoints.values()) {
+            try {
+                if (!endpoint.worker.awaitTermination(Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS)) {
+                    dropped.addAndGet(endpoint.worker.shutdownNow().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.addAndGet(endpoint.worker.shutdownNow().size());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of notifications posted, counted once per endpoint.
+     *
+     * @return the number of delivered notifications
+     */
+    public long delivered() {
+        return delivered.get();
+    }
+
+    /**
+     * Returns the number of posts which were retried.
+     *
+     * @return the number of retries
+     */
+    public long retried() {
+        return retried.get();
+    }
+
+    /**
+     * Returns the number of batches an endpoint did not take after every attempt.
+     *
+     * @return the number of failed batches
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the number of batches not posted to an endpoint because its circuit breaker was open.
+     *
+     * @return the number of short-circuited batches
+     */
+    public long shortCircuited() {
+        return shortCircuited.get();
+    }
+
+    /**
+     * Returns the number of batches dropped because the backlog of an endpoint was full or the channel was closed.
+     *
+     * @return the number of dropped batches
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the state of the circuit breaker of an endpoint.
+     *
+     * @param endpoint the URI of the endpoint
+     * @return the state, or null if the endpoint is not known
+     */
+    public CircuitBreaker.State circuitState(final URI endpoint) {
+        final Endpoint known = endpoints.get(endpoint);
+        return known == null ? null : known.breaker.state();
+    }
+
+    /**
+     * Posts a batch to an endpoint on its worker, unless its circuit breaker is open, and records the outcome.
+     *
+     * @param endpoint the endpoint
+     * @param body     the batch as JSON
+     * @param size     the number of notifications of the batch
+     */
+    private void post(final Endpoint endpoint, final String body, final int size) {
+        if (!endpoint.breaker.allowRequest()) {
+            shortCircuited.incrementAndGet();
+            return;
+        }
+        boolean posted;
+        try {
+            posted = post(endpoint.uri, body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            posted = false;
+        }
+        if (posted) {
+            endpoint.breaker.recordSuccess();
+            delivered.addAndGet(size);
+        } else {
+            endpoint.breaker.recordFailure();
+            failed.incrementAndGet();
+            logger.warning("Could not deliver %d notifications to %s".formatted(size, endpoint.uri));
+        }
+    }
+
+    /**
+     * Posts a batch to an endpoint, retrying with backoff while the failure may be transient and the delivery time
+     * limit of the batch is not reached.
+     *
+     * @param endpoint the URI of the endpoint
+     * @param body     the batch as JSON
+     * @return true if the endpoint took the batch
+     * @throws InterruptedException if the worker is interrupted while posting or backing off
+     */
+    private boolean post(final URI endpoint, final String body) throws InterruptedException {
+        final long deadline = System.nanoTime() + maxDeliveryNanos;
+        for (int attempt = 1; ; attempt++) {
+            final long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            final HttpRequest request = HttpRequest.newBuilder(endpoint)
+                    .timeout(Duration.ofNanos(Math.min(requestTimeout.toNanos(), remainingNanos)))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            boolean retryable;
+            try {
+                final int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status >= 200 && status < 300) {
+                    return true;
+                }
+                retryable = status >= 500 || status == 429;
+                logger.fine("Webhook %s answered %d".formatted(endpoint, status));
+            } catch (IOException e) {
+                retryable = true;
+                logger.fine("Could not reach webhook %s: %s".formatted(endpoint, e));
+            }
+            final Duration backoff = backoff(attempt);
+            if (!retryable || attempt == maxAttempts || deadline - System.nanoTime() <= backoff.toNanos()) {
+                return false;
+            }
+            retried.incrementAndGet();
+            Thread.sleep(backoff.toMillis());
+        }
+    }
+
+    /**
+     * Returns the wait before a retry, doubling from the initial backoff up to the maximum backoff.
+     *
+     * @param retry the number of the retry, starting at 1
+     * @return the wait
+     */
+    private Duration backoff(final long retry) {
+        final long shift = Math.min(retry - 1, 20);
+        final Duration backoff = initialBackoff.multipliedBy(1L << shift);
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static void validate(final URI endpoint) {
+        final String scheme = endpoint == null || endpoint.getScheme() == null
+                ? "" : endpoint.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https")) {
+            throw new IllegalArgumentException(INVALID_ENDPOINT.formatted(endpoint));
+        }
+    }
+
+    /**
+     * Writes a batch of notifications as a JSON array.
+     *
+     * @param notifications the notifications
+     * @return the JSON
+     */
+    static String toJson(final List<Notification> notifications) {
+        final StringBuilder json = new StringBuilder(notifications.size() * 128).append('[');
+        for (Notification notification : notifications) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"username\":");
+            appendString(json, notification.user().getUsername());
+            json.append(",\"orderId\":");
+            if (notification.orderId() == null) {
+                json.append("null");
+            } else {
+                appendString(json, notification.orderId().toString());
+            }
+            json.append(",\"status\":");
+            appendString(json, notification.status().name());
+            json.append(",\"at\":");
+            appendString(json, notification.at().toString());
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append("\\u%04x".formatted((int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * An endpoint with its circuit breaker and the single worker posting its batches in order.
+     */
+    private static final class Endpoint {
+        private final URI uri;
+        private final CircuitBreaker breaker;
+        private final ThreadPoolExecutor worker;
+
+        private Endpoint(final URI uri, final CircuitBreaker breaker, final int maxPendingBatches) {
+            this.uri = uri;
+            this.breaker = breaker;
+            this.worker = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(maxPendingBatches), runnable -> {
+                final Thread thread = new Thread(runnable, "webhook-" + uri.getHost() + ":" + uri.getPort());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
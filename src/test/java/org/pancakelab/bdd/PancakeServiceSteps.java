@@ -129,6 +129,11 @@ public class PancakeServiceSteps {
         addOrderToTheSystem(user, OrderStatus.CREATED);
     }
 
+    @Given("a disciple {string} has a completed order")
+    public void a_disciple_has_a_completed_order(String user) {
+        addOrderToTheSystem(user, OrderStatus.COMPLETED);
+    }
+
     @Given("a disciple {string} has an order in progress")
     public void a_disciple_has_an_order_in_progress(String user) {
         addOrderToTheSystem(user, OrderStatus.IN_PROGRESS);
@@ -0,0 +1,44 @@
+package org.pancakelab.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserTest {
+
+    @Test
+    void givenPrivilegeCodes_whenHasPrivilege_thenOnlyTheGrantedPrivilegesOfTheResourceAreHeld() {
+        // Given
+        final User user = new User("user", "password".toCharArray(), Map.of(
+                "order", List.of('C', 'R'),
+                "kitchen", List.of('U')
+        ));
+        // When & Then
+        assertTrue(user.hasPrivilege("order", Privileges.CREATE));
+        assertTrue(user.hasPrivilege("order", Privileges.READ));
+        assertFalse(user.hasPrivilege("order", Privileges.DELETE));
+        assertTrue(user.hasPrivilege("kitchen", Privileges.UPDATE));
+        assertFalse(user.hasPrivilege("kitchen", Privileges.READ));
+        assertFalse(user.hasPrivilege("delivery", Privileges.READ));
+    }
+
+    @Test
+    void givenPrivilegesChangedAfterCreation_whenHasPrivilege_thenTheCompiledPrivilegesApply() {
+        // Given
+        final List<Character> codes = new ArrayList<>(List.of('R'));
+        final Map<String, List<Character>> privileges = new HashMap<>(Map.of("order", codes));
+        final User user = new User("user", "password".toCharArray(), privileges);
+        // When
+        codes.add('D');
+        privileges.put("kitchen", List.of('R'));
+        // Then
+        assertFalse(user.hasPrivilege("order", Privileges.DELETE));
+        assertFalse(user.hasPrivilege("kitchen", Privileges.READ));
+        assertEquals(List.of('R'), user.getPrivileges().get("order"));
+    }
+}
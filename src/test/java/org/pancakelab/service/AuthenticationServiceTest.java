@@ -4,15 +4,30 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.pancakelab.model.AuthenticationFailureException;
 import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.model.Privileges;
+import org.pancakelab.model.SessionToken;
 import org.pancakelab.model.User;
+import org.pancakelab.util.HmacSigner;
+import org.pancakelab.util.PasswordHasher;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.pancakelab.service.AuthenticationServiceImpl.INVALID_SESSION;
 import static org.pancakelab.service.AuthenticationServiceImpl.INVALID_USER;
+import static org.pancakelab.service.AuthenticationServiceImpl.SESSION_EXPIRED;
 import static org.pancakelab.service.AuthenticationServiceImpl.USER_IS_NOT_AUTHENTICATED;
 
 public class AuthenticationServiceTest {
@@ -63,4 +78,84 @@ public class AuthenticationServiceTest {
                 PancakeServiceException.class, () -> authService.authenticate(null));
         assertEquals(INVALID_USER, exception.getMessage());
     }
+
+    @Test
+    void givenLoggedInUser_whenAuthenticate_thenTheSessionIsAccepted() throws PancakeServiceException {
+        // Given
+        final User session = authService.login(
+                new User("validUser", "validPassword".toCharArray(), Map.of()));
+        // When
+        // Then
+        assertNotNull(session.getSession());
+        assertTrue(session.hasPrivilege("kitchen", Privileges.DELETE));
+        assertDoesNotThrow(() -> authService.authenticate(session));
+    }
+
+    @Test
+    void givenSessionMovedToUserWithMorePrivileges_whenAuthenticate_thenExceptionThrown()
+            throws PancakeServiceException {
+        // Given
+        final User stored = new User("reader", "password".toCharArray(), Map.of("order", List.of('R')));
+        final AuthenticationService service = new AuthenticationServiceImpl(Set.of(stored));
+        final SessionToken token = service.login(stored).getSession();
+        final User forged = new User("reader", "password".toCharArray(), privileges).withSession(token);
+        // When
+        // Then
+        PancakeServiceException exception = assertThrows(
+                AuthenticationFailureException.class, () -> service.authenticate(forged));
+        assertEquals(INVALID_SESSION, exception.getMessage());
+    }
+
+    @Test
+    void givenExpiredSession_whenAuthenticate_thenExceptionThrown() throws PancakeServiceException {
+        // Given
+        final User stored = new User("user", "password".toCharArray(), privileges);
+        final Instant loggedInAt = Instant.parse("2024-01-01T10:00:00Z");
+        final HmacSigner signer = new HmacSigner();
+        final UserDirectory directory = new UserDirectory(Set.of(stored));
+        final User session = new AuthenticationServiceImpl(directory, signer, Duration.ofMinutes(30),
+                Clock.fixed(loggedInAt, ZoneOffset.UTC)).login(stored);
+        final AuthenticationService later = new AuthenticationServiceImpl(directory, signer,
+                Duration.ofMinutes(30), Clock.fixed(loggedInAt.plus(Duration.ofMinutes(30)), ZoneOffset.UTC));
+        // When
+        // Then
+        PancakeServiceException exception = assertThrows(
+                AuthenticationFailureException.class, () -> later.authenticate(session));
+        assertEquals(SESSION_EXPIRED, exception.getMessage());
+    }
+
+    @Test
+    void givenPasswordResetWithTheSamePrivileges_whenAuthenticateWithAnOlderSession_thenExceptionThrown()
+            throws PancakeServiceException {
+        // Given
+        final User stored = new User("user", "password".toCharArray(), privileges);
+        final UserDirectory directory = new UserDirectory(Set.of(stored));
+        final AuthenticationService service = new AuthenticationServiceImpl(directory, new HmacSigner(),
+                Duration.ofMinutes(30), Clock.systemUTC());
+        final User session = service.login(new User("user", "password".toCharArray(), Map.of()));
+        // When
+        directory.add(new User("user", "newPassword".toCharArray(), privileges));
+        // Then
+        PancakeServiceException exception = assertThrows(
+                AuthenticationFailureException.class, () -> service.authenticate(session));
+        assertEquals(INVALID_SESSION, exception.getMessage());
+        assertDoesNotThrow(() -> service.authenticate(
+                service.login(new User("user", "newPassword".toCharArray(), Map.of()))));
+    }
+
+    @Test
+    void givenUnknownUsername_whenAuthenticate_thenThePasswordIsStillCheckedAgainstAHash() {
+        // Given
+        final PasswordHasher passwordHasher = spy(new PasswordHasher(1_000));
+        final UserDirectory directory = new UserDirectory(
+                Set.of(new User("user", "password".toCharArray(), privileges)), passwordHasher);
+        final AuthenticationService service = new AuthenticationServiceImpl(directory, passwordHasher,
+                new VerifiedCredentialCache(), new HmacSigner(), Duration.ofMinutes(30), Clock.systemUTC());
+        // When
+        PancakeServiceException exception = assertThrows(AuthenticationFailureException.class,
+                () -> service.authenticate(new User("nobody", "password".toCharArray(), Map.of())));
+        // Then
+        assertEquals(USER_IS_NOT_AUTHENTICATED, exception.getMessage());
+        verify(passwordHasher).verify(any(char[].class), anyString());
+    }
 }
@@ -204,4 +204,19 @@ class AuthorizedKitchenServiceTest {
         );
         assertEquals(USER_IS_NOT_AUTHORIZED, exception.getMessage());
     }
+
+    @Test
+    void givenAuditTrail_whenAccessIsAllowedOrDenied_thenEveryDecisionIsRecorded() throws PancakeServiceException {
+        // Given
+        final AuditTrail auditTrail = mock(AuditTrail.class);
+        final AuthorizedKitchenService audited =
+                new AuthorizedKitchenService(kitchenService, authenticationService, auditTrail);
+        // When
+        audited.viewOrders(privileged);
+        assertThrows(AuthorizationFailureException.class, () -> audited.viewOrders(unPrivileged));
+        // Then
+        verify(auditTrail).allowed(privileged, AuthorizedKitchenService.KITCHEN_RESOURCE_NAME, Privileges.READ);
+        verify(auditTrail).denied(unPrivileged, AuthorizedKitchenService.KITCHEN_RESOURCE_NAME, Privileges.READ,
+                USER_IS_NOT_AUTHORIZED);
+    }
 }
@@ -9,8 +9,10 @@ import org.pancakelab.model.*;
 import org.pancakelab.util.PancakeFactory;
 import org.pancakelab.util.Pancakes;
 
+import java.time.Instant;
 import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
@@ -20,6 +22,7 @@ class AuthorizedOrderServiceTest {
 
     private OrderService orderService;
     private AuthenticationService authenticationService;
+    private OrderOwnership orderOwnership;
     private AuthorizedOrderService authorizedOrderService;
     private User testUser;
     private User unPrivileged;
@@ -49,8 +52,11 @@ class AuthorizedOrderServiceTest {
         unPrivileged = new User("testUser", "password".toCharArray(), new HashMap<>());
         authenticationService = Mockito.mock(AuthenticationService.class);
         orderService = Mockito.mock(OrderService.class);
-        authorizedOrderService = new AuthorizedOrderService(orderService, authenticationService);
+        orderOwnership = Mockito.mock(OrderOwnership.class);
+        authorizedOrderService = new AuthorizedOrderService(
+                orderService, orderOwnership, authenticationService, AuditTrail.discard());
         deliveryInfo = new DeliveryInfo("1", "2");
+        when(orderOwnership.ownerOf(testOrderId)).thenReturn(testUser.getUsername());
     }
 
     @Test
@@ -137,6 +143,34 @@ class AuthorizedOrderServiceTest {
         assertThrows(AuthenticationFailureException.class, () -> authorizedOrderService.status(testUser, testOrderId));
     }
 
+    @Test
+    void shouldReturnEstimateWhenOwnerRequestsItAfterCompletingOrder() throws PancakeServiceException {
+        // Given
+        final Instant estimate = Instant.now();
+        when(orderService.createOrder(testUser, deliveryInfo)).thenReturn(testOrderId);
+        when(orderService.estimatedReadyAt(testUser, testOrderId)).thenReturn(estimate);
+        authorizedOrderService.createOrder(testUser, deliveryInfo);
+        authorizedOrderService.complete(testUser, testOrderId);
+        // When
+        final Instant result = authorizedOrderService.estimatedReadyAt(testUser, testOrderId);
+        // Then
+        assertEquals(estimate, result);
+        verify(orderService).estimatedReadyAt(testUser, testOrderId);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenOtherUserRequestsEstimate() throws PancakeServiceException {
+        // Given
+        when(orderService.createOrder(testUser, deliveryInfo)).thenReturn(testOrderId);
+        authorizedOrderService.createOrder(testUser, deliveryInfo);
+        final User otherUser = new User("otherUser", "password".toCharArray(), privileges);
+        // When
+        // Then
+        assertThrows(AuthorizationFailureException.class,
+                () -> authorizedOrderService.estimatedReadyAt(otherUser, testOrderId));
+        verify(orderService, never()).estimatedReadyAt(any(), any());
+    }
+
     @Test
     void shouldAuthenticateUserWhenCompletingOrder() throws PancakeServiceException {
         // Given
@@ -243,4 +277,14 @@ class AuthorizedOrderServiceTest {
         assertThrows(AuthorizationFailureException.class,
                 () -> authorizedOrderService.cancel(user, testOrderId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenOrderServiceWithoutOwners_whenDecorated_thenThrowsException() {
+        // Given
+        // When
+        // Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> new AuthorizedOrderService(orderService, authenticationService));
+        assertEquals(AuthorizedOrderService.ORDER_OWNERSHIP_REQUIRED, exception.getMessage());
+    }
+}
@@ -0,0 +1,118 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.OrderStatus;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChefWorkSchedulerTest {
+
+    private ConcurrentHashMap<UUID, OrderStatus> orderStatusRepository;
+    private ChefWorkScheduler chefWorkScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        orderStatusRepository = new ConcurrentHashMap<>();
+        chefWorkScheduler = new ChefWorkScheduler(orderStatusRepository);
+    }
+
+    private UUID completedOrder() {
+        final UUID orderId = UUID.randomUUID();
+        orderStatusRepository.put(orderId, OrderStatus.COMPLETED);
+        return orderId;
+    }
+
+    @Test
+    void givenOrdersDealtToOneChef_whenAnotherChefIsIdle_thenIdleChefStealsFromTheTail() {
+        // Given
+        chefWorkScheduler.registerChef("busyChef");
+        final UUID first = completedOrder();
+        final UUID second = completedOrder();
+        chefWorkScheduler.submit(first);
+        chefWorkScheduler.submit(second);
+        // When
+        final Optional<UUID> stolen = chefWorkScheduler.claimNext("idleChef");
+        final Optional<UUID> own = chefWorkScheduler.claimNext("busyChef");
+        // Then
+        assertEquals(Optional.of(second), stolen);
+        assertEquals(Optional.of(first), own);
+        assertEquals(OrderStatus.IN_PROGRESS, orderStatusRepository.get(first));
+        assertEquals(OrderStatus.IN_PROGRESS, orderStatusRepository.get(second));
+    }
+
+    @Test
+    void givenCancelledOrder_whenClaimNext_thenOrderIsSkipped() {
+        // Given
+        final UUID cancelled = completedOrder();
+        final UUID waiting = completedOrder();
+        orderStatusRepository.put(cancelled, OrderStatus.CANCELLED);
+        chefWorkScheduler.submit(cancelled);
+        chefWorkScheduler.submit(waiting);
+        // When
+        final Optional<UUID> claimed = chefWorkScheduler.claimNext("chef");
+        // Then
+        assertEquals(Optional.of(waiting), claimed);
+        assertEquals(OrderStatus.CANCELLED, orderStatusRepository.get(cancelled));
+        assertEquals(Optional.empty(), chefWorkScheduler.claimNext("chef"));
+    }
+
+    @Test
+    void givenUnregisteredChef_whenChefLeaves_thenPendingOrdersAreHandedToOtherChefs() {
+        // Given
+        chefWorkScheduler.registerChef("leavingChef");
+        final UUID orderId = completedOrder();
+        chefWorkScheduler.submit(orderId);
+        chefWorkScheduler.registerChef("stayingChef");
+        // When
+        chefWorkScheduler.unregisterChef("leavingChef");
+        // Then
+        assertEquals(1, chefWorkScheduler.chefCount());
+        assertEquals(1, chefWorkScheduler.pendingFor("stayingChef"));
+        assertEquals(Optional.of(orderId), chefWorkScheduler.claimNext("stayingChef"));
+    }
+
+    @Test
+    void givenManyChefs_whenClaimingConcurrently_thenEveryOrderIsClaimedExactlyOnce() throws Exception {
+        // Given
+        final int chefs = 4;
+        final int orders = 2_000;
+        final List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < chefs; i++) {
+            chefWorkScheduler.registerChef("chef" + i);
+        }
+        for (int i = 0; i < orders; i++) {
+            final UUID orderId = completedOrder();
+            orderIds.add(orderId);
+            chefWorkScheduler.submit(orderId);
+            // a duplicate submission must still be claimed only once
+            chefWorkScheduler.submit(orderId);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(chefs);
+        final List<Future<List<UUID>>> claims = new ArrayList<>();
+        // When
+        for (int i = 0; i < chefs; i++) {
+            final String chef = "chef" + i;
+            claims.add(executor.submit(() -> {
+                final List<UUID> claimed = new ArrayList<>();
+                Optional<UUID> orderId;
+                while ((orderId = chefWorkScheduler.claimNext(chef)).isPresent()) {
+                    claimed.add(orderId.get());
+                }
+                return claimed;
+            }));
+        }
+        final List<UUID> allClaimed = new ArrayList<>();
+        for (Future<List<UUID>> claim : claims) {
+            allClaimed.addAll(claim.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        // Then
+        assertEquals(orders, allClaimed.size());
+        assertEquals(new HashSet<>(orderIds), new HashSet<>(allClaimed));
+        assertTrue(orderStatusRepository.values().stream().allMatch(OrderStatus.IN_PROGRESS::equals));
+    }
+}
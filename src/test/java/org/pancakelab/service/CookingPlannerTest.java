@@ -0,0 +1,90 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.GriddleBatch;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CookingPlannerTest {
+
+    private CookingPlanner cookingPlanner;
+    private PancakeRecipe darkChocolate;
+    private PancakeRecipe milkChocolate;
+
+    @BeforeEach
+    public void setUp() {
+        cookingPlanner = new CookingPlanner(4);
+        darkChocolate = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+        milkChocolate = PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE);
+    }
+
+    @Test
+    void givenOrdersWithTheSameRecipe_whenPlanBatches_thenRecipeIsBatchedAcrossOrders() {
+        // Given
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        cookingPlanner.addOrder(orderId1, Map.of(darkChocolate, 3));
+        cookingPlanner.addOrder(orderId2, Map.of(darkChocolate, 3, milkChocolate, 1));
+        // When
+        final List<GriddleBatch> batches = cookingPlanner.planBatches();
+        // Then
+        assertEquals(3, batches.size());
+        assertEquals(darkChocolate, batches.get(0).recipe());
+        assertEquals(4, batches.get(0).quantity());
+        assertEquals(Map.of(orderId1, 3, orderId2, 1), batches.get(0).allocations());
+        assertEquals(Map.of(orderId2, 2), batches.get(1).allocations());
+        assertEquals(milkChocolate, batches.get(2).recipe());
+        assertEquals(Map.of(darkChocolate, 6, milkChocolate, 1), cookingPlanner.pendingTotals());
+    }
+
+    @Test
+    void givenPlannedBatches_whenBatchesAreCompleted_thenCookedOrdersAreReturned() {
+        // Given
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        cookingPlanner.addOrder(orderId1, Map.of(darkChocolate, 3));
+        cookingPlanner.addOrder(orderId2, Map.of(darkChocolate, 3));
+        final List<GriddleBatch> batches = cookingPlanner.planBatches();
+        // When
+        final Set<UUID> firstCooked = cookingPlanner.completeBatch(batches.get(0));
+        final Set<UUID> secondCooked = cookingPlanner.completeBatch(batches.get(1));
+        // Then
+        assertEquals(Set.of(orderId1), firstCooked);
+        assertEquals(Set.of(orderId2), secondCooked);
+        assertTrue(cookingPlanner.planBatches().isEmpty());
+        assertTrue(cookingPlanner.pendingTotals().isEmpty());
+    }
+
+    @Test
+    void givenRemovedOrder_whenPlanBatches_thenOrderIsNotPlanned() {
+        // Given
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        cookingPlanner.addOrder(orderId1, Map.of(darkChocolate, 2));
+        cookingPlanner.addOrder(orderId2, Map.of(darkChocolate, 1));
+        final GriddleBatch staleBatch = cookingPlanner.planBatches().get(0);
+        // When
+        cookingPlanner.removeOrder(orderId1);
+        // Then
+        assertEquals(List.of(new GriddleBatch(darkChocolate, Map.of(orderId2, 1))), cookingPlanner.planBatches());
+        assertEquals(Set.of(orderId2), cookingPlanner.completeBatch(staleBatch));
+    }
+
+    @Test
+    void givenInvalidCapacity_whenCreatingPlanner_thenThrowException() {
+        // Given
+        // When
+        // Then
+        final Exception exception = assertThrows(IllegalArgumentException.class, () -> new CookingPlanner(0));
+        assertEquals(CookingPlanner.INVALID_GRIDDLE_CAPACITY, exception.getMessage());
+    }
+}
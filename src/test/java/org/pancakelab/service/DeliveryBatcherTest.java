@@ -0,0 +1,93 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.DeliveryBatch;
+import org.pancakelab.model.DeliveryInfo;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeliveryBatcherTest {
+
+    private AtomicLong clock;
+    private DeliveryBatcher deliveryBatcher;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong();
+        deliveryBatcher = new DeliveryBatcher(3, Duration.ofMinutes(1), clock::get);
+    }
+
+    @Test
+    void givenFullBuilding_whenReleaseBatches_thenBatchIsReleasedGroupedByRoom() {
+        // Given
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        final UUID orderId3 = UUID.randomUUID();
+        final UUID otherBuilding = UUID.randomUUID();
+        deliveryBatcher.add(orderId1, new DeliveryInfo("12", "5"));
+        deliveryBatcher.add(orderId2, new DeliveryInfo("9", "5"));
+        deliveryBatcher.add(otherBuilding, new DeliveryInfo("9", "6"));
+        deliveryBatcher.add(orderId3, new DeliveryInfo("12", "5"));
+        // When
+        final List<DeliveryBatch> batches = deliveryBatcher.releaseBatches();
+        // Then
+        assertEquals(1, batches.size());
+        assertEquals("5", batches.get(0).buildingNo());
+        assertEquals(Map.of("9", List.of(orderId2), "12", List.of(orderId1, orderId3)), batches.get(0).ordersByRoom());
+        assertEquals(List.of(orderId2, orderId1, orderId3), batches.get(0).orderIds());
+        assertEquals(1, deliveryBatcher.waitingCount());
+    }
+
+    @Test
+    void givenWaitingOrders_whenMaxWaitElapses_thenPartialBatchIsReleased() {
+        // Given
+        final UUID orderId = UUID.randomUUID();
+        deliveryBatcher.add(orderId, new DeliveryInfo("1", "2"));
+        assertTrue(deliveryBatcher.releaseBatches().isEmpty());
+        // When
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        final List<DeliveryBatch> batches = deliveryBatcher.releaseBatches();
+        // Then
+        assertEquals(1, batches.size());
+        assertEquals(List.of(orderId), batches.get(0).orderIds());
+    }
+
+    @Test
+    void givenReleasedBatch_whenTakenTwice_thenOnlyTheFirstTakeSucceeds() {
+        // Given
+        deliveryBatcher = new DeliveryBatcher(3, Duration.ZERO, clock::get);
+        deliveryBatcher.add(UUID.randomUUID(), new DeliveryInfo("1", "2"));
+        final DeliveryBatch batch = deliveryBatcher.releaseBatches().get(0);
+        // When
+        final DeliveryBatch taken = deliveryBatcher.take(batch.batchId());
+        // Then
+        assertEquals(batch, taken);
+        assertNull(deliveryBatcher.take(batch.batchId()));
+        assertTrue(deliveryBatcher.releaseBatches().isEmpty());
+    }
+
+    @Test
+    void givenOrderInReleasedBatch_whenRemoved_thenBatchShrinks() {
+        // Given
+        deliveryBatcher = new DeliveryBatcher(3, Duration.ZERO, clock::get);
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        deliveryBatcher.add(orderId1, new DeliveryInfo("1", "2"));
+        deliveryBatcher.add(orderId2, new DeliveryInfo("3", "2"));
+        final DeliveryBatch batch = deliveryBatcher.releaseBatches().get(0);
+        // When
+        deliveryBatcher.remove(orderId1);
+        // Then
+        final List<DeliveryBatch> batches = deliveryBatcher.releaseBatches();
+        assertEquals(1, batches.size());
+        assertEquals(batch.batchId(), batches.get(0).batchId());
+        assertEquals(List.of(orderId2), batches.get(0).orderIds());
+    }
+}
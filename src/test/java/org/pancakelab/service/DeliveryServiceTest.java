@@ -5,13 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pancakelab.model.*;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingDeque;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -81,4 +85,78 @@ class DeliveryServiceTest {
                 }
         );
     }
+
+    @Test
+    void givenReadyOrdersForTheSameBuilding_whenAcceptBatch_thenAllOrdersAreOutForDelivery() throws Exception {
+        // Given
+        deliveriesQueue = new LinkedBlockingDeque<>();
+        deliveryService = new DeliveryServiceImpl(ordersRepository, orderStatusRepository, deliveriesQueue, 2, 2, Duration.ofMinutes(1));
+        final UUID orderId1 = readyOrder(new DeliveryInfo("1", "7"));
+        final UUID orderId2 = readyOrder(new DeliveryInfo("2", "7"));
+        Awaitility.await().until(() -> deliveryService.viewDeliveryBatches(user).size() == 1);
+        final DeliveryBatch batch = deliveryService.viewDeliveryBatches(user).get(0);
+        // When
+        deliveryService.acceptBatch(user, batch.batchId());
+        // Then
+        assertEquals(List.of(orderId1, orderId2), batch.orderIds());
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, orderStatusRepository.get(orderId1));
+        assertEquals(OrderStatus.OUT_FOR_DELIVERY, orderStatusRepository.get(orderId2));
+        assertThrows(PancakeServiceException.class, () -> deliveryService.acceptBatch(user, batch.batchId()));
+    }
+
+    @Test
+    void givenBatchWithAnOrderNoLongerReady_whenAcceptBatch_thenNoOrderIsAccepted() throws Exception {
+        // Given
+        deliveriesQueue = new LinkedBlockingDeque<>();
+        deliveryService = new DeliveryServiceImpl(ordersRepository, orderStatusRepository, deliveriesQueue, 2, 2, Duration.ofMinutes(1));
+        final UUID orderId1 = readyOrder(new DeliveryInfo("1", "7"));
+        final UUID orderId2 = readyOrder(new DeliveryInfo("2", "7"));
+        Awaitility.await().until(() -> deliveryService.viewDeliveryBatches(user).size() == 1);
+        final DeliveryBatch batch = deliveryService.viewDeliveryBatches(user).get(0);
+        orderStatusRepository.put(orderId2, OrderStatus.DELIVERED);
+        // When
+        final Exception exception = assertThrows(PancakeServiceException.class,
+                () -> deliveryService.acceptBatch(user, batch.batchId()));
+        // Then
+        assertEquals(DeliveryServiceImpl.BATCH_NOT_AVAILABLE, exception.getMessage());
+        assertEquals(OrderStatus.READY_FOR_DELIVERY, orderStatusRepository.get(orderId1));
+    }
+
+    @Test
+    void givenReadyOrdersInSeveralBuildings_whenViewCompletedOrdersOfARange_thenOnlyThoseBuildingsAreReturned()
+            throws Exception {
+        // Given
+        final UUID inRange1 = readyOrder(new DeliveryInfo("1", "10"));
+        final UUID inRange2 = readyOrder(new DeliveryInfo("4", "15"));
+        final UUID outOfRange = readyOrder(new DeliveryInfo("1", "16"));
+        Awaitility.await().until(() -> deliveryService.viewCompletedOrders(user).size() == 3);
+        // When
+        final Map<UUID, DeliveryInfo> completedOrders = deliveryService.viewCompletedOrders(user, 10, 15);
+        // Then
+        assertEquals(Set.of(inRange1, inRange2), completedOrders.keySet());
+        assertFalse(completedOrders.containsKey(outOfRange));
+        assertTrue(deliveryService.viewCompletedOrders(user, 15, 10).isEmpty());
+    }
+
+    @Test
+    void givenDeliveredOrder_whenViewCompletedOrdersOfARange_thenOrderIsNoLongerReturned() throws Exception {
+        // Given
+        final UUID orderId = readyOrder(new DeliveryInfo("1", "10"));
+        Awaitility.await().until(() -> deliveryService.viewCompletedOrders(user, 10, 10).size() == 1);
+        orderStatusRepository.put(orderId, OrderStatus.OUT_FOR_DELIVERY);
+        // When
+        deliveryService.sendForTheDelivery(user, orderId);
+        // Then
+        Awaitility.await().until(() -> deliveryService.viewCompletedOrders(user, 1, 100).isEmpty());
+    }
+
+    private UUID readyOrder(final DeliveryInfo deliveryInfo) throws InterruptedException {
+        final UUID orderId = UUID.randomUUID();
+        final OrderDetails orderDetails = mock(OrderDetails.class);
+        when(orderDetails.getDeliveryInfo()).thenReturn(deliveryInfo);
+        ordersRepository.put(orderId, orderDetails);
+        orderStatusRepository.put(orderId, OrderStatus.READY_FOR_DELIVERY);
+        deliveriesQueue.put(orderId);
+        return orderId;
+    }
 }
@@ -0,0 +1,89 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pancakelab.model.AuditEvent;
+import org.pancakelab.model.Privileges;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileAuditTrailTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenDecisions_whenClosed_thenEveryDecisionIsWrittenAsALine() throws IOException {
+        // Given
+        final Path file = directory.resolve("audit.log");
+        final FileAuditTrail auditTrail = new FileAuditTrail(file);
+        // When
+        auditTrail.record(new AuditEvent(Instant.EPOCH, "chef", "kitchen", Privileges.READ, true, null));
+        auditTrail.record(new AuditEvent(Instant.EPOCH, "guest\tadmin", "kitchen", Privileges.UPDATE, false,
+                "User does not have\nenough privileges"));
+        auditTrail.close();
+        // Then
+        assertEquals(List.of(
+                "1970-01-01T00:00:00Z\tALLOW\tchef\tkitchen\tREAD\t-",
+                "1970-01-01T00:00:00Z\tDENY\tguest admin\tkitchen\tUPDATE\tUser does not have enough privileges"
+        ), Files.readAllLines(file));
+        assertEquals(2, auditTrail.written());
+        assertEquals(0, auditTrail.dropped());
+    }
+
+    @Test
+    void givenFileOverItsLimit_whenWritten_thenTheFileIsRotatedAndOnlyTheNewestFilesAreKept() throws IOException {
+        // Given
+        final Path file = directory.resolve("audit.log");
+        final FileAuditTrail auditTrail = new FileAuditTrail(file, 1_000, 1, 100, 2, Duration.ofMillis(10));
+        // When
+        for (int i = 0; i < 10; i++) {
+            auditTrail.record(new AuditEvent(Instant.EPOCH, "user" + i, "order", Privileges.READ, true, null));
+        }
+        auditTrail.close();
+        // Then
+        assertEquals(10, auditTrail.written());
+        assertTrue(Files.exists(directory.resolve("audit.log.1")));
+        assertTrue(Files.exists(directory.resolve("audit.log.2")));
+        assertFalse(Files.exists(directory.resolve("audit.log.3")));
+        assertTrue(Files.readString(file).contains("user9"));
+        assertTrue(Files.size(file) <= 100);
+    }
+
+    @Test
+    void givenRotationFailing_whenWritten_thenTheDecisionsAreStillWrittenToTheCurrentFile() throws IOException {
+        // Given
+        final Path file = directory.resolve("audit.log");
+        Files.createDirectories(directory.resolve("audit.log.1"));
+        Files.writeString(directory.resolve("audit.log.1").resolve("blocker"), "");
+        final FileAuditTrail auditTrail = new FileAuditTrail(file, 1_000, 1, 100, 1, Duration.ofMillis(10));
+        // When
+        for (int i = 0; i < 10; i++) {
+            auditTrail.record(new AuditEvent(Instant.EPOCH, "user" + i, "order", Privileges.READ, true, null));
+        }
+        auditTrail.close();
+        // Then
+        assertEquals(10, auditTrail.written());
+        assertEquals(0, auditTrail.dropped());
+        assertEquals(10, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void givenClosedTrail_whenRecord_thenTheDecisionIsDroppedAndCounted() throws IOException {
+        // Given
+        final FileAuditTrail auditTrail = new FileAuditTrail(directory.resolve("audit.log"));
+        auditTrail.close();
+        // When
+        auditTrail.record(new AuditEvent(Instant.EPOCH, "chef", "kitchen", Privileges.READ, true, null));
+        // Then
+        assertEquals(1, auditTrail.dropped());
+        assertEquals(0, auditTrail.written());
+    }
+}
@@ -0,0 +1,95 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.pancakelab.service.IngredientInventory.INGREDIENT_OUT_OF_STOCK;
+import static org.pancakelab.service.IngredientInventory.UNLIMITED;
+
+class IngredientInventoryTest {
+
+    private static final String DARK_CHOCOLATE = PancakeRecipe.CHOCOLATE.DARK.getIngredient();
+
+    private IngredientInventory ingredientInventory;
+
+    @BeforeEach
+    public void setUp() {
+        ingredientInventory = new IngredientInventory();
+    }
+
+    @Test
+    void givenStock_whenReserveAndRelease_thenPortionsAreTakenAndGivenBack() throws PancakeServiceException {
+        // Given
+        ingredientInventory.restock(DARK_CHOCOLATE, 5);
+        ingredientInventory.restock(PancakeRecipe.HAZELNUTS, 5);
+        final Map<PancakeRecipe, Integer> pancakes = Map.of(
+                PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 1,
+                PancakeFactory.get(Pancakes.DARK_CHOCOLATE_WHIP_CREAM_HAZELNUTS_PANCAKE), 2
+        );
+        // When
+        ingredientInventory.reserve(pancakes);
+        // Then
+        assertEquals(2, ingredientInventory.available(DARK_CHOCOLATE));
+        assertEquals(3, ingredientInventory.available(PancakeRecipe.HAZELNUTS));
+        assertEquals(UNLIMITED, ingredientInventory.available(PancakeRecipe.WHIPPED_CREAM));
+        ingredientInventory.release(pancakes);
+        assertEquals(5, ingredientInventory.available(DARK_CHOCOLATE));
+        assertEquals(5, ingredientInventory.available(PancakeRecipe.HAZELNUTS));
+    }
+
+    @Test
+    void givenOneIngredientShort_whenReserve_thenNothingIsReserved() {
+        // Given
+        ingredientInventory.restock(DARK_CHOCOLATE, 5);
+        ingredientInventory.restock(PancakeRecipe.HAZELNUTS, 1);
+        // When
+        // Then
+        final PancakeServiceException exception = assertThrows(PancakeServiceException.class,
+                () -> ingredientInventory.reserve(
+                        Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_WHIP_CREAM_HAZELNUTS_PANCAKE), 2)));
+        assertEquals(INGREDIENT_OUT_OF_STOCK.formatted(PancakeRecipe.HAZELNUTS), exception.getMessage());
+        assertEquals(5, ingredientInventory.available(DARK_CHOCOLATE));
+        assertEquals(1, ingredientInventory.available(PancakeRecipe.HAZELNUTS));
+    }
+
+    @Test
+    void givenConcurrentReservations_whenStockRunsOut_thenItIsNeverOversold() throws Exception {
+        // Given
+        ingredientInventory.restock(DARK_CHOCOLATE, 100);
+        final Map<PancakeRecipe, Integer> pancakes = Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 3);
+        final AtomicInteger reserved = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        // When
+        final List<Future<?>> reservations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            reservations.add(executorService.submit(() -> {
+                try {
+                    ingredientInventory.reserve(pancakes);
+                    reserved.incrementAndGet();
+                } catch (PancakeServiceException ignored) {
+                    // out of stock
+                }
+            }));
+        }
+        for (Future<?> reservation : reservations) {
+            reservation.get();
+        }
+        executorService.shutdown();
+        // Then
+        assertEquals(33, reserved.get());
+        assertEquals(1, ingredientInventory.available(DARK_CHOCOLATE));
+    }
+}
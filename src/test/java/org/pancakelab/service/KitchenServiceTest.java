@@ -4,11 +4,15 @@ import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pancakelab.model.*;
+import org.pancakelab.util.DeliveryInformationValidator;
 import org.pancakelab.util.PancakeFactory;
 import org.pancakelab.util.Pancakes;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
@@ -16,6 +20,8 @@ import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.LinkedBlockingDeque;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -50,13 +56,45 @@ class KitchenServiceTest {
         final OrderDetails orderDetails = mock(OrderDetails.class);
         when(orderDetails.getOrderId()).thenReturn(orderId);
         ordersRepository.put(orderId, orderDetails);
-        orderStatusRepository.put(orderId, OrderStatus.READY_FOR_DELIVERY);
+        orderStatusRepository.put(orderId, OrderStatus.COMPLETED);
         // When
         chefService.acceptOrder(user, orderId);
         // Then
         Awaitility.await().until(() -> OrderStatus.IN_PROGRESS.equals(orderStatusRepository.get(orderId)));
     }
 
+    @Test
+    void givenOrderNotWaitingForTheKitchen_whenAcceptOrder_thenOrderStatusShouldNotChange() throws PancakeServiceException {
+        // Given
+        final UUID orderId = UUID.randomUUID();
+        final OrderDetails orderDetails = mock(OrderDetails.class);
+        ordersRepository.put(orderId, orderDetails);
+        orderStatusRepository.put(orderId, OrderStatus.READY_FOR_DELIVERY);
+        // When
+        chefService.acceptOrder(user, orderId);
+        // Then
+        Awaitility.await().during(Duration.ofMillis(200)).until(
+                () -> OrderStatus.READY_FOR_DELIVERY.equals(orderStatusRepository.get(orderId)));
+    }
+
+    @Test
+    void givenQueuedOrder_whenClaimNextOrder_thenOrderIsClaimedOnlyOnce() throws PancakeServiceException {
+        // Given
+        final UUID orderId = UUID.randomUUID();
+        final OrderDetails orderDetails = mock(OrderDetails.class);
+        when(orderDetails.getPancakes()).thenReturn(Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 1));
+        ordersRepository.put(orderId, orderDetails);
+        orderStatusRepository.put(orderId, OrderStatus.COMPLETED);
+        final User otherChef = new User("otherChef", "password".toCharArray(), new HashMap<>());
+        // When
+        ordersQueue.add(orderId);
+        Awaitility.await().until(() -> chefService.viewOrders(user).containsKey(orderId));
+        // Then
+        assertEquals(Optional.of(orderId), chefService.claimNextOrder(user));
+        assertEquals(Optional.empty(), chefService.claimNextOrder(otherChef));
+        assertEquals(OrderStatus.IN_PROGRESS, orderStatusRepository.get(orderId));
+    }
+
     @Test
     void givenValidOrder_whenNotifyOrderCompletion_thenOrderStatusShouldBeReadyForDeliveryAndAddedToQueue() throws PancakeServiceException {
         // Given
@@ -71,6 +109,39 @@ class KitchenServiceTest {
         Awaitility.await().until(() -> OrderStatus.READY_FOR_DELIVERY.equals(orderStatusRepository.get(orderId)));
     }
 
+    @Test
+    void givenOrderQueuedInSharedThroughputModel_whenNotifyOrderCompletion_thenItLeavesTheModel()
+            throws PancakeServiceException {
+        // Given
+        final KitchenThroughputModel throughputModel = ((KitchenServiceImpl) chefService).throughputModel();
+        final UUID orderId = UUID.randomUUID();
+        final OrderDetails orderDetails = mock(OrderDetails.class);
+        when(orderDetails.getOrderId()).thenReturn(orderId);
+        ordersRepository.put(orderId, orderDetails);
+        orderStatusRepository.put(orderId, OrderStatus.IN_PROGRESS);
+        throughputModel.orderQueued(orderId, Map.of(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE), 2));
+        // When
+        chefService.notifyOrderCompletion(user, orderId);
+        // Then
+        Awaitility.await().until(() -> throughputModel.queueDepth() == 0);
+        assertTrue(throughputModel.estimatedWait(orderId).isEmpty());
+    }
+
+    @Test
+    void givenOrderServiceOnTheKitchen_whenOrderIsQueued_thenItIsEstimatedFromTheKitchenModel()
+            throws PancakeServiceException {
+        // Given
+        final KitchenServiceImpl kitchen = (KitchenServiceImpl) chefService;
+        final OrderService orderService = new OrderServiceImpl(ordersRepository, orderStatusRepository,
+                new DeliveryInformationValidator(), ordersQueue, 2, kitchen);
+        final UUID orderId = UUID.randomUUID();
+        // When
+        kitchen.throughputModel().orderQueued(orderId,
+                Map.of(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE), 2));
+        // Then
+        assertNotNull(orderService.estimatedReadyAt(user, orderId));
+    }
+
     @Test
     void givenOrders_whenViewOrders_thenShouldReturnAllOrders() throws PancakeServiceException {
         // Given
@@ -95,4 +166,49 @@ class KitchenServiceTest {
                 .toList();
         assertEquals(2, pancakesList.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenQueuedOrders_whenPlanBatches_thenSameRecipeIsBatchedAcrossOrders() throws PancakeServiceException {
+        // Given
+        final PancakeRecipe darkChocolate = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        final OrderDetails orderDetails1 = mock(OrderDetails.class);
+        final OrderDetails orderDetails2 = mock(OrderDetails.class);
+        when(orderDetails1.getPancakes()).thenReturn(Map.of(darkChocolate, 2));
+        when(orderDetails2.getPancakes()).thenReturn(Map.of(darkChocolate, 3));
+        ordersRepository.put(orderId1, orderDetails1);
+        ordersRepository.put(orderId2, orderDetails2);
+        // When
+        ordersQueue.add(orderId1);
+        ordersQueue.add(orderId2);
+        // Then
+        Awaitility.await().until(() -> chefService.planBatches(user).stream().mapToInt(GriddleBatch::quantity).sum() == 5);
+        final GriddleBatch batch = chefService.planBatches(user).get(0);
+        assertEquals(darkChocolate, batch.recipe());
+        assertEquals(Set.of(orderId1, orderId2), chefService.completeBatch(user, batch));
+    }
+
+    @Test
+    void givenSeenVersion_whenViewOrderChanges_thenOnlyNewOrdersAreReturned() throws PancakeServiceException {
+        // Given
+        final UUID orderId1 = UUID.randomUUID();
+        final UUID orderId2 = UUID.randomUUID();
+        final OrderDetails orderDetails1 = mock(OrderDetails.class);
+        final OrderDetails orderDetails2 = mock(OrderDetails.class);
+        when(orderDetails1.getPancakes()).thenReturn(Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 1));
+        when(orderDetails2.getPancakes()).thenReturn(Map.of(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE), 1));
+        ordersRepository.put(orderId1, orderDetails1);
+        ordersRepository.put(orderId2, orderDetails2);
+        ordersQueue.add(orderId1);
+        Awaitility.await().until(() -> chefService.viewOrderChanges(user, 0).added().containsKey(orderId1));
+        final long seen = chefService.viewOrderChanges(user, 0).version();
+        // When
+        ordersQueue.add(orderId2);
+        // Then
+        Awaitility.await().until(() -> chefService.viewOrderChanges(user, seen).added().containsKey(orderId2));
+        final BoardChanges<UUID, Map<PancakeRecipe, Integer>> changes = chefService.viewOrderChanges(user, seen);
+        assertEquals(Set.of(orderId2), changes.added().keySet());
+        assertTrue(changes.removed().isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KitchenThroughputModelTest {
+
+    private final PancakeRecipe darkChocolate = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+    private final PancakeRecipe milkChocolate = PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE);
+    private AtomicLong clock;
+    private KitchenThroughputModel throughputModel;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new AtomicLong();
+        throughputModel = new KitchenThroughputModel(Duration.ofMinutes(1), 0.5, clock::get);
+    }
+
+    @Test
+    void givenQueuedOrders_whenEstimatedWait_thenWorkAheadIsSharedByTheChefs() {
+        // Given
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        throughputModel.orderQueued(first, Map.of(darkChocolate, 2));
+        throughputModel.orderQueued(second, Map.of(milkChocolate, 2));
+        // When
+        throughputModel.setActiveChefs(2);
+        // Then
+        assertEquals(Optional.of(Duration.ofMinutes(1)), throughputModel.estimatedWait(first));
+        assertEquals(Optional.of(Duration.ofMinutes(2)), throughputModel.estimatedWait(second));
+        throughputModel.orderCooked(first);
+        assertEquals(Optional.of(Duration.ofMinutes(1)), throughputModel.estimatedWait(second));
+        assertEquals(Optional.empty(), throughputModel.estimatedWait(first));
+        assertEquals(1, throughputModel.queueDepth());
+    }
+
+    @Test
+    void givenCookedOrder_whenCookTime_thenMovingAverageMovesTowardsTheObservation() {
+        // Given
+        final UUID orderId = UUID.randomUUID();
+        throughputModel.orderQueued(orderId, Map.of(darkChocolate, 1, milkChocolate, 1));
+        throughputModel.orderStarted(orderId);
+        // When
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+        throughputModel.orderCooked(orderId);
+        // Then
+        assertEquals(Duration.ofMinutes(2), throughputModel.cookTime(darkChocolate));
+        assertEquals(Duration.ofMinutes(2), throughputModel.cookTime(milkChocolate));
+        assertEquals(Duration.ofMinutes(1),
+                throughputModel.cookTime(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_HAZELNUTS_PANCAKE)));
+    }
+
+    @Test
+    void givenOrderNeverStarted_whenCooked_thenCookTimesAreNotLearned() {
+        // Given
+        final UUID orderId = UUID.randomUUID();
+        throughputModel.orderQueued(orderId, Map.of(darkChocolate, 1));
+        // When
+        clock.addAndGet(Duration.ofMinutes(10).toNanos());
+        throughputModel.orderCooked(orderId);
+        // Then
+        assertEquals(Duration.ofMinutes(1), throughputModel.cookTime(darkChocolate));
+        assertEquals(0, throughputModel.queueDepth());
+    }
+}
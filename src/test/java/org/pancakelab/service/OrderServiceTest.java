@@ -5,12 +5,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pancakelab.model.*;
 import org.pancakelab.util.DeliveryInformationValidator;
+import org.pancakelab.util.NotificationDispatcher;
 import org.pancakelab.util.PancakeFactory;
 import org.pancakelab.util.Pancakes;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.stream.Collectors;
 
@@ -143,6 +147,28 @@ class OrderServiceTest {
         Awaitility.await().until(() -> ordersQueue.contains(orderId));
     }
 
+    @Test
+    void givenOrder_whenCompletedAndCancelled_thenTheOwnerIsKnownUntilTheOrderIsGone() throws PancakeServiceException {
+        // Given
+        final OrderOwnership orderOwnership = (OrderServiceImpl) orderService;
+        final var completedId = orderService.createOrder(user, new DeliveryInfo("1", "2"));
+        final var other = new User("other", "password".toCharArray(), privileges);
+        final var cancelledId = orderService.createOrder(other, new DeliveryInfo("3", "4"));
+        when(recipeService.getRecipes(any())).thenReturn(Arrays.stream(Pancakes.values())
+                .map(PancakeFactory::get).collect(Collectors.toSet()));
+        orderService.addPancakes(user, completedId, Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 1));
+        assertEquals("user", orderOwnership.ownerOf(completedId));
+        assertEquals("other", orderOwnership.ownerOf(cancelledId));
+        // When
+        orderService.complete(user, completedId);
+        orderService.cancel(other, cancelledId);
+        // Then
+        Awaitility.await().until(() -> ordersRepository.containsKey(completedId));
+        assertEquals("user", orderOwnership.ownerOf(completedId));
+        Awaitility.await().until(() -> orderOwnership.ownerOf(cancelledId) == null);
+        assertNull(orderOwnership.ownerOf(UUID.randomUUID()));
+    }
+
     @Test
     void givenValidOrderId_then_cancel_shouldRemoveOrder() throws PancakeServiceException {
         // Given
@@ -161,6 +187,56 @@ class OrderServiceTest {
         assertEquals(OrderStatus.CANCELLED, orderStatusRepository.get(orderId));
     }
 
+    @Test
+    void givenIngredientOutOfStock_whenAddPancakes_thenRejectedUntilCancelledOrderReleasesIt()
+            throws PancakeServiceException {
+        // Given
+        final IngredientInventory ingredientInventory = new IngredientInventory();
+        ingredientInventory.restock(PancakeRecipe.CHOCOLATE.DARK.getIngredient(), 2);
+        orderService = new OrderServiceImpl(
+                ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, 10,
+                recipeService, ingredientInventory);
+        when(recipeService.getRecipes(any())).thenReturn(Arrays.stream(Pancakes.values())
+                .map(PancakeFactory::get).collect(Collectors.toSet()));
+        final var pancakes = Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 2);
+        final var firstOrderId = orderService.createOrder(user, new DeliveryInfo("1", "2"));
+        orderService.addPancakes(user, firstOrderId, pancakes);
+        final var secondOrderId = orderService.createOrder(
+                new User("other", "password".toCharArray(), privileges), new DeliveryInfo("3", "4"));
+        // When
+        final Exception exception = assertThrows(
+                PancakeServiceException.class,
+                () -> orderService.addPancakes(user, secondOrderId, pancakes)
+        );
+        orderService.cancel(user, firstOrderId);
+        // Then
+        assertEquals(IngredientInventory.INGREDIENT_OUT_OF_STOCK.formatted(
+                PancakeRecipe.CHOCOLATE.DARK.getIngredient()), exception.getMessage());
+        Awaitility.await().until(() -> ingredientInventory.available(PancakeRecipe.CHOCOLATE.DARK.getIngredient()) == 2);
+    }
+
+    @Test
+    void givenCompletedOrder_whenEstimatedReadyAt_thenEstimateFollowsTheKitchenQueue() throws PancakeServiceException {
+        // Given
+        final KitchenThroughputModel throughputModel = new KitchenThroughputModel(Duration.ofMinutes(1), 0.2);
+        orderService = new OrderServiceImpl(
+                ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, 10,
+                recipeService, new IngredientInventory(), throughputModel);
+        when(recipeService.getRecipes(any())).thenReturn(Arrays.stream(Pancakes.values())
+                .map(PancakeFactory::get).collect(Collectors.toSet()));
+        final var orderId = orderService.createOrder(user, new DeliveryInfo("1", "2"));
+        orderService.addPancakes(user, orderId, Map.of(PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE), 3));
+        assertThrows(PancakeServiceException.class, () -> orderService.estimatedReadyAt(user, orderId));
+        // When
+        orderService.complete(user, orderId);
+        Awaitility.await().until(() -> ordersQueue.contains(orderId));
+        final Instant before = Instant.now();
+        final Instant estimate = orderService.estimatedReadyAt(user, orderId);
+        // Then
+        assertFalse(estimate.isBefore(before.plus(Duration.ofMinutes(3))));
+        assertTrue(estimate.isBefore(Instant.now().plus(Duration.ofMinutes(3)).plusMillis(1)));
+    }
+
     @Test
     void givenNullOrderId_whenComplete_thenThrowException() {
         // Given
@@ -246,4 +322,23 @@ class OrderServiceTest {
                 () -> orderService.createOrder(user, new DeliveryInfo("1", "7")));
         assertEquals(OrderServiceImpl.USER_HAS_AN_ONGOING_ORDER, exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenOwnNotificationDispatcher_whenOrderIsCreated_thenTheUserIsNotifiedThroughIt()
+            throws PancakeServiceException {
+        // Given
+        final List<Notification> received = new CopyOnWriteArrayList<>();
+        try (NotificationDispatcher dispatcher = new NotificationDispatcher(10, 10, Duration.ofMillis(10))) {
+            dispatcher.addChannel(received::addAll);
+            final OrderService notifying = new OrderServiceImpl(
+                    ordersRepository, orderStatusRepository, deliveryInformationValidator, ordersQueue, 1,
+                    recipeService, new IngredientInventory(), new KitchenThroughputModel(), dispatcher);
+            // When
+            final UUID orderId = notifying.createOrder(user, new DeliveryInfo("1", "2"));
+            // Then
+            Awaitility.await().until(() -> received.size() == 1);
+            assertEquals(orderId, received.get(0).orderId());
+            assertEquals(OrderStatus.CREATED, received.get(0).status());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.pancakelab.service;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.*;
+import org.pancakelab.util.DeliveryInformationValidator;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.pancakelab.service.PipelineStage.SERVICE_SHUTTING_DOWN;
+
+class PipelineDrainerTest {
+
+    private ConcurrentHashMap<UUID, OrderDetails> ordersRepository;
+    private ConcurrentHashMap<UUID, OrderStatus> orderStatusRepository;
+    private BlockingDeque<UUID> ordersQueue;
+    private BlockingDeque<UUID> deliveriesQueue;
+    private OrderServiceImpl orderService;
+    private KitchenServiceImpl kitchenService;
+    private DeliveryServiceImpl deliveryService;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        ordersRepository = new ConcurrentHashMap<>();
+        orderStatusRepository = new ConcurrentHashMap<>();
+        ordersQueue = new LinkedBlockingDeque<>();
+        deliveriesQueue = new LinkedBlockingDeque<>();
+        kitchenService = new KitchenServiceImpl(ordersRepository, orderStatusRepository,
+                new ConcurrentSkipListSet<>(), ordersQueue, deliveriesQueue, 2);
+        deliveryService = new DeliveryServiceImpl(ordersRepository, orderStatusRepository, deliveriesQueue, 2);
+        orderService = new OrderServiceImpl(ordersRepository, orderStatusRepository,
+                mock(DeliveryInformationValidator.class), ordersQueue, 2, mock(RecipeService.class));
+        user = new User("user", "password".toCharArray(), new HashMap<>());
+    }
+
+    @Test
+    void givenQueuedOrders_whenDrained_thenEveryStageFlushesItsQueueAndReportsWhatIsLeftOnItsBoard()
+            throws PancakeServiceException {
+        // Given
+        final UUID kitchenOrderId = queuedOrder(ordersQueue, OrderStatus.COMPLETED);
+        final UUID deliveryOrderId = queuedOrder(deliveriesQueue, OrderStatus.READY_FOR_DELIVERY);
+        final UUID draftOrderId = orderService.createOrder(user, new DeliveryInfo("1", "2"));
+        // When
+        final DrainReport report = PipelineDrainer.drain(
+                Duration.ofSeconds(5), orderService, kitchenService, deliveryService);
+        // Then
+        assertFalse(report.drained());
+        assertEquals(Map.of(orderService.stageName(), List.of(draftOrderId),
+                kitchenService.stageName(), List.of(kitchenOrderId),
+                deliveryService.stageName(), List.of(deliveryOrderId)), report.leftovers());
+        assertTrue(report.elapsed().compareTo(Duration.ofSeconds(5)) < 0);
+        assertTrue(kitchenService.viewOrders(user).containsKey(kitchenOrderId));
+        assertTrue(deliveryService.viewCompletedOrders(user).containsKey(deliveryOrderId));
+        assertTrue(ordersQueue.isEmpty());
+        assertTrue(deliveriesQueue.isEmpty());
+    }
+
+    @Test
+    void givenOrderHandedOverWhileDraining_whenPipelineIsShutDown_thenItReachesTheDeliveryBoardAndIsReported()
+            throws PancakeServiceException {
+        // Given
+        final UUID kitchenOrderId = queuedOrder(ordersQueue, OrderStatus.COMPLETED);
+        Awaitility.await().until(() -> kitchenService.viewOrders(user).containsKey(kitchenOrderId));
+        orderStatusRepository.put(kitchenOrderId, OrderStatus.IN_PROGRESS);
+        kitchenService.notifyOrderCompletion(user, kitchenOrderId);
+        // When
+        final DrainReport report = PipelineDrainer.shutdown(orderService, kitchenService, deliveryService);
+        // Then
+        assertFalse(report.drained());
+        assertEquals(Map.of(deliveryService.stageName(), List.of(kitchenOrderId)), report.leftovers());
+        assertTrue(deliveryService.viewCompletedOrders(user).containsKey(kitchenOrderId));
+        assertTrue(deliveriesQueue.isEmpty());
+    }
+
+    @Test
+    void givenDrainedPipeline_whenNewRequestsArrive_thenTheyAreRejected() {
+        // Given
+        final DrainReport report = PipelineDrainer.drain(
+                Duration.ofSeconds(5), orderService, kitchenService, deliveryService);
+        // When
+        // Then
+        assertTrue(report.drained());
+        final PancakeServiceException exception = assertThrows(PancakeServiceException.class,
+                () -> orderService.createOrder(user, new DeliveryInfo("1", "2")));
+        assertEquals(SERVICE_SHUTTING_DOWN, exception.getMessage());
+        assertThrows(PancakeServiceException.class, () -> kitchenService.acceptOrder(user, UUID.randomUUID()));
+        assertThrows(PancakeServiceException.class, () -> deliveryService.sendForTheDelivery(user, UUID.randomUUID()));
+    }
+
+    @Test
+    void givenStageMissingTheDeadline_whenDrained_thenItIsStoppedAndItsWorkIsReported() {
+        // Given
+        final UUID stuckOrderId = UUID.randomUUID();
+        final Drainable stuckStage = new Drainable() {
+            @Override
+            public void stopIntake() {
+            }
+
+            @Override
+            public boolean awaitDrained(Duration timeout) {
+                return false;
+            }
+
+            @Override
+            public List<UUID> stop() {
+                return List.of(stuckOrderId);
+            }
+        };
+        // When
+        final DrainReport report = PipelineDrainer.drain(Duration.ofMillis(100), stuckStage, kitchenService);
+        // Then
+        assertFalse(report.drained());
+        assertEquals(List.of(stuckOrderId), report.leftovers().get(stuckStage.stageName()));
+        assertFalse(report.leftovers().containsKey(kitchenService.stageName()));
+    }
+
+    private UUID queuedOrder(final BlockingDeque<UUID> queue, final OrderStatus status) {
+        final UUID orderId = UUID.randomUUID();
+        ordersRepository.put(orderId, new OrderDetails.Builder()
+                .withOrderId(orderId)
+                .withUser(new User(orderId.toString(), "password".toCharArray(), new HashMap<>()))
+                .withDeliveryInfo(new DeliveryInfo("1", "2"))
+                .withPanCakes(Map.of(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE), 1))
+                .build());
+        orderStatusRepository.put(orderId, status);
+        queue.add(orderId);
+        return orderId;
+    }
+}
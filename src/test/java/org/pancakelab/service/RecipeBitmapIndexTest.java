@@ -0,0 +1,67 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.RecipeFilter;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeBitmapIndexTest {
+
+    private RecipeBitmapIndex recipeBitmapIndex;
+
+    @BeforeEach
+    public void setUp() {
+        recipeBitmapIndex = new RecipeBitmapIndex(
+                Arrays.stream(Pancakes.values()).map(PancakeFactory::get).toList()
+        );
+    }
+
+    @Test
+    void givenIncludedAndExcludedIngredients_whenFind_thenOnlyRecipesWithAllIncludedAndNoExcludedAreReturned() {
+        // Given
+        final RecipeFilter filter = new RecipeFilter(
+                Set.of(PancakeRecipe.CHOCOLATE.DARK.getIngredient()),
+                Set.of(PancakeRecipe.HAZELNUTS)
+        );
+        // When
+        final List<PancakeRecipe> found = recipeBitmapIndex.find(filter);
+        // Then
+        assertEquals(List.of(
+                PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE),
+                PancakeFactory.get(Pancakes.DARK_CHOCOLATE_WHIP_CREAM_PANCAKE)
+        ), found);
+    }
+
+    @Test
+    void givenEmptyFilter_whenFind_thenAllRecipesAreReturnedByName() {
+        // Given
+        final RecipeFilter filter = new RecipeFilter(null, null);
+        // When
+        final List<PancakeRecipe> found = recipeBitmapIndex.find(filter);
+        // Then
+        assertEquals(Pancakes.values().length, found.size());
+        assertEquals("Dark Chocolate Pancake", found.get(0).getName());
+        assertEquals("Milk Chocolate Pancake", found.get(found.size() - 1).getName());
+    }
+
+    @Test
+    void givenUnknownIngredient_whenFind_thenIncludingItMatchesNothingAndExcludingItMatchesEverything() {
+        // Given
+        final Set<String> unknown = Set.of("maple syrup");
+        // When
+        final List<PancakeRecipe> including = recipeBitmapIndex.find(new RecipeFilter(unknown, null));
+        final List<PancakeRecipe> excluding = recipeBitmapIndex.find(new RecipeFilter(null, unknown));
+        // Then
+        assertTrue(including.isEmpty());
+        assertEquals(Pancakes.values().length, excluding.size());
+    }
+}
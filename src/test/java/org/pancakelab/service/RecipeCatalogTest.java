@@ -0,0 +1,120 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.RecipeFilter;
+import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.Pancakes;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeCatalogTest {
+
+    private final PancakeRecipe milkChocolate = PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE);
+    private RecipeCatalog recipeCatalog;
+
+    @BeforeEach
+    public void setUp() {
+        recipeCatalog = new RecipeCatalog(List.of(milkChocolate));
+    }
+
+    @Test
+    void givenRecipeWithSameName_whenAdd_thenItIsRejected() {
+        // Given
+        final PancakeRecipe sameName = new PancakeRecipe.Builder()
+                .withName(milkChocolate.getName())
+                .withChocolate(PancakeRecipe.CHOCOLATE.DARK)
+                .build();
+        // When
+        final boolean added = recipeCatalog.add(sameName);
+        // Then
+        assertFalse(added);
+        assertSame(milkChocolate, recipeCatalog.get(milkChocolate.getName()));
+    }
+
+    @Test
+    void givenRecipe_whenReplacedUnderTheSameName_thenTheNewRecipeIsReturned() {
+        // Given
+        final PancakeRecipe withHazelnuts = new PancakeRecipe.Builder()
+                .withName(milkChocolate.getName())
+                .withChocolate(PancakeRecipe.CHOCOLATE.MILK)
+                .withHazelNuts()
+                .build();
+        // When
+        recipeCatalog.replace(milkChocolate.getName(), withHazelnuts);
+        // Then
+        assertTrue(recipeCatalog.get(milkChocolate.getName()).hasHazelNuts());
+        assertEquals(1, recipeCatalog.recipes().size());
+    }
+
+    @Test
+    void givenRecipe_whenRenamed_thenOnlyTheNewNameRemains() {
+        // Given
+        final PancakeRecipe renamed = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+        // When
+        recipeCatalog.replace(milkChocolate.getName(), renamed);
+        // Then
+        assertEquals(Set.of(renamed), recipeCatalog.recipes());
+        assertNull(recipeCatalog.get(milkChocolate.getName()));
+        assertFalse(recipeCatalog.contains(milkChocolate));
+        assertNull(recipeCatalog.remove(milkChocolate.getName()));
+        assertSame(renamed, recipeCatalog.remove(renamed.getName()));
+        assertTrue(recipeCatalog.recipes().isEmpty());
+    }
+
+    @Test
+    void givenSnapshot_whenCatalogChanges_thenTheSnapshotIsUnchangedAndANewVersionIsPublished() {
+        // Given
+        final RecipeCatalog.Snapshot before = recipeCatalog.snapshot();
+        final PancakeRecipe darkChocolate = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+        // When
+        recipeCatalog.add(darkChocolate);
+        recipeCatalog.add(darkChocolate);
+        // Then
+        assertEquals(Set.of(milkChocolate), before.recipes());
+        assertEquals(before.version() + 1, recipeCatalog.snapshot().version());
+        assertSame(recipeCatalog.recipes(), recipeCatalog.recipes());
+        assertThrows(UnsupportedOperationException.class, () -> recipeCatalog.recipes().add(darkChocolate));
+    }
+
+    @Test
+    void givenRecipeReplaced_whenFind_thenTheIndexOfTheNewSnapshotIsUsed() {
+        // Given
+        final RecipeFilter withHazelnuts = new RecipeFilter(Set.of(PancakeRecipe.HAZELNUTS), null);
+        final PancakeRecipe milkChocolateHazelnuts = PancakeFactory.get(Pancakes.MILK_CHOCOLATE_HAZELNUTS_PANCAKE);
+        // When
+        final List<PancakeRecipe> before = recipeCatalog.find(withHazelnuts);
+        recipeCatalog.replace(milkChocolate.getName(), milkChocolateHazelnuts);
+        final List<PancakeRecipe> after = recipeCatalog.find(withHazelnuts);
+        // Then
+        assertTrue(before.isEmpty());
+        assertEquals(List.of(milkChocolateHazelnuts), after);
+    }
+
+    @Test
+    void givenCatalogBackedByRepository_whenChanged_thenTheChangesAreWrittenThroughToTheRepository() {
+        // Given
+        final PancakeRecipe darkChocolate = PancakeFactory.get(Pancakes.DARK_CHOCOLATE_PANCAKE);
+        final PancakeRecipe withHazelnuts = new PancakeRecipe.Builder()
+                .withName(milkChocolate.getName())
+                .withChocolate(PancakeRecipe.CHOCOLATE.MILK)
+                .withHazelNuts()
+                .build();
+        final Set<PancakeRecipe> repository = new ConcurrentSkipListSet<>();
+        final RecipeCatalog backed = RecipeCatalog.backedBy(repository);
+        repository.add(milkChocolate);
+        // When
+        backed.add(darkChocolate);
+        backed.replace(milkChocolate.getName(), withHazelnuts);
+        backed.remove(darkChocolate.getName());
+        // Then
+        assertEquals(Set.of(withHazelnuts), backed.recipes());
+        assertEquals(Set.of(withHazelnuts), repository);
+        assertTrue(repository.iterator().next().hasHazelNuts());
+    }
+}
@@ -5,16 +5,21 @@ import org.junit.jupiter.api.Test;
 import org.pancakelab.model.*;
 import org.pancakelab.util.Pancakes;
 import org.pancakelab.util.PancakeFactory;
+import org.pancakelab.util.RecipeCsvFormat;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.LinkedBlockingDeque;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -100,4 +105,39 @@ class RecipeServiceTest {
         // Then
         assertTrue(recipeService.getRecipes(user).contains(updated));
     }
+
+    @Test
+    void givenCsv_whenImportRecipes_thenAllRecipesAreAddedOrReplaced() throws PancakeServiceException {
+        // Given
+        final RecipeService kitchen = new KitchenServiceImpl(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentSkipListSet<>(Set.of(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE))),
+                new LinkedBlockingDeque<>(), new LinkedBlockingDeque<>(), 1);
+        final String csv = RecipeCsvFormat.HEADER + "\n"
+                + "Milk Chocolate Pancake,MILK,true,false,\n"
+                + "Dark Chocolate Pancake,DARK,false,true,banana\n";
+        // When
+        final int imported = kitchen.importRecipes(user, new StringReader(csv));
+        // Then
+        assertEquals(2, imported);
+        assertEquals(2, kitchen.getRecipes(user).size());
+        assertTrue(kitchen.findRecipes(user, new RecipeFilter(Set.of(PancakeRecipe.HAZELNUTS), null))
+                .contains(PancakeFactory.get(Pancakes.MILK_CHOCOLATE_PANCAKE)));
+        final StringWriter exported = new StringWriter();
+        kitchen.exportRecipes(user, exported);
+        assertTrue(exported.toString().contains("Dark Chocolate Pancake,DARK,false,true,banana"));
+    }
+
+    @Test
+    void givenInvalidCsv_whenImportRecipes_thenNoRecipeIsImported() throws PancakeServiceException {
+        // Given
+        final RecipeService kitchen = new KitchenServiceImpl(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                new ConcurrentSkipListSet<>(), new LinkedBlockingDeque<>(), new LinkedBlockingDeque<>(), 1);
+        final String csv = RecipeCsvFormat.HEADER + "\n"
+                + "Dark Chocolate Pancake,DARK,false,false,\n"
+                + "Broken Pancake,DARK,maybe,false,\n";
+        // When
+        assertThrows(ValidationException.class, () -> kitchen.importRecipes(user, new StringReader(csv)));
+        // Then
+        assertTrue(kitchen.getRecipes(user).isEmpty());
+    }
 }
@@ -0,0 +1,178 @@
+package org.pancakelab.service;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.ConsumerHealth;
+import org.pancakelab.model.DeadLetter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SupervisedConsumerTest {
+
+    private BlockingDeque<UUID> queue;
+    private AtomicBoolean running;
+    private Set<UUID> handled;
+    private Set<UUID> poisoned;
+    private Thread thread;
+
+    @BeforeEach
+    public void setUp() {
+        queue = new LinkedBlockingDeque<>();
+        running = new AtomicBoolean(true);
+        handled = ConcurrentHashMap.newKeySet();
+        poisoned = ConcurrentHashMap.newKeySet();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        running.set(false);
+        thread.join(5_000);
+    }
+
+    @Test
+    void givenPoisonEvent_whenEveryAttemptFails_thenItIsDeadLetteredAndTheNextEventIsHandled() {
+        // Given
+        final UUID poison = UUID.randomUUID();
+        final UUID next = UUID.randomUUID();
+        final AtomicInteger attempts = new AtomicInteger();
+        poisoned.add(poison);
+        final SupervisedConsumer consumer = start(orderId -> {
+            if (poisoned.contains(orderId)) {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("bad order");
+            }
+            handled.add(orderId);
+        });
+        // When
+        queue.add(poison);
+        queue.add(next);
+        // Then
+        Awaitility.await().until(() -> handled.contains(next));
+        final List<DeadLetter> deadLetters = consumer.deadLetters();
+        assertEquals(1, deadLetters.size());
+        assertEquals(poison, deadLetters.get(0).orderId());
+        assertEquals(3, deadLetters.get(0).attempts());
+        assertEquals(3, attempts.get());
+        final ConsumerHealth health = consumer.health();
+        assertTrue(health.alive());
+        assertEquals(1, health.processed());
+        assertEquals(1, health.deadLettered());
+        assertEquals(0, health.lag());
+    }
+
+    @Test
+    void givenDeadLetter_whenCauseIsFixedAndRedriven_thenItIsHandled() {
+        // Given
+        final UUID poison = UUID.randomUUID();
+        poisoned.add(poison);
+        final SupervisedConsumer consumer = start(orderId -> {
+            if (poisoned.contains(orderId)) {
+                throw new IllegalStateException("bad order");
+            }
+            handled.add(orderId);
+        });
+        queue.add(poison);
+        Awaitility.await().until(() -> consumer.deadLetters().size() == 1);
+        // When
+        poisoned.clear();
+        final boolean redriven = consumer.redrive(poison);
+        // Then
+        assertTrue(redriven);
+        assertFalse(consumer.redrive(poison));
+        Awaitility.await().until(() -> handled.contains(poison));
+        assertTrue(consumer.deadLetters().isEmpty());
+    }
+
+    @Test
+    void givenHandlerKillingTheLoop_whenEventIsConsumed_thenConsumerIsRestarted() {
+        // Given
+        final UUID fatal = UUID.randomUUID();
+        final UUID next = UUID.randomUUID();
+        final SupervisedConsumer consumer = start(orderId -> {
+            if (orderId.equals(fatal)) {
+                throw new AssertionError("broken invariant");
+            }
+            handled.add(orderId);
+        });
+        // When
+        queue.add(fatal);
+        queue.add(next);
+        // Then
+        Awaitility.await().until(() -> handled.contains(next));
+        assertEquals(1, consumer.health().restarts());
+        assertEquals(List.of(fatal), consumer.deadLetters().stream().map(DeadLetter::orderId).toList());
+    }
+
+    @Test
+    void givenHandlerFailingTheVirtualMachine_whenEventIsConsumed_thenTheErrorEndsTheConsumer() {
+        // Given
+        final UUID fatal = UUID.randomUUID();
+        final List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+        final SupervisedConsumer consumer = new SupervisedConsumer(queue, orderId -> {
+            throw new StackOverflowError();
+        }, running::get, 3, Duration.ofMillis(1), Duration.ofMillis(10));
+        thread = new Thread(consumer);
+        thread.setUncaughtExceptionHandler((failed, error) -> uncaught.add(error));
+        thread.start();
+        // When
+        queue.add(fatal);
+        // Then
+        Awaitility.await().until(() -> !thread.isAlive());
+        assertEquals(1, uncaught.size());
+        assertInstanceOf(StackOverflowError.class, uncaught.get(0));
+        assertEquals(0, consumer.health().restarts());
+        assertEquals(List.of(fatal), consumer.deadLetters().stream().map(DeadLetter::orderId).toList());
+        assertFalse(consumer.health().alive());
+    }
+
+    @Test
+    void givenLoopKilledNowAndThen_whenEventsAreHandledInBetween_thenTheRestartBackoffStartsOver() {
+        // Given
+        final List<UUID> fatal = new CopyOnWriteArrayList<>();
+        final List<UUID> healthy = new CopyOnWriteArrayList<>();
+        final SupervisedConsumer consumer = new SupervisedConsumer(queue, orderId -> {
+            if (fatal.contains(orderId)) {
+                throw new AssertionError("broken invariant");
+            }
+            handled.add(orderId);
+        }, running::get, 3, Duration.ofMillis(100), Duration.ofSeconds(5));
+        thread = new Thread(consumer);
+        thread.start();
+        for (int i = 0; i < 6; i++) {
+            fatal.add(UUID.randomUUID());
+            healthy.add(UUID.randomUUID());
+        }
+        final long start = System.nanoTime();
+        // When
+        for (int i = 0; i < 6; i++) {
+            queue.add(fatal.get(i));
+            queue.add(healthy.get(i));
+        }
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(10)).until(() -> handled.containsAll(healthy));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(3)) < 0);
+        assertEquals(6, consumer.health().restarts());
+    }
+
+    private SupervisedConsumer start(final Consumer<UUID> handler) {
+        final SupervisedConsumer consumer = new SupervisedConsumer(
+                queue, handler, running::get, 3, Duration.ofMillis(1), Duration.ofMillis(10));
+        thread = new Thread(consumer);
+        thread.start();
+        return consumer;
+    }
+}
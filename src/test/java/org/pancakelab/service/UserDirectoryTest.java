@@ -0,0 +1,106 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.pancakelab.model.AuthenticationFailureException;
+import org.pancakelab.model.PancakeServiceException;
+import org.pancakelab.model.Privileges;
+import org.pancakelab.model.User;
+import org.pancakelab.model.ValidationException;
+import org.pancakelab.util.HmacSigner;
+import org.pancakelab.util.PasswordHasher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDirectoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void givenUserFile_whenReload_thenTheUsersOfTheFileReplaceTheCurrentUsers() throws Exception {
+        // Given
+        final UserDirectory userDirectory = new UserDirectory(List.of(
+                new User("old", "password".toCharArray(), Map.of())));
+        final Path file = Files.writeString(directory.resolve("users"), """
+                # chefs
+                chef:secret:kitchen=CRU;recipe=R
+
+                courier:secret:delivery=RU
+                """);
+        // When
+        userDirectory.reload(file);
+        // Then
+        assertNull(userDirectory.get("old"));
+        assertEquals(2, userDirectory.size());
+        assertTrue(userDirectory.get("chef").hasPrivilege("kitchen", Privileges.UPDATE));
+        assertFalse(userDirectory.get("chef").hasPrivilege("recipe", Privileges.CREATE));
+        assertTrue(new PasswordHasher().verify("secret".toCharArray(),
+                userDirectory.account("courier").passwordHash()));
+        assertNull(userDirectory.get("courier").getPassword());
+    }
+
+    @Test
+    void givenInvalidUserFile_whenReload_thenTheLineIsReportedAndNoUserChanges() throws Exception {
+        // Given
+        final UserDirectory userDirectory = new UserDirectory(List.of(
+                new User("old", "password".toCharArray(), Map.of())));
+        final Path file = Files.writeString(directory.resolve("users"), """
+                chef:secret:kitchen=CRU
+                courier
+                """);
+        // When
+        final ValidationException exception = assertThrows(ValidationException.class,
+                () -> userDirectory.reload(file));
+        // Then
+        assertEquals(UserDirectory.INVALID_LINE.formatted(2, UserDirectory.INVALID_FIELD_COUNT),
+                exception.getMessage());
+        assertNotNull(userDirectory.get("old"));
+        assertNull(userDirectory.get("chef"));
+    }
+
+    @Test
+    void givenLoggedInUser_whenRevoked_thenTheSessionIsRejected() throws PancakeServiceException {
+        // Given
+        final User chef = new User("chef", "secret".toCharArray(), Map.of("kitchen", List.of('R')));
+        final UserDirectory userDirectory = new UserDirectory(List.of(chef));
+        final AuthenticationService authenticationService = new AuthenticationServiceImpl(
+                userDirectory, new HmacSigner(), Duration.ofMinutes(5), Clock.systemUTC());
+        final User session = authenticationService.login(chef);
+        // When
+        final boolean revoked = userDirectory.revoke("chef");
+        // Then
+        assertTrue(revoked);
+        assertThrows(AuthenticationFailureException.class, () -> authenticationService.authenticate(session));
+        userDirectory.add(chef);
+        assertThrows(AuthenticationFailureException.class, () -> authenticationService.authenticate(session));
+        assertDoesNotThrow(() -> authenticationService.authenticate(authenticationService.login(chef)));
+    }
+
+    @Test
+    void givenLoggedInUser_whenAnUnchangedFileIsReloaded_thenTheSessionIsStillAccepted() throws Exception {
+        // Given
+        final Path file = Files.writeString(directory.resolve("users"), "chef:secret:kitchen=R\n");
+        final UserDirectory userDirectory = UserDirectory.load(file, new PasswordHasher(1_000));
+        final String passwordHash = userDirectory.account("chef").passwordHash();
+        final AuthenticationService authenticationService = new AuthenticationServiceImpl(
+                userDirectory, new HmacSigner(), Duration.ofMinutes(5), Clock.systemUTC());
+        final User session = authenticationService.login(
+                new User("chef", "secret".toCharArray(), Map.of()));
+        // When
+        userDirectory.reload(file);
+        // Then
+        assertEquals(passwordHash, userDirectory.account("chef").passwordHash());
+        assertDoesNotThrow(() -> authenticationService.authenticate(session));
+        Files.writeString(file, "chef:changed:kitchen=R\n");
+        userDirectory.reload(file);
+        assertThrows(AuthenticationFailureException.class, () -> authenticationService.authenticate(session));
+    }
+}
@@ -0,0 +1,57 @@
+package org.pancakelab.service;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.util.HmacSigner;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerifiedCredentialCacheTest {
+
+    private static final String HASH = "pbkdf2-sha256$1$c2FsdA==$aGFzaA==";
+
+    private final AtomicLong nanoClock = new AtomicLong();
+
+    @Test
+    void givenRememberedCredential_whenIsVerified_thenOnlyTheSameCredentialIsVerified() {
+        // Given
+        final VerifiedCredentialCache cache = new VerifiedCredentialCache(
+                new HmacSigner(), 10, Duration.ofMinutes(1), nanoClock::get);
+        // When
+        cache.remember("user", "secret".toCharArray(), HASH);
+        // Then
+        assertTrue(cache.isVerified("user", "secret".toCharArray(), HASH));
+        assertFalse(cache.isVerified("user", "other".toCharArray(), HASH));
+        assertFalse(cache.isVerified("other", "secret".toCharArray(), HASH));
+        assertFalse(cache.isVerified("user", "secret".toCharArray(), HASH + "changed"));
+    }
+
+    @Test
+    void givenRememberedCredential_whenTheTimeToLivePasses_thenItIsNoLongerVerified() {
+        // Given
+        final VerifiedCredentialCache cache = new VerifiedCredentialCache(
+                new HmacSigner(), 10, Duration.ofSeconds(30), nanoClock::get);
+        cache.remember("user", "secret".toCharArray(), HASH);
+        // When
+        nanoClock.addAndGet(Duration.ofSeconds(30).toNanos());
+        // Then
+        assertFalse(cache.isVerified("user", "secret".toCharArray(), HASH));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void givenFullCache_whenRemember_thenTheCacheStaysBounded() {
+        // Given
+        final VerifiedCredentialCache cache = new VerifiedCredentialCache(
+                new HmacSigner(), 3, Duration.ofMinutes(1), nanoClock::get);
+        // When
+        for (int i = 0; i < 10; i++) {
+            cache.remember("user" + i, "secret".toCharArray(), HASH);
+        }
+        // Then
+        assertEquals(3, cache.size());
+        assertTrue(cache.isVerified("user9", "secret".toCharArray(), HASH));
+    }
+}
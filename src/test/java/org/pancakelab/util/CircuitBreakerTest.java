@@ -0,0 +1,59 @@
+package org.pancakelab.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(10), nanos::get);
+
+    @Test
+    void givenConsecutiveFailures_whenThresholdIsReached_thenTheBreakerOpensUntilTheOpenDurationIsOver() {
+        // Given
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        // When
+        breaker.recordFailure();
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void givenHalfOpenBreaker_whenTheTrialCallFails_thenItOpensAgain() {
+        // Given
+        breaker.recordFailure();
+        breaker.recordFailure();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.allowRequest();
+        // When
+        breaker.recordFailure();
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void givenHalfOpenBreaker_whenTheTrialCallSucceeds_thenItCloses() {
+        // Given
+        breaker.recordFailure();
+        breaker.recordFailure();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        breaker.allowRequest();
+        // When
+        breaker.recordSuccess();
+        // Then
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+    }
+}
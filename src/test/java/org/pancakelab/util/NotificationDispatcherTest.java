@@ -0,0 +1,150 @@
+package org.pancakelab.util;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.Notification;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.User;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDispatcherTest {
+
+    private final User user = new User("user", "password".toCharArray(), Map.of());
+
+    @Test
+    void givenNotifications_whenSubmitted_thenTheyAreDeliveredInOrderAndInBatches() {
+        // Given
+        final List<List<Notification>> batches = new CopyOnWriteArrayList<>();
+        final NotificationDispatcher dispatcher = new NotificationDispatcher(100, 3, Duration.ofSeconds(1));
+        dispatcher.addChannel(batches::add);
+        final List<Notification> notifications = List.of(
+                notification(OrderStatus.CREATED), notification(OrderStatus.COMPLETED),
+                notification(OrderStatus.IN_PROGRESS), notification(OrderStatus.READY_FOR_DELIVERY),
+                notification(OrderStatus.DELIVERED));
+        // When
+        notifications.forEach(dispatcher::submit);
+        dispatcher.close();
+        // Then
+        assertEquals(notifications, batches.stream().flatMap(List::stream).toList());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+        assertEquals(5, dispatcher.delivered());
+    }
+
+    @Test
+    void givenFailingChannel_whenDispatched_thenTheOtherChannelsStillReceiveTheBatch() {
+        // Given
+        final List<Notification> received = new CopyOnWriteArrayList<>();
+        final NotificationDispatcher dispatcher = new NotificationDispatcher();
+        dispatcher.addChannel(batch -> {
+            throw new IllegalStateException("Channel is down");
+        });
+        dispatcher.addChannel(received::addAll);
+        // When
+        dispatcher.submit(notification(OrderStatus.CREATED));
+        // Then
+        Awaitility.await().until(() -> received.size() == 1);
+        assertEquals(1, dispatcher.failed());
+        dispatcher.close();
+    }
+
+    @Test
+    void givenFullQueue_whenSubmit_thenTheNotificationIsDroppedWithoutBlocking() throws InterruptedException {
+        // Given
+        final CountDownLatch delivering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final NotificationDispatcher dispatcher = new NotificationDispatcher(1, 1, Duration.ofMillis(10));
+        dispatcher.addChannel(batch -> {
+            delivering.countDown();
+            release.await();
+        });
+        dispatcher.submit(notification(OrderStatus.CREATED));
+        delivering.await();
+        // When
+        final boolean queued = dispatcher.submit(notification(OrderStatus.COMPLETED));
+        final boolean overflowed = dispatcher.submit(notification(OrderStatus.CANCELLED));
+        // Then
+        assertTrue(queued);
+        assertFalse(overflowed);
+        assertEquals(1, dispatcher.dropped());
+        release.countDown();
+        dispatcher.close();
+        assertEquals(2, dispatcher.delivered());
+    }
+
+    @Test
+    void givenStatusesOfAnOrderWithinTheWindow_whenDispatched_thenOnlyTheLatestIsDeliveredInWindowOrder() {
+        // Given
+        final List<Notification> received = new CopyOnWriteArrayList<>();
+        final NotificationDispatcher dispatcher =
+                new NotificationDispatcher(100, 10, Duration.ofMillis(10), Duration.ofMinutes(1));
+        dispatcher.addChannel(received::addAll);
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        // When
+        dispatcher.submit(notification(first, OrderStatus.CREATED));
+        dispatcher.submit(notification(second, OrderStatus.CREATED));
+        dispatcher.submit(notification(first, OrderStatus.COMPLETED));
+        dispatcher.submit(notification(first, OrderStatus.IN_PROGRESS));
+        dispatcher.submit(notification(second, OrderStatus.CANCELLED));
+        Awaitility.await().until(() -> dispatcher.suppressed() == 3);
+        // Then
+        assertTrue(received.isEmpty());
+        dispatcher.close();
+        assertEquals(List.of(first, second), received.stream().map(Notification::orderId).toList());
+        assertEquals(List.of(OrderStatus.IN_PROGRESS, OrderStatus.CANCELLED),
+                received.stream().map(Notification::status).toList());
+        assertEquals(2, dispatcher.delivered());
+    }
+
+    @Test
+    void givenShortWindow_whenItCloses_thenTheLatestStatusIsDeliveredWithoutClosingTheDispatcher() {
+        // Given
+        final List<Notification> received = new CopyOnWriteArrayList<>();
+        final NotificationDispatcher dispatcher =
+                new NotificationDispatcher(100, 10, Duration.ofSeconds(1), Duration.ofMillis(100));
+        dispatcher.addChannel(received::addAll);
+        final UUID orderId = UUID.randomUUID();
+        // When
+        dispatcher.submit(notification(orderId, OrderStatus.CREATED));
+        dispatcher.submit(notification(orderId, OrderStatus.COMPLETED));
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> received.size() == 1);
+        assertEquals(OrderStatus.COMPLETED, received.get(0).status());
+        assertEquals(1, dispatcher.suppressed());
+        dispatcher.close();
+    }
+
+    @Test
+    void givenOpenWindowsFillingTheCapacity_whenSubmit_thenTheNotificationIsDropped() {
+        // Given
+        final NotificationDispatcher dispatcher =
+                new NotificationDispatcher(2, 10, Duration.ofMillis(5), Duration.ofMinutes(1));
+        dispatcher.submit(notification(OrderStatus.CREATED));
+        dispatcher.submit(notification(OrderStatus.CREATED));
+        Awaitility.await().pollDelay(Duration.ofMillis(100)).until(() -> true);
+        // When
+        final boolean queued = dispatcher.submit(notification(OrderStatus.CREATED));
+        // Then
+        assertFalse(queued);
+        assertEquals(1, dispatcher.dropped());
+        dispatcher.close();
+        assertEquals(2, dispatcher.delivered());
+    }
+
+    private Notification notification(final OrderStatus status) {
+        return notification(UUID.randomUUID(), status);
+    }
+
+    private Notification notification(final UUID orderId, final OrderStatus status) {
+        return new Notification(user, orderId, status, Instant.now());
+    }
+}
@@ -0,0 +1,41 @@
+package org.pancakelab.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(1_000);
+
+    @Test
+    void givenHashedPassword_whenVerify_thenOnlyTheSamePasswordMatches() {
+        // Given
+        final String hash = passwordHasher.hash("secret".toCharArray());
+        // When & Then
+        assertTrue(PasswordHasher.isHash(hash));
+        assertTrue(passwordHasher.verify("secret".toCharArray(), hash));
+        assertFalse(passwordHasher.verify("Secret".toCharArray(), hash));
+    }
+
+    @Test
+    void givenSamePassword_whenHashedTwice_thenTheSaltsDiffer() {
+        // Given
+        final char[] password = "secret".toCharArray();
+        // When
+        final String first = passwordHasher.hash(password);
+        final String second = passwordHasher.hash(password);
+        // Then
+        assertNotEquals(first, second);
+        assertTrue(new PasswordHasher(2_000).verify(password, first));
+    }
+
+    @Test
+    void givenMalformedHash_whenVerify_thenItDoesNotMatch() {
+        // Given
+        final String malformed = PasswordHasher.PREFIX + "$many$salt$hash";
+        // When & Then
+        assertFalse(passwordHasher.verify("secret".toCharArray(), malformed));
+        assertFalse(passwordHasher.verify("secret".toCharArray(), "secret"));
+    }
+}
@@ -0,0 +1,80 @@
+package org.pancakelab.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentHashMapTest {
+
+    @Test
+    void givenMap_whenUpdated_thenOriginalSnapshotIsUnchanged() {
+        // Given
+        final PersistentHashMap<String, Integer> original = PersistentHashMap.<String, Integer>empty()
+                .with("a", 1)
+                .with("b", 2);
+        // When
+        final PersistentHashMap<String, Integer> updated = original.with("a", 3).without("b").with("c", 4);
+        // Then
+        assertEquals(Map.of("a", 1, "b", 2), original);
+        assertEquals(Map.of("a", 3, "c", 4), updated);
+        assertSame(original, original.with("a", 1));
+        assertSame(original, original.without("z"));
+        assertThrows(UnsupportedOperationException.class, () -> original.put("d", 5));
+    }
+
+    @Test
+    void givenRandomUpdates_whenComparedWithHashMap_thenContentsMatch() {
+        // Given
+        final Random random = new Random(42);
+        final Map<Integer, Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            final int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, i);
+                map = map.with(key, i);
+            }
+        }
+        // Then
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (int key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void givenKeysWithEqualHashes_whenUpdated_thenAllKeysAreKept() {
+        // Given
+        final CollidingKey first = new CollidingKey("first");
+        final CollidingKey second = new CollidingKey("second");
+        final CollidingKey third = new CollidingKey("third");
+        // When
+        final PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.<CollidingKey, Integer>empty()
+                .with(first, 1)
+                .with(second, 2)
+                .with(third, 3)
+                .with(second, 4);
+        final PersistentHashMap<CollidingKey, Integer> removed = map.without(first).without(third);
+        // Then
+        assertEquals(Map.of(first, 1, second, 4, third, 3), map);
+        assertEquals(Map.of(second, 4), removed);
+        assertTrue(removed.without(second).isEmpty());
+    }
+
+    private record CollidingKey(String name) {
+        @Override
+        public int hashCode() {
+            return 7;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.pancakelab.util;
+
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.PancakeRecipe;
+import org.pancakelab.model.ValidationException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecipeCsvFormatTest {
+
+    @Test
+    void givenRecipes_whenWrittenAndReadBack_thenTheSameRecipesAreRead() throws Exception {
+        // Given
+        final List<PancakeRecipe> recipes = new ArrayList<>(
+                Arrays.stream(Pancakes.values()).map(PancakeFactory::get).toList()
+        );
+        recipes.add(new PancakeRecipe.Builder()
+                .withName("Banana, \"Cinnamon\" Pancake")
+                .withChocolate(PancakeRecipe.CHOCOLATE.MILK)
+                .withOtherIngredients(Set.of("banana", "cinnamon"))
+                .build());
+        final StringWriter csv = new StringWriter();
+        // When
+        RecipeCsvFormat.write(recipes, csv);
+        final List<PancakeRecipe> read = new ArrayList<>();
+        final int count = RecipeCsvFormat.read(new StringReader(csv.toString()), read::add);
+        // Then
+        assertEquals(recipes.size(), count);
+        for (PancakeRecipe recipe : recipes) {
+            final PancakeRecipe copy = read.get(read.indexOf(recipe));
+            assertEquals(recipe.getChocolate(), copy.getChocolate());
+            assertEquals(recipe.getIngredients(), copy.getIngredients());
+        }
+    }
+
+    @Test
+    void givenFieldsPaddedWithWhiteSpace_whenWrittenAndReadBack_thenTheyAreKeptVerbatim() throws Exception {
+        // Given
+        final PancakeRecipe recipe = new PancakeRecipe.Builder()
+                .withName(" Padded Pancake ")
+                .withChocolate(PancakeRecipe.CHOCOLATE.DARK)
+                .withOtherIngredients(Set.of(" banana"))
+                .build();
+        final StringWriter csv = new StringWriter();
+        // When
+        RecipeCsvFormat.write(List.of(recipe), csv);
+        final List<PancakeRecipe> read = new ArrayList<>();
+        RecipeCsvFormat.read(new StringReader(csv.toString()), read::add);
+        // Then
+        assertEquals(" Padded Pancake ", read.get(0).getName());
+        assertEquals(recipe.getIngredients(), read.get(0).getIngredients());
+    }
+
+    @Test
+    void givenFieldWithLineBreak_whenWritten_thenItIsRejected() {
+        // Given
+        final PancakeRecipe recipe = new PancakeRecipe.Builder()
+                .withName("Two\nLines")
+                .withChocolate(PancakeRecipe.CHOCOLATE.DARK)
+                .build();
+        // When
+        final IOException exception = assertThrows(IOException.class,
+                () -> RecipeCsvFormat.write(List.of(recipe), new StringWriter()));
+        // Then
+        assertEquals(RecipeCsvFormat.LINE_BREAK_IN_FIELD.formatted("Two\\nLines"), exception.getMessage());
+    }
+
+    @Test
+    void givenIngredientWithSemicolon_whenWritten_thenItIsRejectedRatherThanReadBackAsTwo() throws Exception {
+        // Given
+        final PancakeRecipe separate = new PancakeRecipe.Builder()
+                .withName("Banana Pancake")
+                .withChocolate(PancakeRecipe.CHOCOLATE.MILK)
+                .withOtherIngredients(Set.of("banana", "cinnamon"))
+                .build();
+        final PancakeRecipe joined = new PancakeRecipe.Builder()
+                .withName("Spiced Pancake")
+                .withChocolate(PancakeRecipe.CHOCOLATE.DARK)
+                .withOtherIngredients(Set.of("banana;cinnamon"))
+                .build();
+        final StringWriter csv = new StringWriter();
+        // When
+        RecipeCsvFormat.write(List.of(separate), csv);
+        final IOException exception = assertThrows(IOException.class,
+                () -> RecipeCsvFormat.write(List.of(joined), new StringWriter()));
+        // Then
+        final List<PancakeRecipe> read = new ArrayList<>();
+        RecipeCsvFormat.read(new StringReader(csv.toString()), read::add);
+        assertEquals(Set.of("banana", "cinnamon"), read.get(0).getOtherIngredients());
+        assertEquals(RecipeCsvFormat.SEPARATOR_IN_INGREDIENT.formatted("banana;cinnamon"), exception.getMessage());
+    }
+
+    @Test
+    void givenInvalidLine_whenRead_thenTheLineNumberIsReported() {
+        // Given
+        final String csv = RecipeCsvFormat.HEADER + "\n"
+                + "Dark Chocolate Pancake,DARK,false,false,\n"
+                + "\n"
+                + "White Chocolate Pancake,WHITE,false,false,\n";
+        // When
+        final ValidationException exception = assertThrows(ValidationException.class,
+                () -> RecipeCsvFormat.read(new StringReader(csv), recipe -> {
+                }));
+        // Then
+        assertEquals(RecipeCsvFormat.INVALID_LINE.formatted(4,
+                RecipeCsvFormat.INVALID_CHOCOLATE.formatted("WHITE")), exception.getMessage());
+    }
+
+    @Test
+    void givenDuplicateRecipe_whenRead_thenItIsRejected() throws IOException {
+        // Given
+        final String csv = RecipeCsvFormat.HEADER + "\n"
+                + "Dark Chocolate Pancake,DARK,false,false,\n"
+                + "Dark Chocolate Pancake,DARK,true,false,\n";
+        final List<PancakeRecipe> read = new ArrayList<>();
+        // When
+        final ValidationException exception = assertThrows(ValidationException.class,
+                () -> RecipeCsvFormat.read(new StringReader(csv), read::add));
+        // Then
+        assertTrue(exception.getMessage().startsWith("Line 3:"));
+        assertEquals(1, read.size());
+    }
+}
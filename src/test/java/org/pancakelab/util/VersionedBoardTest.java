@@ -0,0 +1,159 @@
+package org.pancakelab.util;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.pancakelab.model.BoardChanges;
+import org.pancakelab.model.BoardEvent;
+import org.pancakelab.model.Page;
+import org.pancakelab.model.ValidationException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedBoardTest {
+
+    private VersionedBoard<String, Integer> board;
+
+    @BeforeEach
+    public void setUp() {
+        board = new VersionedBoard<>(3);
+    }
+
+    @Test
+    void givenFreshClient_whenChangesSinceZero_thenAllEntriesAreAdded() {
+        // Given
+        board.put("a", 1);
+        board.put("b", 2);
+        // When
+        final BoardChanges<String, Integer> changes = board.changesSince(0);
+        // Then
+        assertEquals(2, changes.version());
+        assertFalse(changes.snapshot());
+        assertEquals(Map.of("a", 1, "b", 2), changes.added());
+        assertTrue(changes.removed().isEmpty());
+    }
+
+    @Test
+    void givenClientAtAVersion_whenChangesSince_thenOnlyTheNetChangesAreReturned() {
+        // Given
+        board.put("a", 1);
+        board.put("b", 2);
+        final long seen = board.version();
+        board.put("a", 3);
+        board.remove("b");
+        // When
+        final BoardChanges<String, Integer> changes = board.changesSince(seen);
+        // Then
+        assertEquals(4, changes.version());
+        assertEquals(Map.of("a", 3), changes.added());
+        assertEquals(Set.of("b"), changes.removed());
+        assertEquals(new BoardChanges<>(4, false, Map.of(), Set.of()), board.changesSince(changes.version()));
+    }
+
+    @Test
+    void givenClientBehindTheChangeLog_whenChangesSince_thenFullSnapshotIsReturned() {
+        // Given
+        board.put("a", 1);
+        final long seen = board.version();
+        board.put("b", 2);
+        board.put("c", 3);
+        board.remove("a");
+        board.put("d", 4);
+        // When
+        final BoardChanges<String, Integer> changes = board.changesSince(seen);
+        // Then
+        assertTrue(changes.snapshot());
+        assertEquals(Map.of("b", 2, "c", 3, "d", 4), changes.added());
+        assertEquals(board.snapshot(), changes.added());
+    }
+
+    @Test
+    void givenMissingEntry_whenRemove_thenVersionDoesNotChange() {
+        // Given
+        board.put("a", 1);
+        // When
+        final Integer removed = board.remove("b");
+        // Then
+        assertNull(removed);
+        assertEquals(1, board.version());
+    }
+
+    @Test
+    void givenSubscriber_whenBoardChanges_thenEventsArePushedAsRequested() throws InterruptedException {
+        // Given
+        final BlockingQueue<BoardEvent<String, Integer>> received = new LinkedBlockingQueue<>();
+        final AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+        board.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription granted) {
+                subscription.set(granted);
+                granted.request(1);
+            }
+
+            @Override
+            public void onNext(BoardEvent<String, Integer> event) {
+                received.add(event);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        Awaitility.await().until(() -> subscription.get() != null);
+        // When
+        board.put("a", 1);
+        board.remove("a");
+        // Then
+        assertEquals(new BoardEvent<>(1, BoardEvent.Type.PUT, "a", 1), received.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        subscription.get().request(1);
+        assertEquals(new BoardEvent<>(2, BoardEvent.Type.REMOVE, "a", null), received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenBoard_whenPagedThrough_thenEntriesAreReturnedOnceInArrivalOrder() throws ValidationException {
+        // Given
+        board.put("c", 1);
+        board.put("a", 2);
+        board.put("b", 3);
+        board.put("d", 4);
+        // When
+        final Page<String, Integer> first = board.page(null, 2);
+        board.put("c", 5);
+        board.remove("b");
+        board.put("e", 6);
+        final Page<String, Integer> second = board.page(first.nextCursor(), 2);
+        // Then
+        assertEquals(List.of("c", "a"), List.copyOf(first.entries().keySet()));
+        assertEquals(List.of("d", "e"), List.copyOf(second.entries().keySet()));
+        assertNotNull(first.nextCursor());
+        assertNull(second.nextCursor());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not a cursor", "AAAAAAAAAAA", "AAAA"})
+    void givenForgedCursor_whenPage_thenValidationExceptionIsThrown(String cursor) {
+        // Given
+        board.put("a", 1);
+        // When
+        // Then
+        final ValidationException exception = assertThrows(ValidationException.class, () -> board.page(cursor, 2));
+        assertEquals(VersionedBoard.INVALID_CURSOR, exception.getMessage());
+        assertThrows(ValidationException.class, () -> board.page(null, 0));
+    }
+}
@@ -0,0 +1,224 @@
+package org.pancakelab.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pancakelab.model.Notification;
+import org.pancakelab.model.OrderStatus;
+import org.pancakelab.model.User;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookNotificationChannelTest {
+    private static final Logger logger = Logger.getLogger(WebhookNotificationChannelTest.class.getName());
+
+    private final User user = new User("user", "password".toCharArray(), Map.of());
+    private final Queue<String> bodies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final CountDownLatch slowRelease = new CountDownLatch(1);
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private URI endpoint;
+    private WebhookNotificationChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hooks/orders", this::handle);
+        server.createContext("/hooks/slow", this::handleSlowly);
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.start();
+        endpoint = URI.create("http://127.0.0.1:%d/hooks/orders".formatted(server.getAddress().getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        slowRelease.countDown();
+        if (channel != null) {
+            channel.close();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        assertTrue(serverExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenBatch_whenDelivered_thenItIsPostedAsOneJsonArray() {
+        // Given
+        channel = channel(endpoint);
+        final UUID orderId = UUID.randomUUID();
+        final Instant at = Instant.parse("2024-01-01T10:15:30Z");
+        // When
+        channel.deliver(List.of(new Notification(user, orderId, OrderStatus.CREATED, at),
+                new Notification(user, orderId, OrderStatus.COMPLETED, at)));
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> channel.delivered() == 2);
+        assertEquals(1, bodies.size());
+        assertEquals(("[{\"username\":\"user\",\"orderId\":\"%1$s\",\"status\":\"CREATED\",\"at\":\"%2$s\"},"
+                + "{\"username\":\"user\",\"orderId\":\"%1$s\",\"status\":\"COMPLETED\",\"at\":\"%2$s\"}]")
+                .formatted(orderId, at), bodies.peek());
+    }
+
+    @Test
+    void givenServerErrors_whenDelivered_thenTheBatchIsRetriedUntilItIsTaken() {
+        // Given
+        channel = channel(endpoint);
+        failuresLeft.set(2);
+        // When
+        channel.deliver(List.of(notification(OrderStatus.CREATED)));
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(5)).until(() -> channel.delivered() == 1);
+        assertEquals(1, bodies.size());
+        assertEquals(2, channel.retried());
+        assertEquals(CircuitBreaker.State.CLOSED, channel.circuitState(endpoint));
+    }
+
+    @Test
+    void givenEndpointDown_whenBatchesFail_thenItsCircuitOpensAndTheOtherEndpointStillGetsTheBatches() {
+        // Given
+        final URI down = URI.create("http://127.0.0.1:%d/missing".formatted(server.getAddress().getPort()));
+        channel = channel(down, endpoint);
+        // When
+        for (int i = 0; i < 4; i++) {
+            channel.deliver(List.of(notification(OrderStatus.CREATED)));
+        }
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> bodies.size() == 4 && channel.failed() + channel.shortCircuited() == 4);
+        assertEquals(CircuitBreaker.State.OPEN, channel.circuitState(down));
+        assertEquals(2, channel.failed());
+        assertEquals(2, channel.shortCircuited());
+    }
+
+    @Test
+    void givenEndpointHangs_whenBatchesAreDelivered_thenTheCallerIsNotHeldUpAndTheOtherEndpointGetsThem() {
+        // Given
+        final URI slow = URI.create("http://127.0.0.1:%d/hooks/slow".formatted(server.getAddress().getPort()));
+        channel = new WebhookNotificationChannel(List.of(slow, endpoint), 3, Duration.ofMillis(1),
+                Duration.ofMillis(5), Duration.ofSeconds(5), Duration.ofSeconds(5), 2, Duration.ofMinutes(1), 2);
+        // When
+        for (int i = 0; i < 5; i++) {
+            channel.deliver(List.of(notification(OrderStatus.CREATED)));
+            final int posted = i + 1;
+            Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> bodies.size() == posted);
+        }
+        // Then
+        assertEquals(2, channel.dropped());
+        assertEquals(5, channel.delivered());
+    }
+
+    @Test
+    void givenEndpointKeepsFailing_whenDelivered_thenRetriesStopAtTheDeliveryTimeLimit() {
+        // Given
+        channel = new WebhookNotificationChannel(List.of(endpoint), 1_000, Duration.ofMillis(20),
+                Duration.ofMillis(20), Duration.ofSeconds(5), Duration.ofMillis(200), 5, Duration.ofMinutes(1), 8);
+        failuresLeft.set(Integer.MAX_VALUE);
+        // When
+        channel.deliver(List.of(notification(OrderStatus.CREATED)));
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(2)).until(() -> channel.failed() == 1);
+        assertTrue(channel.retried() < 20);
+        assertEquals(0, channel.delivered());
+    }
+
+    @Test
+    void givenEndpointList_whenParsed_thenBlankEntriesAreSkippedAndOtherSchemesRejected() {
+        // Given
+        final String endpoints = " http://localhost:8080/hooks , ,https://example.com/orders";
+        // When
+        final List<URI> uris = WebhookNotificationChannel.parseEndpoints(endpoints);
+        // Then
+        assertEquals(List.of(URI.create("http://localhost:8080/hooks"), URI.create("https://example.com/orders")),
+                uris);
+        assertTrue(WebhookNotificationChannel.parseEndpoints(null).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> WebhookNotificationChannel.parseEndpoints("ftp://example.com/orders"));
+    }
+
+    @Test
+    void givenConfiguredEndpointsWithInvalidOnes_whenParsed_thenOnlyTheInvalidOnesAreSkipped() {
+        // Given
+        final String endpoints = "http://localhost:8080/hooks,ftp://example.com/orders,http://bad host,"
+                + "https://example.com/orders";
+        // When
+        final List<URI> uris = WebhookNotificationChannel.configuredEndpoints(endpoints);
+        // Then
+        assertEquals(List.of(URI.create("http://localhost:8080/hooks"), URI.create("https://example.com/orders")),
+                uris);
+        assertTrue(WebhookNotificationChannel.configuredEndpoints(null).isEmpty());
+    }
+
+    @Test
+    void givenDispatcher_whenManyNotificationsAreSubmitted_thenTheyAreAllPostedInBatches() {
+        // Given
+        final int total = 20_000;
+        channel = channel(endpoint);
+        final NotificationDispatcher dispatcher = new NotificationDispatcher(total, 500, Duration.ofMillis(5));
+        dispatcher.addChannel(channel);
+        final long start = System.nanoTime();
+        // When
+        for (int i = 0; i < total; i++) {
+            assertTrue(dispatcher.submit(notification(OrderStatus.CREATED)));
+        }
+        // Then
+        Awaitility.await().atMost(Duration.ofSeconds(30)).until(() -> channel.delivered() == total);
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        logger.info("Delivered %d notifications in %d requests in %d ms, %.0f notifications/s".formatted(
+                total, bodies.size(), elapsed.toMillis(), total * 1e9 / elapsed.toNanos()));
+        assertEquals(total, channel.delivered());
+        assertTrue(bodies.size() < total);
+        dispatcher.close();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            exchange.sendResponseHeaders(503, -1);
+        } else {
+            bodies.add(body);
+            exchange.sendResponseHeaders(204, -1);
+        }
+        exchange.close();
+    }
+
+    private void handleSlowly(final HttpExchange exchange) throws IOException {
+        try {
+            slowRelease.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(204, -1);
+        exchange.close();
+    }
+
+    private WebhookNotificationChannel channel(final URI... endpoints) {
+        return new WebhookNotificationChannel(List.of(endpoints), 3, Duration.ofMillis(1), Duration.ofMillis(5),
+                Duration.ofSeconds(5), Duration.ofSeconds(5), 2, Duration.ofMinutes(1), 64);
+    }
+
+    private Notification notification(final OrderStatus status) {
+        return new Notification(user, UUID.randomUUID(), status, Instant.now());
+    }
+}
@@ -1,7 +1,7 @@
 Feature: Kitchen Service
 
   Scenario: Chef accepts the order
-    Given a disciple "user3" has a created order
+    Given a disciple "user3" has a completed order
     When the chef "user2" accepts the order
     And the order status should be "IN_PROGRESS"
 